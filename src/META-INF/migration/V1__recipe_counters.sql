@@ -0,0 +1,11 @@
+-- Recipe ingredient and illustration counters, maintained by the services and recounted after database cascades;
+-- existing recipes are backfilled once
+ALTER TABLE dinner_planner.Recipe ADD COLUMN IF NOT EXISTS ingredientCount INT NOT NULL DEFAULT 0;
+ALTER TABLE dinner_planner.Recipe ADD COLUMN IF NOT EXISTS illustrationCount INT NOT NULL DEFAULT 0;
+
+UPDATE dinner_planner.Recipe AS r SET
+	r.ingredientCount = (SELECT count(*) FROM dinner_planner.Ingredient AS i WHERE i.recipeReference = r.recipeIdentity),
+	r.illustrationCount = (SELECT count(*) FROM dinner_planner.RecipeIllustrationAssociation AS a WHERE a.recipeReference = r.recipeIdentity);
+
+CREATE INDEX IF NOT EXISTS Recipe_ingredientCount ON dinner_planner.Recipe (ingredientCount);
+CREATE INDEX IF NOT EXISTS Recipe_illustrationCount ON dinner_planner.Recipe (illustrationCount);
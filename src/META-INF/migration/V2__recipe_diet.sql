@@ -0,0 +1,9 @@
+-- Recipe diet, i.e. the least restrictive diet of all ingredient victuals, maintained by the services
+ALTER TABLE dinner_planner.Recipe ADD COLUMN IF NOT EXISTS diet VARCHAR(31) NOT NULL DEFAULT 'VEGAN';
+
+UPDATE dinner_planner.Recipe AS r SET r.diet = coalesce((
+	SELECT v.diet FROM dinner_planner.Ingredient AS i JOIN dinner_planner.Victual AS v ON v.victualIdentity = i.victualReference
+	WHERE i.recipeReference = r.recipeIdentity
+	ORDER BY field(v.diet, 'CARNIVORIAN', 'PESCATARIAN', 'LACTO_OVO_VEGETARIAN', 'LACTO_VEGETARIAN', 'VEGAN')
+	LIMIT 1
+), 'VEGAN');
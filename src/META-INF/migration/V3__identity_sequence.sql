@@ -0,0 +1,9 @@
+-- Table based identity generation; the sequence value is the last identity allocated
+CREATE TABLE IF NOT EXISTS dinner_planner.IdentitySequence (
+	name VARCHAR(64) NOT NULL,
+	value BIGINT NOT NULL,
+	PRIMARY KEY (name)
+);
+
+INSERT IGNORE INTO dinner_planner.IdentitySequence (name, value)
+	SELECT 'AbstractEntity', coalesce(max(identity), 0) FROM dinner_planner.AbstractEntity;
@@ -0,0 +1,20 @@
+-- Indexes supporting the filter and sort criteria of the query endpoints
+CREATE INDEX IF NOT EXISTS AbstractEntity_created ON dinner_planner.AbstractEntity (created);
+CREATE INDEX IF NOT EXISTS AbstractEntity_modified ON dinner_planner.AbstractEntity (modified);
+
+CREATE INDEX IF NOT EXISTS Recipe_category ON dinner_planner.Recipe (category);
+CREATE INDEX IF NOT EXISTS Recipe_authorReference ON dinner_planner.Recipe (authorReference, title);
+
+CREATE INDEX IF NOT EXISTS Ingredient_recipeReference ON dinner_planner.Ingredient (recipeReference);
+CREATE INDEX IF NOT EXISTS Ingredient_victualReference ON dinner_planner.Ingredient (victualReference);
+
+CREATE INDEX IF NOT EXISTS Victual_diet ON dinner_planner.Victual (diet);
+CREATE INDEX IF NOT EXISTS Victual_authorReference ON dinner_planner.Victual (authorReference, alias);
+
+CREATE INDEX IF NOT EXISTS Person_surname ON dinner_planner.Person (surname, forename);
+CREATE INDEX IF NOT EXISTS Person_forename ON dinner_planner.Person (forename);
+CREATE INDEX IF NOT EXISTS Person_city ON dinner_planner.Person (city);
+CREATE INDEX IF NOT EXISTS Person_country ON dinner_planner.Person (country);
+CREATE INDEX IF NOT EXISTS Person_postcode ON dinner_planner.Person (postcode);
+
+CREATE INDEX IF NOT EXISTS MealType_courseNumber ON dinner_planner.MealType (courseNumber);
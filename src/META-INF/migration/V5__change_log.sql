@@ -0,0 +1,12 @@
+-- Append-only change log, written within the mutating transactions by ChangeLogListener, and read by GET changes
+CREATE TABLE IF NOT EXISTS dinner_planner.ChangeLog (
+	sequenceNumber BIGINT NOT NULL AUTO_INCREMENT,
+	entityReference BIGINT NOT NULL,
+	discriminator VARCHAR(31) NOT NULL,
+	version INT NOT NULL,
+	operation CHAR(1) NOT NULL,
+	changed BIGINT NOT NULL,
+	PRIMARY KEY (sequenceNumber)
+);
+
+CREATE INDEX IF NOT EXISTS ChangeLog_changed ON dinner_planner.ChangeLog (changed);
@@ -0,0 +1,9 @@
+-- Second level cache invalidation messages, written and polled by DatabaseCacheTransport
+CREATE TABLE IF NOT EXISTS dinner_planner.CacheMessage (
+	sequenceNumber BIGINT NOT NULL AUTO_INCREMENT,
+	created BIGINT NOT NULL,
+	message MEDIUMBLOB NOT NULL,
+	PRIMARY KEY (sequenceNumber)
+);
+
+CREATE INDEX IF NOT EXISTS CacheMessage_created ON dinner_planner.CacheMessage (created);
@@ -0,0 +1,18 @@
+-- Change feed positions, assigned in commit order by ChangeLogListener using the counter row of ChangePosition;
+-- the positions of existing changes continue their sequence numbers, which keeps issued tokens valid
+ALTER TABLE dinner_planner.ChangeLog ADD COLUMN IF NOT EXISTS position BIGINT NULL;
+
+UPDATE dinner_planner.ChangeLog SET position = sequenceNumber WHERE position IS NULL;
+
+ALTER TABLE dinner_planner.ChangeLog MODIFY COLUMN position BIGINT NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ChangeLog_position ON dinner_planner.ChangeLog (position);
+
+CREATE TABLE IF NOT EXISTS dinner_planner.ChangePosition (
+	name VARCHAR(64) NOT NULL,
+	position BIGINT NOT NULL,
+	PRIMARY KEY (name)
+);
+
+INSERT IGNORE INTO dinner_planner.ChangePosition (name, position)
+	SELECT 'ChangeLog', coalesce(max(position), 0) FROM dinner_planner.ChangeLog;
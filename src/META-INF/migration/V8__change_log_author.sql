@@ -0,0 +1,3 @@
+-- Author of each changed entity, resolved by ChangeLogListener when writing the change log, which allows
+-- ChangeBroadcaster to filter the change notifications of all nodes by author without reading the entities
+ALTER TABLE dinner_planner.ChangeLog ADD COLUMN IF NOT EXISTS authorReference BIGINT NULL;
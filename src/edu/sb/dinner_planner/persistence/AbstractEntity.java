@@ -1,12 +1,22 @@
 package edu.sb.dinner_planner.persistence;
 
+import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import edu.sb.tool.Correlated;
 import edu.sb.tool.FieldPropertyStrategy;
 import edu.sb.tool.Correlated.Operator;
 import jakarta.json.bind.annotation.JsonbProperty;
+import jakarta.json.bind.annotation.JsonbTypeDeserializer;
 import jakarta.json.bind.annotation.JsonbVisibility;
+import jakarta.json.bind.serializer.DeserializationContext;
+import jakarta.json.bind.serializer.JsonbDeserializer;
+import jakarta.json.stream.JsonParser;
 import jakarta.persistence.Column;
 import jakarta.persistence.DiscriminatorColumn;
 import jakarta.persistence.Entity;
@@ -18,11 +28,10 @@ import jakarta.persistence.Inheritance;
 import jakarta.persistence.InheritanceType;
 import jakarta.persistence.PostLoad;
 import jakarta.persistence.PostPersist;
-import jakarta.persistence.PostUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.persistence.Transient;
 import jakarta.persistence.Version;
-import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 
@@ -31,16 +40,18 @@ import jakarta.validation.constraints.PositiveOrZero;
  * JPA based entity type representing entities.
  */
 @Entity
-@Table(schema="dinner_planner", name="AbstractEntity", indexes=@Index(columnList="discriminator"))
+@Table(schema="dinner_planner", name="AbstractEntity", indexes={ @Index(columnList="discriminator"), @Index(columnList="created"), @Index(columnList="modified") })
 @Inheritance(strategy=InheritanceType.JOINED)
 @DiscriminatorColumn(name="discriminator")
 @Correlated(operator=Operator.GREATER_EQUAL, leftOperandPath="modified", rightOperandPath="created")
 @JsonbVisibility(FieldPropertyStrategy.class)
 public abstract class AbstractEntity extends Object implements Comparable<AbstractEntity> {
 
+	// table based hi/lo identities preallocated in blocks, which allows inserts to be deferred and batched
 	@JsonbProperty
 	@PositiveOrZero
-	@Id @GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Id @GeneratedValue(strategy=GenerationType.TABLE, generator="AbstractEntity")
+	@TableGenerator(name="AbstractEntity", schema="dinner_planner", table="IdentitySequence", pkColumnName="name", valueColumnName="value", pkColumnValue="AbstractEntity", allocationSize=50)
 	private long identity;
 
 	@JsonbProperty
@@ -57,12 +68,135 @@ public abstract class AbstractEntity extends Object implements Comparable<Abstra
 	@Column(nullable=false, updatable=true)
 	private long modified;
 
+	// the attributes of a deserialized template, a view of the derived attributes of a loaded or persisted entity, or null for none
 	@JsonbProperty
-	@NotNull
+	@JsonbTypeDeserializer(AttributesDeserializer.class)
 	@Transient
 	private Map<String,Object> attributes;
 
 
+	/**
+	 * Sink for the derived attributes of entities.
+	 */
+	static protected interface AttributeWriter {
+
+		/**
+		 * Writes the given text attribute.
+		 * @param name the attribute name
+		 * @param value the attribute value, or {@code null} for none
+		 */
+		void write (String name, String value);
+
+
+		/**
+		 * Writes the given numeric attribute.
+		 * @param name the attribute name
+		 * @param value the attribute value
+		 */
+		void write (String name, long value);
+
+
+		/**
+		 * Writes the given attribute as {@code null}.
+		 * @param name the attribute name
+		 */
+		void writeNull (String name);
+
+
+		/**
+		 * Writes the given numeric attribute.
+		 * @param name the attribute name
+		 * @param value the attribute value, or {@code null} for none
+		 */
+		default void write (final String name, final Number value) {
+			if (value == null)
+				this.writeNull(name);
+			else
+				this.write(name, value.longValue());
+		}
+
+
+		/**
+		 * Writes the identity of the given entity as reference attribute.
+		 * @param name the attribute name
+		 * @param entity the referenced entity, or {@code null} for none
+		 */
+		default void writeReference (final String name, final AbstractEntity entity) {
+			if (entity == null)
+				this.writeNull(name);
+			else
+				this.write(name, entity.getIdentity());
+		}
+	}
+
+
+	/**
+	 * Unmodifiable map view of the derived attributes of an entity, which are computed from it's
+	 * current state whenever the view is read instead of being stored; {@link #forEach(BiConsumer)}
+	 * streams them without building a map.
+	 */
+	static private class DerivedAttributes extends AbstractMap<String,Object> {
+		private final AbstractEntity entity;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param entity the entity
+		 */
+		public DerivedAttributes (final AbstractEntity entity) {
+			this.entity = entity;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Set<Map.Entry<String,Object>> entrySet () {
+			final Map<String,Object> attributes = new LinkedHashMap<>();
+			this.forEach(attributes::put);
+			return Collections.unmodifiableMap(attributes).entrySet();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void forEach (final BiConsumer<? super String,? super Object> action) {
+			this.entity.writeAttributes(new AttributeWriter() {
+				public void write (final String name, final String value) {
+					action.accept(name, value);
+				}
+
+				public void write (final String name, final long value) {
+					action.accept(name, value);
+				}
+
+				public void writeNull (final String name) {
+					action.accept(name, null);
+				}
+			});
+		}
+	}
+
+
+	/**
+	 * JSON-B deserializer reading the attributes of entity templates.
+	 */
+	static public class AttributesDeserializer implements JsonbDeserializer<Object> {
+		static private final Type MAP_TYPE = new HashMap<String,Object>() {}.getClass().getGenericSuperclass();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Object deserialize (final JsonParser parser, final DeserializationContext context, final Type type) {
+			return Collections.unmodifiableMap(context.deserialize(MAP_TYPE, parser));
+		}
+	}
+
+
 	/**
 	 * Initializes a new instance.
 	 */
@@ -72,13 +206,27 @@ public abstract class AbstractEntity extends Object implements Comparable<Abstra
 		this.version = 1;
 		this.created = System.currentTimeMillis();
 		this.modified = System.currentTimeMillis();
-		this.attributes = new HashMap<>();
+		this.attributes = null;
+	}
+
+
+	/**
+	 * Replaces the attributes of this entity, which has been loaded or persisted, with a view of
+	 * it's derived attributes.
+	 */
+	@PostLoad @PostPersist
+	private void deriveAttributes () {
+		this.attributes = new DerivedAttributes(this);
 	}
 
 
-	@PostLoad @PostPersist @PostUpdate
-	protected void refreshAttributes () {
-		this.attributes.put("discriminator", this.getClass().getSimpleName());
+	/**
+	 * Writes the derived attributes of this entity, which are computed from it's current state
+	 * whenever required instead of being stored.
+	 * @param writer the attribute writer
+	 */
+	protected void writeAttributes (final AttributeWriter writer) {
+		writer.write("discriminator", this.getClass().getSimpleName());
 	}
 
 	
@@ -113,8 +261,13 @@ public abstract class AbstractEntity extends Object implements Comparable<Abstra
 	}
 
 
+	/**
+	 * Returns the attributes of this entity, i.e. the derived ones if it has been loaded or persisted,
+	 * and those received otherwise, for example by a deserialized template.
+	 * @return the unmodifiable attributes, empty if there are none
+	 */
 	public Map<String,Object> getAttributes () {
-		return this.attributes;
+		return this.attributes == null ? Map.of() : this.attributes;
 	}
 
 
@@ -105,9 +105,9 @@ public class AccessPlan extends AbstractEntity {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void refreshAttributes () {
-		super.refreshAttributes();
-		this.getAttributes().put("tenant-reference", this.tenant == null ? null : this.tenant.getIdentity());
+	protected void writeAttributes (final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.writeReference("tenant-reference", this.tenant);
 	}
 
 
@@ -51,10 +51,10 @@ public class Dish extends AbstractEntity {
 
 
 	@Override
-	protected void refreshAttributes() {
-		super.refreshAttributes();
-		this.getAttributes().put("dish-type", this.dishType);
-		this.getAttributes().put("author-reference", this.author == null ? null : this.author.getIdentity());
+	protected void writeAttributes(final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.write("dish-type", this.dishType);
+		writer.writeReference("author-reference", this.author);
 	}
 
 
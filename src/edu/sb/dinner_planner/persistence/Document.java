@@ -71,9 +71,9 @@ public class Document extends AbstractEntity {
 
 
 	@Override
-	protected void refreshAttributes () {
-		super.refreshAttributes();
-		this.getAttributes().put("size", this.content.length);
+	protected void writeAttributes (final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.write("size", this.content.length);
 	}
 
 
@@ -10,6 +10,7 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrimaryKeyJoinColumn;
@@ -23,7 +24,7 @@ import jakarta.validation.constraints.PositiveOrZero;
  * JPA based entity type representing ingredients.
  */
 @Entity
-@Table(schema="dinner_planner", name="Ingredient")
+@Table(schema="dinner_planner", name="Ingredient", indexes={ @Index(columnList="recipeReference"), @Index(columnList="victualReference") })
 @PrimaryKeyJoinColumn(name="ingredientIdentity")
 @DiscriminatorValue("Ingredient")
 @JsonbVisibility(FieldPropertyStrategy.class)
@@ -79,9 +80,9 @@ public class Ingredient extends AbstractEntity {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void refreshAttributes () {
-		super.refreshAttributes();
-		this.getAttributes().put("recipe-reference", this.recipe == null ? null : this.recipe.getIdentity());
+	protected void writeAttributes (final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.writeReference("recipe-reference", this.recipe);
 	}
 
 
@@ -9,6 +9,7 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrimaryKeyJoinColumn;
@@ -23,7 +24,7 @@ import edu.sb.tool.FieldPropertyStrategy;
  * JPA based entity type representing meal types (course specification).
  */
 @Entity
-@Table(schema = "dinner_planner", name = "MealType")
+@Table(schema = "dinner_planner", name = "MealType", indexes = @Index(columnList = "courseNumber"))
 @PrimaryKeyJoinColumn(name = "mealTypeIdentity")
 @DiscriminatorValue("MealType")
 @JsonbVisibility(FieldPropertyStrategy.class)
@@ -78,12 +79,12 @@ public class MealType extends AbstractEntity {
 
 
 	@Override
-	protected void refreshAttributes() {
-		super.refreshAttributes();
-		this.getAttributes().put("course-number", this.courseNumber);
-		this.getAttributes().put("course-type", this.courseType == null ? null : this.courseType.name());
-		this.getAttributes().put("dish-reference", this.dish == null ? null : this.dish.getIdentity());
-		this.getAttributes().put("author-reference", this.author == null ? null : this.author.getIdentity());
+	protected void writeAttributes(final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.write("course-number", this.courseNumber);
+		writer.write("course-type", this.courseType == null ? null : this.courseType.name());
+		writer.writeReference("dish-reference", this.dish);
+		writer.writeReference("author-reference", this.author);
 	}
 	
 	
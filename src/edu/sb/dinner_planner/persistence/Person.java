@@ -35,7 +35,7 @@ import jakarta.validation.constraints.Size;
  * JPA based entity type representing people.
  */
 @Entity
-@Table(schema="dinner_planner", name="Person")
+@Table(schema="dinner_planner", name="Person", indexes={ @Index(columnList="surname,forename"), @Index(columnList="forename"), @Index(columnList="city"), @Index(columnList="country"), @Index(columnList="postcode") })
 @PrimaryKeyJoinColumn(name="personIdentity")
 @DiscriminatorValue("Person")
 @JsonbVisibility(FieldPropertyStrategy.class)
@@ -130,9 +130,9 @@ public class Person extends AbstractEntity {
 
 
 	@Override
-	protected void refreshAttributes () {
-		super.refreshAttributes();
-		this.getAttributes().put("avatar-reference", this.avatar == null ? DEFAULT_AVATAR_IDENTITY : this.avatar.getIdentity());
+	protected void writeAttributes (final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.write("avatar-reference", this.avatar == null ? DEFAULT_AVATAR_IDENTITY : this.avatar.getIdentity());
 	}
 
 
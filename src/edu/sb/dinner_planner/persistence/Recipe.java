@@ -18,6 +18,7 @@ import jakarta.json.bind.annotation.JsonbVisibility;
 import jakarta.persistence.*;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 
 
@@ -25,7 +26,7 @@ import jakarta.validation.constraints.Size;
  * JPA based entity type representing recipes.
  */
 @Entity
-@Table(schema="dinner_planner", name="Recipe")
+@Table(schema="dinner_planner", name="Recipe", indexes={ @Index(columnList="category"), @Index(columnList="authorReference,title"), @Index(columnList="ingredientCount"), @Index(columnList="illustrationCount") })
 @PrimaryKeyJoinColumn(name="recipeIdentity")
 @DiscriminatorValue("Recipe")
 @JsonbVisibility(FieldPropertyStrategy.class)
@@ -46,6 +47,14 @@ public class Recipe extends AbstractEntity {
 	@Column(nullable=false, updatable=true, unique=true, length=128)
 	private String title;
 
+	// maintained by the services whenever ingredients or their victual's diets change, and rederived by
+	// RecipeService#rederiveRecipeDiets after database cascades; created by migration V2__recipe_diet.sql
+	@JsonbTransient
+	@NotNull
+	@Enumerated(EnumType.STRING)
+	@Column(nullable=false, updatable=true)
+	private Diet diet;
+
 	@JsonbProperty
 	@Size(min=1, max=4094)
 	@Column(nullable=true, updatable=true, length=4094)
@@ -83,6 +92,18 @@ public class Recipe extends AbstractEntity {
 	)
 	private Set<Document> illustrations;
 
+	// maintained by the services whenever ingredients or illustrations are added or removed, and recounted
+	// by RecipeService#recountRecipes after database cascades; created by migration V1__recipe_counters.sql
+	@JsonbTransient
+	@PositiveOrZero
+	@Column(nullable=false, updatable=true)
+	private int ingredientCount;
+
+	@JsonbTransient
+	@PositiveOrZero
+	@Column(nullable=false, updatable=true)
+	private int illustrationCount;
+
 
 	/**
 	 * Initializes a new instance.
@@ -90,12 +111,15 @@ public class Recipe extends AbstractEntity {
 	public Recipe () {
 		this.category = Category.MAIN_COURSE;   
 		this.title = null; 
+		this.diet = Diet.VEGAN;
 		this.description = null; 
 		this.instruction = null; 
 		this.avatar = null;
 		this.author = null;
 		this.ingredients = Collections.emptySet();
 		this.illustrations = new HashSet<>();
+		this.ingredientCount = 0;
+		this.illustrationCount = 0;
 	}
 
 
@@ -103,13 +127,13 @@ public class Recipe extends AbstractEntity {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void refreshAttributes () {
-		super.refreshAttributes();
-		this.getAttributes().put("avatar-reference", this.avatar == null ? DEFAULT_AVATAR_IDENTITY : this.avatar.getIdentity());
-		this.getAttributes().put("author-reference", this.author == null ? null : this.author.getIdentity());
-		this.getAttributes().put("ingredient-count", this.ingredients.size());
-		this.getAttributes().put("illustration-count", this.illustrations.size());
-		this.getAttributes().put("diet", this.ingredients.stream().map(Ingredient::getVictual).map(Victual::getDiet).min(Comparator.naturalOrder()).orElse(Diet.VEGAN).name());
+	protected void writeAttributes (final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.write("avatar-reference", this.avatar == null ? DEFAULT_AVATAR_IDENTITY : this.avatar.getIdentity());
+		writer.writeReference("author-reference", this.author);
+		writer.write("ingredient-count", this.ingredientCount);
+		writer.write("illustration-count", this.illustrationCount);
+		writer.write("diet", this.diet.name());
 	}
 
 
@@ -149,6 +173,26 @@ public class Recipe extends AbstractEntity {
 	}
 
 	
+	/**
+	 * Returns the diet.
+	 * @return the least restrictive diet of all ingredient victuals,
+	 * 			or {@link Diet#VEGAN} for none
+	 */
+	public Diet getDiet () {
+		return this.diet;
+	}
+
+
+	/**
+	 * Sets the diet.
+	 * @param diet the least restrictive diet of all ingredient victuals,
+	 * 			or {@link Diet#VEGAN} for none
+	 */
+	public void setDiet (final Diet diet) {
+		this.diet = diet;
+	}
+
+
 	/**
 	 * Returns the description.
 	 * @return the description, or {@code null} for none
@@ -237,4 +281,40 @@ public class Recipe extends AbstractEntity {
 	public Set<Document> getIllustrations () {
 		return this.illustrations;
 	}
+
+
+	/**
+	 * Returns the ingredient count.
+	 * @return the number of related ingredients
+	 */
+	public int getIngredientCount () {
+		return this.ingredientCount;
+	}
+
+
+	/**
+	 * Sets the ingredient count.
+	 * @param ingredientCount the number of related ingredients
+	 */
+	public void setIngredientCount (final int ingredientCount) {
+		this.ingredientCount = ingredientCount;
+	}
+
+
+	/**
+	 * Returns the illustration count.
+	 * @return the number of related illustrations
+	 */
+	public int getIllustrationCount () {
+		return this.illustrationCount;
+	}
+
+
+	/**
+	 * Sets the illustration count.
+	 * @param illustrationCount the number of related illustrations
+	 */
+	public void setIllustrationCount (final int illustrationCount) {
+		this.illustrationCount = illustrationCount;
+	}
 }
@@ -11,6 +11,7 @@ import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrimaryKeyJoinColumn;
@@ -23,7 +24,7 @@ import jakarta.validation.constraints.Size;
  * JPA based entity type representing victuals.
  */
 @Entity
-@Table(schema="dinner_planner", name="Victual")
+@Table(schema="dinner_planner", name="Victual", indexes={ @Index(columnList="diet"), @Index(columnList="authorReference,alias") })
 @PrimaryKeyJoinColumn(name="victualIdentity")
 @DiscriminatorValue("Victual")
 @JsonbVisibility(FieldPropertyStrategy.class)
@@ -76,10 +77,10 @@ public class Victual extends AbstractEntity {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected void refreshAttributes () {
-		super.refreshAttributes();
-		this.getAttributes().put("avatar-reference", this.avatar == null ? DEFAULT_AVATAR_IDENTITY : this.avatar.getIdentity());
-		this.getAttributes().put("author-reference", this.author == null ? null : this.author.getIdentity());
+	protected void writeAttributes (final AttributeWriter writer) {
+		super.writeAttributes(writer);
+		writer.write("avatar-reference", this.avatar == null ? DEFAULT_AVATAR_IDENTITY : this.avatar.getIdentity());
+		writer.writeReference("author-reference", this.author);
 	}
 
 
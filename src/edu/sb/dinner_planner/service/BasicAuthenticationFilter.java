@@ -4,6 +4,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import edu.sb.dinner_planner.persistence.AccessCounter;
 import edu.sb.dinner_planner.persistence.AccessPlan;
 import edu.sb.dinner_planner.persistence.Person;
@@ -38,11 +39,30 @@ public class BasicAuthenticationFilter implements ContainerRequestFilter {
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 	static private final String QUERY_PERSON = "select p from Person as p where p.email = :email";
 	static private final String QUERY_ACCESS_PLAN = "select a from AccessPlan as a where a.key = :key";
+	static private final Metrics.Histogram AUTHENTICATION_DURATION = Metrics.histogram(Metrics.AUTHENTICATION_DURATION);
+	static private final LongAdder AUTHENTICATION_THROTTLED = Metrics.counter(Metrics.AUTHENTICATION_THROTTLED);
 
 	@PersistenceContext(unitName="local_database")
 	private EntityManager entityManager;
 
 
+	/**
+	 * Performs HTTP "basic" authentication, and records it's duration.
+	 * @param requestContext the request context
+	 * @throws NullPointerException if the given argument is null
+	 */
+	public void filter (final ContainerRequestContext requestContext) throws NullPointerException {
+		final long startNanos = System.nanoTime();
+		try {
+			this.authenticate(requestContext);
+		} finally {
+			final long durationNanos = System.nanoTime() - startNanos;
+			AUTHENTICATION_DURATION.record(durationNanos);
+			TimingFilter.addAuthentication(durationNanos);
+		}
+	}
+
+
 	/**
 	 * Performs HTTP "basic" authentication by calculating a password hash from the password contained in the request's
 	 * "Authorization" header, and comparing it to the one stored in the person matching said header's username. The
@@ -53,7 +73,7 @@ public class BasicAuthenticationFilter implements ContainerRequestFilter {
 	 * @param requestContext the request context
 	 * @throws NullPointerException if the given argument is null
 	 */
-	public void filter (final ContainerRequestContext requestContext) throws NullPointerException {
+	private void authenticate (final ContainerRequestContext requestContext) throws NullPointerException {
 		// Abort with Status.BAD_REQUEST if the given request context's headers map already contains
 		// a "X-Requester-Identity" header, in order to prevent spoofing attacks.
 		final MultivaluedMap<String,String> requestHeaders = requestContext.getHeaders();
@@ -78,6 +98,7 @@ public class BasicAuthenticationFilter implements ContainerRequestFilter {
 
 		// If said access key list variable is null or empty, abort with HTTP status 429.
 		if (accessKeyList == null || accessKeyList.isEmpty()) {
+			AUTHENTICATION_THROTTLED.increment();
 			requestContext.abortWith(Response.status(Status.TOO_MANY_REQUESTS).build());
 			return;
 		}
@@ -90,6 +111,7 @@ public class BasicAuthenticationFilter implements ContainerRequestFilter {
 			accessPlanQuery.setParameter("key", accessKeyList.get(0));
 			final AccessPlan accessPlan = accessPlanQuery.getResultStream().findAny().orElse(null);
 			if (accessPlan == null) {
+				AUTHENTICATION_THROTTLED.increment();
 				requestContext.abortWith(Response.status(Status.TOO_MANY_REQUESTS).build());
 				return;
 			}
@@ -104,6 +126,7 @@ public class BasicAuthenticationFilter implements ContainerRequestFilter {
 				.findAny()
 				.orElseGet(() -> new AccessCounter(year, month));
 			if (accessPlan.getVariant().limit() != null && counter.getAmount() > accessPlan.getVariant().limit()) {
+				AUTHENTICATION_THROTTLED.increment();
 				requestContext.abortWith(Response.status(Status.TOO_MANY_REQUESTS).build());
 				return;
 			}
@@ -0,0 +1,292 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.Session;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import edu.sb.dinner_planner.persistence.Ingredient;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+import jakarta.persistence.EntityManagerFactory;
+
+
+/**
+ * Propagates the second level cache evictions of a server session to all other nodes sharing the
+ * same database. Both the identities of all entities inserted, updated or deleted by committed
+ * transactions, see {@link SessionLifecycleListener}, and the explicit evictions of derived state,
+ * see {@link CacheInvalidator}, are propagated. Evictions are coalesced, and sent asynchronously in
+ * batches using pluggable cache transports; evictions received from other nodes are applied to the
+ * local second level cache, and invalidate the {@link RecipeIndex} if they concern recipes, ingredients
+ * or victuals. The transport is selected using system property {@value #PROPERTY_TRANSPORT}, with values
+ * {@code none} (default), {@code loopback}, {@code database} or {@code multicast}; as datagrams may be
+ * lost, the latter is always combined with the database transport as resynchronizing fallback.
+ */
+public class CacheCoordinator {
+	static private final Logger LOGGER = Logger.getLogger(CacheCoordinator.class.getName());
+	static public final String PROPERTY_TRANSPORT = "dinner_planner.cache.transport";
+	static public final String PROPERTY_INTERVAL = "dinner_planner.cache.broadcast-interval";
+	static public final String PROPERTY_MULTICAST_GROUP = "dinner_planner.cache.multicast-group";
+	static public final String PROPERTY_MULTICAST_PORT = "dinner_planner.cache.multicast-port";
+	static private final int MAX_IDENTITIES_PER_MESSAGE = 4096;
+	static private final Set<Class<?>> INDEXED_TYPES = Set.of(Recipe.class, Ingredient.class, Victual.class);
+	static private final Map<Session,CacheCoordinator> COORDINATORS = new ConcurrentHashMap<>();
+	static private final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "cache-coordinator");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final long node;
+	private final Session session;
+	private final List<CacheTransport> transports;
+	private final ScheduledFuture<?> flusher;
+	private Map<Class<? extends AbstractEntity>,Set<Long>> pendingEvictions;
+
+
+	/**
+	 * Returns the cache coordinator of the given entity manager factory's server session,
+	 * creating one using the transports defined by the system properties if necessary.
+	 * @param entityManagerFactory the entity manager factory
+	 * @return the cache coordinator
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public CacheCoordinator get (final EntityManagerFactory entityManagerFactory) throws NullPointerException {
+		return get(JpaHelper.getServerSession(entityManagerFactory));
+	}
+
+
+	/**
+	 * Returns the cache coordinator of the given server session, creating one using the
+	 * transports defined by the system properties if necessary.
+	 * @param session the server session
+	 * @return the cache coordinator
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public CacheCoordinator get (final Session session) throws NullPointerException {
+		return COORDINATORS.computeIfAbsent(session, key -> new CacheCoordinator(key, newTransports(key)));
+	}
+
+
+	/**
+	 * Registers a cache coordinator for the given entity manager factory's server session using
+	 * the given transport, closing any coordinator previously registered for said session.
+	 * @param entityManagerFactory the entity manager factory
+	 * @param transport the transport, or {@code null} for none
+	 * @return the cache coordinator
+	 * @throws NullPointerException if the given entity manager factory is {@code null}
+	 */
+	static public CacheCoordinator register (final EntityManagerFactory entityManagerFactory, final CacheTransport transport) throws NullPointerException {
+		final Session session = JpaHelper.getServerSession(entityManagerFactory);
+		final CacheCoordinator coordinator = new CacheCoordinator(session, transport == null ? List.of() : List.of(transport));
+		final CacheCoordinator previous = COORDINATORS.put(session, coordinator);
+		if (previous != null) previous.close();
+		return coordinator;
+	}
+
+
+	/**
+	 * Returns new transports as defined by the system properties.
+	 * @param session the server session
+	 * @return the transports, empty for none
+	 */
+	static private List<CacheTransport> newTransports (final Session session) {
+		final String transport = System.getProperty(PROPERTY_TRANSPORT, "none");
+		try {
+			switch (transport) {
+				case "none":
+					return List.of();
+				case "loopback":
+					return List.of(new LoopbackCacheTransport());
+				case "database":
+					return List.of(new DatabaseCacheTransport(session));
+				case "multicast":
+					final InetAddress group = InetAddress.getByName(System.getProperty(PROPERTY_MULTICAST_GROUP, "239.255.77.77"));
+					final int port = Integer.parseInt(System.getProperty(PROPERTY_MULTICAST_PORT, "45677"));
+					return List.of(new MulticastCacheTransport(group, port), new DatabaseCacheTransport(session));
+				default:
+					throw new IllegalArgumentException(transport);
+			}
+		} catch (final IOException | IllegalArgumentException e) {
+			LOGGER.log(Level.WARNING, "cache transport \"" + transport + "\" unavailable, cache coordination disabled", e);
+			return List.of();
+		}
+	}
+
+
+	/**
+	 * Initializes a new instance, and opens the given transports.
+	 * @param session the server session
+	 * @param transports the transports, empty for none
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	private CacheCoordinator (final Session session, final List<CacheTransport> transports) throws NullPointerException {
+		if (session == null | transports == null) throw new NullPointerException();
+		this.node = UUID.randomUUID().getMostSignificantBits();
+		this.session = session;
+		this.pendingEvictions = new HashMap<>();
+
+		final List<CacheTransport> openTransports = new ArrayList<>();
+		for (final CacheTransport transport : transports) {
+			try {
+				transport.open(this::receive);
+				openTransports.add(transport);
+			} catch (final IOException e) {
+				LOGGER.log(Level.WARNING, "cache transport unavailable, skipped", e);
+			}
+		}
+
+		final long interval = Long.getLong(PROPERTY_INTERVAL, 50L);
+		this.transports = openTransports;
+		this.flusher = openTransports.isEmpty() ? null : SCHEDULER.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+
+	/**
+	 * Schedules the given local evictions for propagation to all other nodes.
+	 * @param evictions the entity identities to be evicted, mapped by entity type
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public void broadcast (final Map<Class<? extends AbstractEntity>,Set<Long>> evictions) throws NullPointerException {
+		if (this.transports.isEmpty() || evictions.isEmpty()) return;
+
+		synchronized (this) {
+			for (final Map.Entry<Class<? extends AbstractEntity>,Set<Long>> entry : evictions.entrySet())
+				this.pendingEvictions.computeIfAbsent(entry.getKey(), key -> new HashSet<>()).addAll(entry.getValue());
+		}
+	}
+
+
+	/**
+	 * Sends all pending evictions, split into messages of limited size.
+	 */
+	private void flush () {
+		final Map<Class<? extends AbstractEntity>,Set<Long>> evictions;
+		synchronized (this) {
+			if (this.pendingEvictions.isEmpty()) return;
+			evictions = this.pendingEvictions;
+			this.pendingEvictions = new HashMap<>();
+		}
+
+		// message format: node, followed by any number of (type name, identity count, identities)
+		try {
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			final DataOutputStream stream = new DataOutputStream(buffer);
+			stream.writeLong(this.node);
+
+			int identityCount = 0;
+			for (final Map.Entry<Class<? extends AbstractEntity>,Set<Long>> entry : evictions.entrySet()) {
+				final long[] identities = entry.getValue().stream().mapToLong(Long::longValue).toArray();
+				for (int offset = 0; offset < identities.length; ) {
+					if (identityCount == MAX_IDENTITIES_PER_MESSAGE) {
+						stream.flush();
+						this.send(buffer.toByteArray());
+						buffer.reset();
+						stream.writeLong(this.node);
+						identityCount = 0;
+					}
+
+					final int count = Math.min(identities.length - offset, MAX_IDENTITIES_PER_MESSAGE - identityCount);
+					stream.writeUTF(entry.getKey().getName());
+					stream.writeInt(count);
+					for (int index = offset; index < offset + count; ++index)
+						stream.writeLong(identities[index]);
+
+					offset += count;
+					identityCount += count;
+				}
+			}
+
+			stream.flush();
+			if (identityCount > 0) this.send(buffer.toByteArray());
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+
+	/**
+	 * Sends the given message using each transport, where failure of one
+	 * transport doesn't prevent sending with the others.
+	 * @param message the message
+	 */
+	private void send (final byte[] message) {
+		for (final CacheTransport transport : this.transports) {
+			try {
+				transport.send(message);
+			} catch (final IOException | RuntimeException e) {
+				LOGGER.log(Level.WARNING, "cache invalidation broadcast failed", e);
+			}
+		}
+	}
+
+
+	/**
+	 * Applies the evictions contained in the given message to the local second level cache,
+	 * unless the message originates from this node. Note that messages may be received more than
+	 * once when several transports are used, which is harmless as evictions are idempotent.
+	 * @param message the message
+	 */
+	private void receive (final byte[] message) {
+		try (DataInputStream stream = new DataInputStream(new ByteArrayInputStream(message))) {
+			if (stream.readLong() == this.node || !this.session.isConnected()) return;
+
+			boolean indexed = false;
+			while (stream.available() > 0) {
+				final Class<?> type = Class.forName(stream.readUTF(), false, AbstractEntity.class.getClassLoader());
+				final boolean entityType = AbstractEntity.class.isAssignableFrom(type);
+
+				final int count = stream.readInt();
+				for (int index = 0; index < count; ++index) {
+					final long identity = stream.readLong();
+					if (!entityType) continue;
+
+					this.session.getIdentityMapAccessor().invalidateObject(identity, type);
+				}
+				indexed |= INDEXED_TYPES.contains(type);
+				if (entityType) Metrics.counter(Metrics.CACHE_EVICTIONS, "entity", type.getSimpleName(), "origin", "remote").add(count);
+			}
+
+			if (indexed) RecipeIndex.invalidate(this.session);
+		} catch (final IOException | ClassNotFoundException e) {
+			LOGGER.log(Level.WARNING, "malformed cache invalidation message ignored", e);
+		}
+	}
+
+
+	/**
+	 * Sends all pending evictions, closes the transports and unregisters this coordinator.
+	 */
+	public void close () {
+		COORDINATORS.remove(this.session, this);
+		if (this.transports.isEmpty()) return;
+
+		this.flusher.cancel(false);
+		this.flush();
+		for (final CacheTransport transport : this.transports) {
+			try {
+				transport.close();
+			} catch (final IOException e) {
+				LOGGER.log(Level.WARNING, "cache transport close failed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import edu.sb.dinner_planner.persistence.Ingredient;
+import edu.sb.dinner_planner.persistence.MealType;
+import edu.sb.dinner_planner.persistence.Person;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+
+/**
+ * Collects the second level cache evictions required by a service mutation, and performs them once
+ * the mutation has been committed. Instead of evicting whole entity classes, the referrer methods
+ * of this class determine the specific entities whose mirror relationship sets or derived attributes
+ * are affected by a mutation. Note that referrers must be determined before the mutation is flushed,
+ * as the database may cascade the mutation onto the referencing rows.
+ */
+public class CacheInvalidator {
+	static private final String QUERY_DOCUMENT_AVATAR_RECIPES = "select r.identity from Recipe as r where r.avatar.identity = :documentIdentity";
+	static private final String QUERY_DOCUMENT_ILLUSTRATION_RECIPES = "select r.identity from Recipe as r join r.illustrations as d where d.identity = :documentIdentity";
+	static private final String QUERY_DOCUMENT_VICTUALS = "select v.identity from Victual as v where v.avatar.identity = :documentIdentity";
+	static private final String QUERY_DOCUMENT_PEOPLE = "select p.identity from Person as p where p.avatar.identity = :documentIdentity";
+	static private final String QUERY_VICTUAL_RECIPES = "select distinct i.recipe.identity from Ingredient as i where i.victual.identity = :victualIdentity";
+	static private final String QUERY_VICTUAL_INGREDIENTS = "select i.identity from Ingredient as i where i.victual.identity = :victualIdentity";
+	static private final String QUERY_DISH_MEAL_TYPES = "select m.identity from MealType as m where m.dish.identity = :dishIdentity";
+	static private final String QUERY_PERSON_RECIPES = "select r.identity from Recipe as r where r.author.identity = :personIdentity";
+	static private final String QUERY_PERSON_VICTUALS = "select v.identity from Victual as v where v.author.identity = :personIdentity";
+
+	private final EntityManager entityManager;
+	private final Map<Class<? extends AbstractEntity>,Set<Long>> evictions;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param entityManager the entity manager
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public CacheInvalidator (final EntityManager entityManager) throws NullPointerException {
+		if (entityManager == null) throw new NullPointerException();
+
+		this.entityManager = entityManager;
+		this.evictions = new HashMap<>();
+	}
+
+
+	/**
+	 * Returns the identities of the entities of the given type collected for eviction.
+	 * @param type the entity type
+	 * @return the entity identities
+	 */
+	public Set<Long> identities (final Class<? extends AbstractEntity> type) {
+		return Collections.unmodifiableSet(this.evictions.getOrDefault(type, Collections.emptySet()));
+	}
+
+
+	/**
+	 * Collects the given entity for eviction.
+	 * @param type the entity type
+	 * @param identity the entity identity
+	 * @return this instance
+	 * @throws NullPointerException if the given type is {@code null}
+	 */
+	public CacheInvalidator add (final Class<? extends AbstractEntity> type, final long identity) throws NullPointerException {
+		this.evictions.computeIfAbsent(type, key -> new HashSet<>()).add(identity);
+		return this;
+	}
+
+
+	/**
+	 * Collects the given entities for eviction.
+	 * @param type the entity type
+	 * @param identities the entity identities
+	 * @return this instance
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public CacheInvalidator addAll (final Class<? extends AbstractEntity> type, final Collection<Long> identities) throws NullPointerException {
+		if (!identities.isEmpty()) this.evictions.computeIfAbsent(type, key -> new HashSet<>()).addAll(identities);
+		return this;
+	}
+
+
+	/**
+	 * Collects the recipes, victuals and people referencing the given document for eviction.
+	 * @param documentIdentity the document identity
+	 * @return this instance
+	 */
+	public CacheInvalidator addDocumentReferrers (final long documentIdentity) {
+		this.addAll(Recipe.class, this.entityManager.createQuery(QUERY_DOCUMENT_AVATAR_RECIPES, Long.class).setParameter("documentIdentity", documentIdentity).getResultList());
+		this.addAll(Recipe.class, this.entityManager.createQuery(QUERY_DOCUMENT_ILLUSTRATION_RECIPES, Long.class).setParameter("documentIdentity", documentIdentity).getResultList());
+		this.addAll(Victual.class, this.entityManager.createQuery(QUERY_DOCUMENT_VICTUALS, Long.class).setParameter("documentIdentity", documentIdentity).getResultList());
+		this.addAll(Person.class, this.entityManager.createQuery(QUERY_DOCUMENT_PEOPLE, Long.class).setParameter("documentIdentity", documentIdentity).getResultList());
+		return this;
+	}
+
+
+	/**
+	 * Collects the recipes whose ingredients reference the given victual for eviction.
+	 * @param victualIdentity the victual identity
+	 * @return this instance
+	 */
+	public CacheInvalidator addVictualReferrers (final long victualIdentity) {
+		return this.addAll(Recipe.class, this.entityManager.createQuery(QUERY_VICTUAL_RECIPES, Long.class).setParameter("victualIdentity", victualIdentity).getResultList());
+	}
+
+
+	/**
+	 * Collects the ingredients referencing the given victual for eviction. Required before
+	 * victual deletion, as the database cascades it onto said ingredients without the
+	 * persistence context noticing.
+	 * @param victualIdentity the victual identity
+	 * @return this instance
+	 */
+	public CacheInvalidator addVictualIngredients (final long victualIdentity) {
+		return this.addAll(Ingredient.class, this.entityManager.createQuery(QUERY_VICTUAL_INGREDIENTS, Long.class).setParameter("victualIdentity", victualIdentity).getResultList());
+	}
+
+
+	/**
+	 * Collects the meal types referencing the given dish for eviction.
+	 * @param dishIdentity the dish identity
+	 * @return this instance
+	 */
+	public CacheInvalidator addDishReferrers (final long dishIdentity) {
+		return this.addAll(MealType.class, this.entityManager.createQuery(QUERY_DISH_MEAL_TYPES, Long.class).setParameter("dishIdentity", dishIdentity).getResultList());
+	}
+
+
+	/**
+	 * Collects the recipes and victuals authored by the given person for eviction.
+	 * @param personIdentity the person identity
+	 * @return this instance
+	 */
+	public CacheInvalidator addPersonReferrers (final long personIdentity) {
+		this.addAll(Recipe.class, this.entityManager.createQuery(QUERY_PERSON_RECIPES, Long.class).setParameter("personIdentity", personIdentity).getResultList());
+		this.addAll(Victual.class, this.entityManager.createQuery(QUERY_PERSON_VICTUALS, Long.class).setParameter("personIdentity", personIdentity).getResultList());
+		return this;
+	}
+
+
+	/**
+	 * Evicts the collected entities from the second level cache, schedules their eviction on
+	 * all other nodes, and resets this invalidator. Must be called after the mutation has been
+	 * committed.
+	 */
+	public void evict () {
+		final EntityManagerFactory entityManagerFactory = this.entityManager.getEntityManagerFactory();
+		final Cache secondLevelCache = entityManagerFactory.getCache();
+		for (final Map.Entry<Class<? extends AbstractEntity>,Set<Long>> entry : this.evictions.entrySet()) {
+			for (final Long identity : entry.getValue())
+				secondLevelCache.evict(entry.getKey(), identity);
+			Metrics.counter(Metrics.CACHE_EVICTIONS, "entity", entry.getKey().getSimpleName(), "origin", "local").add(entry.getValue().size());
+		}
+
+		CacheCoordinator.get(entityManagerFactory).broadcast(this.evictions);
+		this.evictions.clear();
+	}
+}
@@ -0,0 +1,37 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+
+/**
+ * Instances of this interface transport second level cache invalidation messages
+ * between the nodes sharing a database. Transports are not required to deliver
+ * messages reliably, nor to suppress delivery of a node's own messages to itself.
+ */
+public interface CacheTransport extends AutoCloseable {
+
+	/**
+	 * Opens this transport, and starts delivering received messages to the given receiver.
+	 * @param receiver the message receiver
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	void open (Consumer<byte[]> receiver) throws NullPointerException, IOException;
+
+
+	/**
+	 * Sends the given message to all nodes.
+	 * @param message the message
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	void send (byte[] message) throws NullPointerException, IOException;
+
+
+	/**
+	 * Closes this transport.
+	 * @throws IOException if there is an I/O related problem
+	 */
+	void close () throws IOException;
+}
@@ -0,0 +1,219 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.queries.InMemoryQueryIndirectionPolicy;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.sessions.Session;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import edu.sb.dinner_planner.persistence.AccessPlan;
+import edu.sb.dinner_planner.persistence.Person;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+
+
+/**
+ * Preloads the second level cache of a server session at startup, so the first requests after a
+ * deployment do not all miss the cache. The hot sets to be loaded are selected using system
+ * property {@value #PROPERTY_HOT_SETS}, a comma separated list of {@code admins}, {@code recipes},
+ * {@code victuals}, {@code access-plans} and {@code recipe-index} (default all). Additionally,
+ * if system property {@value #PROPERTY_SNAPSHOT} defines a file path, the identities of the
+ * entities cached at shutdown are written to said file, and reloaded during the next warm-up.
+ * The {@link SessionLifecycleListener} warms up the primary server session right after it has been
+ * logged in, and writes the snapshot right before it is logged out; as the server may also exit
+ * without closing it's entity manager factories, a shutdown hook writes the snapshot as well, whichever
+ * comes first.
+ */
+public class CacheWarmer {
+	static private final Logger LOGGER = Logger.getLogger(CacheWarmer.class.getName());
+	static public final String PROPERTY_HOT_SETS = "dinner_planner.cache.warm-up";
+	static public final String PROPERTY_RECIPE_LIMIT = "dinner_planner.cache.warm-up.recipe-limit";
+	static public final String PROPERTY_SNAPSHOT = "dinner_planner.cache.snapshot";
+	static private final String DEFAULT_HOT_SETS = "admins,recipes,victuals,access-plans,recipe-index";
+	static private final int SNAPSHOT_MAGIC = 0x44505353;
+	static private final int CHUNK_SIZE = 500;
+	static private final Map<Session,Path> SNAPSHOT_PATHS = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private CacheWarmer () {}
+
+
+	/**
+	 * Preloads the configured hot sets and the entities recorded in the snapshot file, if any,
+	 * into the second level cache of the given server session. If a snapshot file is configured,
+	 * also registers a shutdown hook that records the identities of the entities cached at that
+	 * time, unless {@link #snapshot(Session)} did so before. Failures are logged, but never prevent
+	 * startup.
+	 * @param session the server session
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public void warmUp (final Session session) throws NullPointerException {
+		final Set<String> hotSets = Arrays.stream(System.getProperty(PROPERTY_HOT_SETS, DEFAULT_HOT_SETS).split(","))
+			.map(String::trim)
+			.filter(hotSet -> !hotSet.isEmpty())
+			.collect(Collectors.toSet());
+		final String snapshot = System.getProperty(PROPERTY_SNAPSHOT);
+
+		final long timestamp = System.currentTimeMillis();
+		try {
+			int count = 0;
+			if (hotSets.contains("admins")) {
+				final ExpressionBuilder builder = new ExpressionBuilder();
+				count += ((List<?>) session.executeQuery(new ReadAllQuery(Person.class, builder.get("group").equal(Person.Group.ADMIN)))).size();
+			}
+			if (hotSets.contains("recipes")) {
+				final ReadAllQuery query = new ReadAllQuery(Recipe.class);
+				query.addDescendingOrdering("modified");
+				query.setMaxRows(Integer.getInteger(PROPERTY_RECIPE_LIMIT, 1000));
+				count += ((List<?>) session.executeQuery(query)).size();
+			}
+			if (hotSets.contains("victuals"))
+				count += ((List<?>) session.executeQuery(new ReadAllQuery(Victual.class))).size();
+			if (hotSets.contains("access-plans")) {
+				final ReadAllQuery query = new ReadAllQuery(AccessPlan.class);
+				query.addBatchReadAttribute("counters");
+				count += ((List<?>) session.executeQuery(query)).size();
+			}
+			if (snapshot != null)
+				count += restoreSnapshot(session, Paths.get(snapshot));
+			if (hotSets.contains("recipe-index"))
+				RecipeIndex.get(session);
+
+			LOGGER.log(Level.INFO, "cache warm-up loaded {0} entities within {1}ms", new Object[] { count, System.currentTimeMillis() - timestamp });
+		} catch (final RuntimeException e) {
+			LOGGER.log(Level.WARNING, "cache warm-up failed", e);
+		}
+
+		if (snapshot != null) {
+			SNAPSHOT_PATHS.put(session, Paths.get(snapshot));
+			final Thread hook = new Thread(() -> snapshot(session), "cache-snapshot");
+			Runtime.getRuntime().addShutdownHook(hook);
+		}
+	}
+
+
+	/**
+	 * Loads the entities recorded in the given snapshot file, in chunks of limited size.
+	 * Entity types that are no longer known are skipped, as are identities that no longer exist.
+	 * @param session the server session
+	 * @param path the snapshot file path
+	 * @return the number of entities loaded
+	 */
+	static private int restoreSnapshot (final Session session, final Path path) {
+		if (!Files.isReadable(path)) return 0;
+
+		final Map<Class<?>,Set<Long>> snapshot = new HashMap<>();
+		try (DataInputStream stream = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path))))) {
+			if (stream.readInt() != SNAPSHOT_MAGIC) throw new IOException("unknown snapshot format");
+
+			while (true) {
+				final String typeName;
+				try {
+					typeName = stream.readUTF();
+				} catch (final EOFException e) {
+					break;
+				}
+
+				final Set<Long> identities = snapshot.computeIfAbsent(classForName(typeName), key -> new TreeSet<>());
+				for (int count = stream.readInt(); count > 0; --count)
+					identities.add(stream.readLong());
+			}
+		} catch (final IOException e) {
+			LOGGER.log(Level.WARNING, "cache snapshot " + path + " ignored", e);
+			return 0;
+		}
+
+		int count = 0;
+		for (final Map.Entry<Class<?>,Set<Long>> entry : snapshot.entrySet()) {
+			if (entry.getKey() == null) continue;
+
+			final Long[] identities = entry.getValue().toArray(Long[]::new);
+			for (int offset = 0; offset < identities.length; offset += CHUNK_SIZE) {
+				final List<Long> chunk = Arrays.asList(identities).subList(offset, Math.min(identities.length, offset + CHUNK_SIZE));
+				final ExpressionBuilder builder = new ExpressionBuilder();
+				count += ((List<?>) session.executeQuery(new ReadAllQuery(entry.getKey(), builder.get("identity").in(chunk)))).size();
+			}
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Writes the identities of all entities currently held in the second level cache of the
+	 * given server session into the configured snapshot file, unless this already happened or
+	 * no snapshot file is configured. Must be called while the session is still logged in. The
+	 * file is replaced atomically, which prevents a partially written snapshot from being restored.
+	 * @param session the server session
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static public synchronized void snapshot (final Session session) throws NullPointerException {
+		final Path path = SNAPSHOT_PATHS.remove(session);
+		if (path == null || !session.isConnected()) return;
+
+		try {
+			final List<Object> entities = session
+				.getIdentityMapAccessor()
+				.getAllFromIdentityMap((Expression) null, AbstractEntity.class, null, InMemoryQueryIndirectionPolicy.SHOULD_IGNORE_EXCEPTION_RETURN_CONFORMED);
+			final Map<Class<?>,long[]> snapshot = entities.stream()
+				.map(AbstractEntity.class::cast)
+				.collect(Collectors.groupingBy(Object::getClass, Collectors.collectingAndThen(Collectors.toList(), list -> list.stream().mapToLong(AbstractEntity::getIdentity).toArray())));
+
+			final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+			try (DataOutputStream stream = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath))))) {
+				stream.writeInt(SNAPSHOT_MAGIC);
+				for (final Map.Entry<Class<?>,long[]> entry : snapshot.entrySet()) {
+					stream.writeUTF(entry.getKey().getName());
+					stream.writeInt(entry.getValue().length);
+					for (final long identity : entry.getValue())
+						stream.writeLong(identity);
+				}
+			}
+
+			Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "cache snapshot " + path + " not written", e);
+		}
+	}
+
+
+	/**
+	 * Returns the entity type with the given name.
+	 * @param typeName the type name
+	 * @return the entity type, or {@code null} if there is no such entity type
+	 */
+	static private Class<?> classForName (final String typeName) {
+		try {
+			final Class<?> type = Class.forName(typeName, false, AbstractEntity.class.getClassLoader());
+			return AbstractEntity.class.isAssignableFrom(type) ? type : null;
+		} catch (final ClassNotFoundException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.spi.JsonProvider;
+
+
+/**
+ * Decoder for CBOR (RFC 8949) data items, translating them into the JSON-P data model. Byte strings
+ * are translated into arrays of numbers as JSON-B would serialize byte arrays, bignums and decimal
+ * fractions into numbers, undefined into {@code null}, and map keys other than text strings into their
+ * JSON text; any other tags are ignored. Both definite and indefinite lengths are supported, while
+ * nesting is limited to {@value #MAX_DEPTH} levels.
+ */
+public class CborDecoder {
+	static private final int MAX_DEPTH = 64;
+	static private final int BREAK = 0xFF;
+	static private final JsonProvider PROVIDER = JsonProvider.provider();
+	static private final Object BREAK_MARKER = new Object();
+
+	private final DataInputStream stream;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param stream the source stream
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public CborDecoder (final InputStream stream) throws NullPointerException {
+		this.stream = new DataInputStream(stream);
+	}
+
+
+	/**
+	 * Reads the next data item.
+	 * @return the data item
+	 * @throws JsonException if the data item is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public JsonValue read () throws JsonException, IOException {
+		final Object item = this.readItem(0);
+		if (item == BREAK_MARKER) throw new JsonException("unexpected break");
+		return (JsonValue) item;
+	}
+
+
+	/**
+	 * Reads the next data item, or the break marker.
+	 * @param depth the nesting depth
+	 * @return the data item, or {@link #BREAK_MARKER}
+	 * @throws JsonException if the data item is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private Object readItem (final int depth) throws JsonException, IOException {
+		if (depth > MAX_DEPTH) throw new JsonException("nesting too deep");
+
+		final int initialByte = this.stream.read();
+		if (initialByte == -1) throw new EOFException();
+		if (initialByte == BREAK) return BREAK_MARKER;
+
+		final int majorType = initialByte >>> 5, additionalInformation = initialByte & 0x1F;
+		final boolean indefinite = additionalInformation == 31;
+		if (majorType == 7) return this.readSimple(additionalInformation);
+		final long argument = indefinite ? -1 : this.readArgument(additionalInformation);
+
+		switch (majorType) {
+			case 0:
+				return argument >= 0 ? PROVIDER.createValue(argument) : PROVIDER.createValue(new BigInteger(Long.toUnsignedString(argument)));
+			case 1:
+				return argument >= 0 ? PROVIDER.createValue(-1L - argument) : PROVIDER.createValue(new BigInteger(Long.toUnsignedString(argument)).negate().subtract(BigInteger.ONE));
+			case 2: {
+				final JsonArrayBuilder builder = PROVIDER.createArrayBuilder();
+				for (final byte value : this.readString(2, argument))
+					builder.add(value);
+				return builder.build();
+			}
+			case 3:
+				return PROVIDER.createValue(new String(this.readString(3, argument), StandardCharsets.UTF_8));
+			case 4: {
+				final JsonArrayBuilder builder = PROVIDER.createArrayBuilder();
+				for (long index = 0; indefinite || index < argument; ++index) {
+					final Object element = this.readItem(depth + 1);
+					if (element == BREAK_MARKER) {
+						if (!indefinite) throw new JsonException("unexpected break");
+						break;
+					}
+					builder.add((JsonValue) element);
+				}
+				return builder.build();
+			}
+			case 5: {
+				final JsonObjectBuilder builder = PROVIDER.createObjectBuilder();
+				for (long index = 0; indefinite || index < argument; ++index) {
+					final Object key = this.readItem(depth + 1);
+					if (key == BREAK_MARKER) {
+						if (!indefinite) throw new JsonException("unexpected break");
+						break;
+					}
+					final Object value = this.readItem(depth + 1);
+					if (value == BREAK_MARKER) throw new JsonException("unexpected break");
+					builder.add(key instanceof JsonString ? ((JsonString) key).getString() : key.toString(), (JsonValue) value);
+				}
+				return builder.build();
+			}
+			default:
+				return this.readTagged(argument, depth);
+		}
+	}
+
+
+	/**
+	 * Reads the data item following the given tag.
+	 * @param tag the tag
+	 * @param depth the nesting depth
+	 * @return the data item
+	 * @throws JsonException if the data item is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private JsonValue readTagged (final long tag, final int depth) throws JsonException, IOException {
+		final Object item = this.readItem(depth + 1);
+		if (item == BREAK_MARKER) throw new JsonException("unexpected break");
+
+		if (tag == 2 | tag == 3) {
+			final JsonValue[] bytes = ((JsonValue) item).asJsonArray().toArray(JsonValue[]::new);
+			final byte[] magnitude = new byte[bytes.length + 1];
+			for (int index = 0; index < bytes.length; ++index)
+				magnitude[index + 1] = (byte) ((JsonNumber) bytes[index]).intValue();
+			final BigInteger value = new BigInteger(magnitude);
+			return PROVIDER.createValue(tag == 2 ? value : value.negate().subtract(BigInteger.ONE));
+		}
+
+		if (tag == 4) {
+			final JsonValue[] parts = ((JsonValue) item).asJsonArray().toArray(JsonValue[]::new);
+			if (parts.length != 2) throw new JsonException("malformed decimal fraction");
+			final int exponent = ((JsonNumber) parts[0]).intValueExact();
+			return PROVIDER.createValue(new BigDecimal(((JsonNumber) parts[1]).bigIntegerValueExact(), -exponent));
+		}
+
+		return (JsonValue) item;
+	}
+
+
+	/**
+	 * Reads a simple value or float.
+	 * @param additionalInformation the additional information of the initial byte
+	 * @return the value
+	 * @throws JsonException if the data item is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private JsonValue readSimple (final int additionalInformation) throws JsonException, IOException {
+		switch (additionalInformation) {
+			case 20:
+				return JsonValue.FALSE;
+			case 21:
+				return JsonValue.TRUE;
+			case 22: case 23:
+				return JsonValue.NULL;
+			case 25:
+				return PROVIDER.createValue(halfToDouble(this.stream.readUnsignedShort()));
+			case 26:
+				return PROVIDER.createValue((double) Float.intBitsToFloat(this.stream.readInt()));
+			case 27:
+				return PROVIDER.createValue(Double.longBitsToDouble(this.stream.readLong()));
+			default:
+				throw new JsonException("unsupported simple value " + additionalInformation);
+		}
+	}
+
+
+	/**
+	 * Reads the argument following an initial byte.
+	 * @param additionalInformation the additional information of the initial byte
+	 * @return the argument, to be interpreted as unsigned
+	 * @throws JsonException if the additional information is reserved
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private long readArgument (final int additionalInformation) throws JsonException, IOException {
+		if (additionalInformation < 24) return additionalInformation;
+
+		switch (additionalInformation) {
+			case 24:
+				return this.stream.readUnsignedByte();
+			case 25:
+				return this.stream.readUnsignedShort();
+			case 26:
+				return Integer.toUnsignedLong(this.stream.readInt());
+			case 27:
+				return this.stream.readLong();
+			default:
+				throw new JsonException("reserved additional information " + additionalInformation);
+		}
+	}
+
+
+	/**
+	 * Reads the content of a byte or text string, concatenating the chunks of indefinite length strings.
+	 * @param majorType the string's major type
+	 * @param length the string length, or {@code -1} for indefinite
+	 * @return the string content
+	 * @throws JsonException if the string is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private byte[] readString (final int majorType, final long length) throws JsonException, IOException {
+		if (length >= 0) {
+			if (length > Integer.MAX_VALUE - 8) throw new JsonException("string too long");
+			final byte[] content = new byte[(int) length];
+			this.stream.readFully(content);
+			return content;
+		}
+
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		while (true) {
+			final int initialByte = this.stream.read();
+			if (initialByte == -1) throw new EOFException();
+			if (initialByte == BREAK) return content.toByteArray();
+			if (initialByte >>> 5 != majorType || (initialByte & 0x1F) == 31) throw new JsonException("malformed string chunk");
+			content.write(this.readString(majorType, this.readArgument(initialByte & 0x1F)));
+		}
+	}
+
+
+	/**
+	 * Returns the given half precision float as double.
+	 * @param bits the IEEE 754 half precision bits
+	 * @return the value
+	 */
+	static private double halfToDouble (final int bits) {
+		final int exponent = (bits >>> 10) & 0x1F, mantissa = bits & 0x3FF;
+		final double magnitude = exponent == 0
+			? Math.scalb((double) mantissa, -24)
+			: exponent == 31 ? (mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN) : Math.scalb((double) (mantissa | 0x400), exponent - 25);
+		return (bits & 0x8000) == 0 ? magnitude : -magnitude;
+	}
+}
@@ -0,0 +1,445 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
+
+
+/**
+ * JSON-P generator writing CBOR (RFC 8949) instead of JSON text, which allows any code written against
+ * {@link JsonGenerator} to produce the binary encoding of the same data model. Objects and arrays are
+ * written with indefinite length, integers in their shortest form, and decimals as single precision
+ * floats whenever this is lossless. Big decimals are written as decimal fractions (tag 4), and integers
+ * exceeding 64 bits as bignums (tags 2 and 3). The underlying stream is buffered, but neither flushed
+ * nor closed unless requested.
+ */
+public class CborGenerator implements JsonGenerator {
+	static private final int MAJOR_UNSIGNED = 0, MAJOR_NEGATIVE = 1, MAJOR_BYTES = 2, MAJOR_TEXT = 3, MAJOR_ARRAY = 4, MAJOR_TAG = 6;
+	static private final int START_INDEFINITE_ARRAY = 0x9F, START_INDEFINITE_MAP = 0xBF, BREAK = 0xFF;
+	static private final int FALSE = 0xF4, TRUE = 0xF5, NULL = 0xF6, FLOAT32 = 0xFA, FLOAT64 = 0xFB;
+	static private final int TAG_POSITIVE_BIGNUM = 2, TAG_NEGATIVE_BIGNUM = 3, TAG_DECIMAL_FRACTION = 4;
+	static private final int BUFFER_SIZE = 8192;
+
+	private final OutputStream stream;
+	private final byte[] buffer;
+	private int position;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param stream the underlying stream
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public CborGenerator (final OutputStream stream) throws NullPointerException {
+		if (stream == null) throw new NullPointerException();
+
+		this.stream = stream;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.position = 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeStartObject () {
+		this.writeByte(START_INDEFINITE_MAP);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeStartObject (final String name) {
+		return this.writeKey(name).writeStartObject();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeKey (final String name) {
+		return this.write(name);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeStartArray () {
+		this.writeByte(START_INDEFINITE_ARRAY);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeStartArray (final String name) {
+		return this.writeKey(name).writeStartArray();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final JsonValue value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final String value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final BigInteger value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final BigDecimal value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final int value) {
+		return this.writeKey(name).write((long) value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final long value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final double value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String name, final boolean value) {
+		return this.writeKey(name).write(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeNull (final String name) {
+		return this.writeKey(name).writeNull();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeEnd () {
+		this.writeByte(BREAK);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final JsonValue value) {
+		switch (value.getValueType()) {
+			case OBJECT:
+				this.writeStartObject();
+				for (final Map.Entry<String,JsonValue> entry : ((JsonObject) value).entrySet())
+					this.write(entry.getKey(), entry.getValue());
+				return this.writeEnd();
+			case ARRAY:
+				this.writeStartArray();
+				for (final JsonValue element : (JsonArray) value)
+					this.write(element);
+				return this.writeEnd();
+			case STRING:
+				return this.write(((JsonString) value).getString());
+			case NUMBER:
+				final JsonNumber number = (JsonNumber) value;
+				return number.isIntegral() ? this.write(number.bigIntegerValue()) : this.write(number.bigDecimalValue());
+			case TRUE:
+				return this.write(true);
+			case FALSE:
+				return this.write(false);
+			default:
+				return this.writeNull();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final String value) {
+		if (value == null) return this.writeNull();
+
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.writeHead(MAJOR_TEXT, bytes.length);
+		this.writeBytes(bytes);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final BigDecimal value) {
+		if (value == null) return this.writeNull();
+		if (value.scale() <= 0) return this.write(value.toBigIntegerExact());
+
+		this.writeHead(MAJOR_TAG, TAG_DECIMAL_FRACTION);
+		this.writeHead(MAJOR_ARRAY, 2);
+		this.write(-(long) value.scale());
+		return this.write(value.unscaledValue());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final BigInteger value) {
+		if (value == null) return this.writeNull();
+		if (value.bitLength() < 64) return this.write(value.longValue());
+
+		final boolean negative = value.signum() < 0;
+		final byte[] magnitude = (negative ? value.negate().subtract(BigInteger.ONE) : value).toByteArray();
+		final int offset = magnitude[0] == 0 ? 1 : 0;
+		this.writeHead(MAJOR_TAG, negative ? TAG_NEGATIVE_BIGNUM : TAG_POSITIVE_BIGNUM);
+		this.writeHead(MAJOR_BYTES, magnitude.length - offset);
+		for (int index = offset; index < magnitude.length; ++index)
+			this.writeByte(magnitude[index]);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final int value) {
+		return this.write((long) value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final long value) {
+		if (value >= 0)
+			this.writeHead(MAJOR_UNSIGNED, value);
+		else
+			this.writeHead(MAJOR_NEGATIVE, -1L - value);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final double value) {
+		if (Double.isNaN(value) | Double.isInfinite(value)) throw new NumberFormatException();
+
+		if ((float) value == value) {
+			this.writeByte(FLOAT32);
+			final int bits = Float.floatToIntBits((float) value);
+			for (int shift = 24; shift >= 0; shift -= 8)
+				this.writeByte(bits >>> shift);
+		} else {
+			this.writeByte(FLOAT64);
+			final long bits = Double.doubleToLongBits(value);
+			for (int shift = 56; shift >= 0; shift -= 8)
+				this.writeByte((int) (bits >>> shift));
+		}
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator write (final boolean value) {
+		this.writeByte(value ? TRUE : FALSE);
+		return this;
+	}
+
+
+	/**
+	 * Writes the given bytes as byte string, which is decoded into an array of numbers like JSON-B
+	 * serializes byte arrays, see {@link CborDecoder}.
+	 * @param value the bytes, or {@code null} for none
+	 * @return this generator
+	 */
+	public JsonGenerator writeBinary (final byte[] value) {
+		if (value == null) return this.writeNull();
+
+		this.writeHead(MAJOR_BYTES, value.length);
+		this.writeBytes(value);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator writeNull () {
+		this.writeByte(NULL);
+		return this;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush () {
+		try {
+			this.drain();
+			this.stream.flush();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close () {
+		try {
+			this.drain();
+			this.stream.close();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Writes the given data item head, i.e. the major type and argument in it's shortest form.
+	 * @param majorType the major type
+	 * @param argument the argument, interpreted as unsigned
+	 */
+	private void writeHead (final int majorType, final long argument) {
+		final int initialByte = majorType << 5;
+		if (argument >= 0 & argument < 24) {
+			this.writeByte(initialByte | (int) argument);
+		} else if (argument >= 0 & argument <= 0xFFL) {
+			this.writeByte(initialByte | 24);
+			this.writeByte((int) argument);
+		} else if (argument >= 0 & argument <= 0xFFFFL) {
+			this.writeByte(initialByte | 25);
+			this.writeByte((int) (argument >>> 8));
+			this.writeByte((int) argument);
+		} else if (argument >= 0 & argument <= 0xFFFFFFFFL) {
+			this.writeByte(initialByte | 26);
+			for (int shift = 24; shift >= 0; shift -= 8)
+				this.writeByte((int) (argument >>> shift));
+		} else {
+			this.writeByte(initialByte | 27);
+			for (int shift = 56; shift >= 0; shift -= 8)
+				this.writeByte((int) (argument >>> shift));
+		}
+	}
+
+
+	/**
+	 * Writes the given byte.
+	 * @param value the byte value
+	 */
+	private void writeByte (final int value) {
+		if (this.position == this.buffer.length) this.drain();
+		this.buffer[this.position++] = (byte) value;
+	}
+
+
+	/**
+	 * Writes the given bytes.
+	 * @param bytes the bytes
+	 */
+	private void writeBytes (final byte[] bytes) {
+		if (bytes.length > this.buffer.length - this.position) this.drain();
+		if (bytes.length > this.buffer.length) {
+			try {
+				this.stream.write(bytes);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+			this.position += bytes.length;
+		}
+	}
+
+
+	/**
+	 * Writes the buffered bytes to the underlying stream.
+	 */
+	private void drain () {
+		if (this.position == 0) return;
+		try {
+			this.stream.write(this.buffer, 0, this.position);
+			this.position = 0;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
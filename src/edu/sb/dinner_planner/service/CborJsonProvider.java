@@ -0,0 +1,422 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Map;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonBuilderFactory;
+import jakarta.json.JsonException;
+import jakarta.json.JsonMergePatch;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonPatch;
+import jakarta.json.JsonPatchBuilder;
+import jakarta.json.JsonPointer;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonReaderFactory;
+import jakarta.json.JsonString;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonWriter;
+import jakarta.json.JsonWriterFactory;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+
+
+/**
+ * JSON-P provider whose parsers read CBOR instead of JSON text from byte streams, while anything
+ * else is delegated to the default provider. Each CBOR data item is decoded into the JSON-P data
+ * model, see {@link CborDecoder}, and then traversed by a parser of the default provider; a JSON-B
+ * instance created using this provider therefore binds CBOR request entities directly, without
+ * transcoding them into JSON text first, see {@link CborProvider}. Parsers created from character
+ * streams still read JSON text.
+ */
+public class CborJsonProvider extends JsonProvider {
+	private final JsonProvider delegate = JsonProvider.provider();
+
+
+	/**
+	 * JSON-P parser factory decoding CBOR byte streams.
+	 */
+	static private class CborParserFactory implements JsonParserFactory {
+		private final JsonParserFactory delegate;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param delegate the parser factory of the default provider
+		 */
+		public CborParserFactory (final JsonParserFactory delegate) {
+			this.delegate = delegate;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public JsonParser createParser (final Reader reader) {
+			return this.delegate.createParser(reader);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public JsonParser createParser (final InputStream stream) {
+			final JsonValue value;
+			try {
+				value = new CborDecoder(stream).read();
+			} catch (final IOException e) {
+				throw new JsonException(e.getMessage(), e);
+			}
+
+			switch (value.getValueType()) {
+				case OBJECT:
+					return this.delegate.createParser(value.asJsonObject());
+				case ARRAY:
+					return this.delegate.createParser(value.asJsonArray());
+				default:
+					return this.delegate.createParser(new StringReader(value.toString()));
+			}
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public JsonParser createParser (final InputStream stream, final Charset charset) {
+			return this.createParser(stream);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public JsonParser createParser (final JsonObject object) {
+			return this.delegate.createParser(object);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public JsonParser createParser (final JsonArray array) {
+			return this.delegate.createParser(array);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public Map<String,?> getConfigInUse () {
+			return this.delegate.getConfigInUse();
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonParser createParser (final Reader reader) {
+		return this.delegate.createParser(reader);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonParser createParser (final InputStream stream) {
+		return this.createParserFactory(Map.of()).createParser(stream);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonParserFactory createParserFactory (final Map<String,?> config) {
+		return new CborParserFactory(this.delegate.createParserFactory(config));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator createGenerator (final Writer writer) {
+		return this.delegate.createGenerator(writer);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGenerator createGenerator (final OutputStream stream) {
+		return this.delegate.createGenerator(stream);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonGeneratorFactory createGeneratorFactory (final Map<String,?> config) {
+		return this.delegate.createGeneratorFactory(config);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonReader createReader (final Reader reader) {
+		return this.delegate.createReader(reader);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonReader createReader (final InputStream stream) {
+		return this.delegate.createReader(stream);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonWriter createWriter (final Writer writer) {
+		return this.delegate.createWriter(writer);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonWriter createWriter (final OutputStream stream) {
+		return this.delegate.createWriter(stream);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonWriterFactory createWriterFactory (final Map<String,?> config) {
+		return this.delegate.createWriterFactory(config);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonReaderFactory createReaderFactory (final Map<String,?> config) {
+		return this.delegate.createReaderFactory(config);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonObjectBuilder createObjectBuilder () {
+		return this.delegate.createObjectBuilder();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonObjectBuilder createObjectBuilder (final JsonObject object) {
+		return this.delegate.createObjectBuilder(object);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonObjectBuilder createObjectBuilder (final Map<String,?> map) {
+		return this.delegate.createObjectBuilder(map);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonArrayBuilder createArrayBuilder () {
+		return this.delegate.createArrayBuilder();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonArrayBuilder createArrayBuilder (final JsonArray array) {
+		return this.delegate.createArrayBuilder(array);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonArrayBuilder createArrayBuilder (final Collection<?> collection) {
+		return this.delegate.createArrayBuilder(collection);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonBuilderFactory createBuilderFactory (final Map<String,?> config) {
+		return this.delegate.createBuilderFactory(config);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonPointer createPointer (final String pointer) {
+		return this.delegate.createPointer(pointer);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonString createValue (final String value) {
+		return this.delegate.createValue(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonNumber createValue (final int value) {
+		return this.delegate.createValue(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonNumber createValue (final long value) {
+		return this.delegate.createValue(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonNumber createValue (final double value) {
+		return this.delegate.createValue(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonNumber createValue (final BigDecimal value) {
+		return this.delegate.createValue(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonNumber createValue (final BigInteger value) {
+		return this.delegate.createValue(value);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonPatch createPatch (final JsonArray array) {
+		return this.delegate.createPatch(array);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonPatch createDiff (final JsonStructure source, final JsonStructure target) {
+		return this.delegate.createDiff(source, target);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonPatchBuilder createPatchBuilder () {
+		return this.delegate.createPatchBuilder();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonPatchBuilder createPatchBuilder (final JsonArray array) {
+		return this.delegate.createPatchBuilder(array);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonMergePatch createMergePatch (final JsonValue patch) {
+		return this.delegate.createMergePatch(patch);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public JsonMergePatch createMergeDiff (final JsonValue source, final JsonValue target) {
+		return this.delegate.createMergeDiff(source, target);
+	}
+}
@@ -0,0 +1,136 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import jakarta.annotation.Priority;
+import jakarta.json.JsonException;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.ReaderInterceptor;
+import jakarta.ws.rs.ext.ReaderInterceptorContext;
+
+
+/**
+ * JAX-RS filter and message body writer provider adding CBOR ({@value #APPLICATION_CBOR}) as alternative
+ * wire format to every service method that consumes or produces JSON, without requiring any changes to
+ * said methods. Before resource matching, CBOR request entities are declared to be JSON, and are later
+ * bound by a JSON-B instance whose parsers decode CBOR directly, see {@link CborJsonProvider}, instead
+ * of being transcoded into JSON text; likewise, a request preferring CBOR responses is matched as if it
+ * accepted JSON instead.
+ * The JSON response entities of such requests are then written as CBOR using the same field model as
+ * {@link EntityArrayWriter}, see {@link CborGenerator}. JSON and CBOR responses carry a {@code Vary: Accept}
+ * header, allowing caches to distinguish both representations.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.HEADER_DECORATOR)
+@Produces(CborProvider.APPLICATION_CBOR)
+public class CborProvider implements ContainerRequestFilter, ContainerResponseFilter, ReaderInterceptor, MessageBodyWriter<Object> {
+	static public final String APPLICATION_CBOR = "application/cbor";
+	static public final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(APPLICATION_CBOR);
+	static private final String REQUEST_PROPERTY = CborProvider.class.getName();
+	static private final String ENTITY_PROPERTY = CborProvider.class.getName() + ".entity";
+	static private final Jsonb CBOR_JSONB = JsonbBuilder.newBuilder().withProvider(new CborJsonProvider()).build();
+	static private final Pattern CBOR_PATTERN = Pattern.compile(Pattern.quote(APPLICATION_CBOR), Pattern.CASE_INSENSITIVE);
+
+
+	/**
+	 * Marks CBOR request entities for binding by {@link #aroundReadFrom(ReaderInterceptorContext)}, declaring
+	 * them to be JSON for resource matching, and replaces CBOR with JSON within the accepted media types if
+	 * CBOR is the most preferred one.
+	 * @param requestContext the request context
+	 */
+	public void filter (final ContainerRequestContext requestContext) {
+		final MediaType contentType = requestContext.getMediaType();
+		if (contentType != null && contentType.isCompatible(APPLICATION_CBOR_TYPE) && !contentType.isWildcardSubtype() && requestContext.hasEntity()) {
+			requestContext.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+			requestContext.setProperty(ENTITY_PROPERTY, Boolean.TRUE);
+		}
+
+		final List<MediaType> acceptableMediaTypes = requestContext.getAcceptableMediaTypes();
+		final MediaType preferredMediaType = acceptableMediaTypes.isEmpty() ? null : acceptableMediaTypes.get(0);
+		if (preferredMediaType != null && !preferredMediaType.isWildcardSubtype() && preferredMediaType.isCompatible(APPLICATION_CBOR_TYPE)) {
+			final List<String> accept = requestContext.getHeaders().get(HttpHeaders.ACCEPT).stream()
+				.map(value -> CBOR_PATTERN.matcher(value).replaceAll(MediaType.APPLICATION_JSON))
+				.collect(Collectors.toList());
+			requestContext.getHeaders().put(HttpHeaders.ACCEPT, accept);
+			requestContext.setProperty(REQUEST_PROPERTY, Boolean.TRUE);
+		}
+	}
+
+
+	/**
+	 * Switches JSON response entities to CBOR if the associated request prefers the latter.
+	 * @param requestContext the request context
+	 * @param responseContext the response context
+	 */
+	public void filter (final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+		final MediaType mediaType = responseContext.getMediaType();
+		if (!responseContext.hasEntity() || mediaType == null || !mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE) || mediaType.isWildcardSubtype()) return;
+
+		responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		if (requestContext.getProperty(REQUEST_PROPERTY) != null)
+			responseContext.setEntity(responseContext.getEntity(), responseContext.getEntityAnnotations(), APPLICATION_CBOR_TYPE);
+	}
+
+
+	/**
+	 * Binds CBOR request entities to the requested type, decoding them directly into the JSON-P data model
+	 * instead of transcoding them into JSON text; any other request entity is read as usual.
+	 * @param context the reader interceptor context
+	 * @return the request entity
+	 * @throws ClientErrorException (HTTP 400) if the request entity is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	@Override
+	public Object aroundReadFrom (final ReaderInterceptorContext context) throws ClientErrorException, IOException {
+		if (context.getProperty(ENTITY_PROPERTY) == null) return context.proceed();
+
+		try {
+			return CBOR_JSONB.fromJson(context.getInputStream(), context.getGenericType());
+		} catch (final JsonException | JsonbException e) {
+			throw new ClientErrorException(Status.BAD_REQUEST);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isWriteable (final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+		return mediaType != null && mediaType.isCompatible(APPLICATION_CBOR_TYPE) && !mediaType.isWildcardSubtype();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeTo (final Object entity, final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String,Object> httpHeaders, final OutputStream entityStream) throws IOException {
+		// the generator is not closed, as this would close the entity stream
+		final CborGenerator generator = new CborGenerator(entityStream);
+		EntityArrayWriter.writeValue(generator, entity);
+		generator.flush();
+	}
+}
@@ -0,0 +1,258 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.queries.DataReadQuery;
+import org.eclipse.persistence.queries.SQLCall;
+import org.eclipse.persistence.sessions.Session;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+
+/**
+ * Broadcaster pushing change notifications of recipes, ingredients, victuals, dishes and meal types
+ * to server-sent event subscribers, see {@link ChangeService}. The changes are read from the change log
+ * written by {@link ChangeLogListener}, which each node polls every number of milliseconds defined by
+ * system property {@value #PROPERTY_INTERVAL} (default 1000); subscribers are therefore notified of the
+ * changes committed by any node, and only of committed ones. As feed positions become visible in ascending
+ * order, polling past the last position read never skips a change. Each notification is serialized once
+ * regardless of the number of subscribers, and handed to the bounded queue of each subscriber whose filter
+ * matches; each subscriber's queue is drained by a dedicated virtual thread, which prevents slow clients
+ * from delaying any other. Subscribers whose queue overflows are disconnected, and are expected to catch up
+ * using the change feed. Idle subscribers receive a keep-alive comment every {@value #KEEP_ALIVE_SECONDS}
+ * seconds, which also detects closed connections. Started and stopped by the {@link SessionLifecycleListener}.
+ */
+public class ChangeBroadcaster {
+	static private final Logger LOGGER = Logger.getLogger(ChangeBroadcaster.class.getName());
+	static public final String PROPERTY_INTERVAL = "dinner_planner.changes.poll-interval";
+	static public final Set<String> TYPES = Set.of("Recipe", "Ingredient", "Victual", "Dish", "MealType");
+	static private final String EVENT_NAME = "change";
+	static private final int QUEUE_CAPACITY = 256;
+	static private final long KEEP_ALIVE_SECONDS = 30L;
+	static private final int MAX_CHANGES_PER_POLL = 1000;
+	static private final String QUERY_HORIZON = "SELECT coalesce(max(position), 0) FROM dinner_planner.ChangeLog";
+	static private final String QUERY_CHANGES = "SELECT position, entityReference, discriminator, version, operation, authorReference FROM dinner_planner.ChangeLog WHERE position > #horizon ORDER BY position LIMIT " + MAX_CHANGES_PER_POLL;
+	static private final Set<Subscriber> SUBSCRIBERS = ConcurrentHashMap.newKeySet();
+	static private volatile Sse SSE = null;
+	static private volatile Thread POLLER = null;
+
+	static {
+		Metrics.gauge(Metrics.CHANGE_SUBSCRIBERS, () -> SUBSCRIBERS.size());
+	}
+
+
+	/**
+	 * Committed change of an entity.
+	 */
+	static private record Notification (long identity, String discriminator, int version, boolean deleted, Long authorReference) {
+
+		/**
+		 * Returns the JSON representation of this notification, which extends the change feed's
+		 * change representation with the author reference.
+		 * @return the JSON representation
+		 */
+		public String toJson () {
+			final Map<String,Object> properties = new LinkedHashMap<>();
+			properties.put("identity", this.identity);
+			properties.put("discriminator", this.discriminator);
+			properties.put("version", this.version);
+			properties.put("deleted", this.deleted);
+			properties.put("authorReference", this.authorReference);
+
+			final StringWriter writer = new StringWriter();
+			try (JsonGenerator generator = Json.createGenerator(writer)) {
+				EntityArrayWriter.writeValue(generator, properties);
+			}
+			return writer.toString();
+		}
+	}
+
+
+	/**
+	 * Server-sent event subscriber.
+	 */
+	static private class Subscriber implements Runnable {
+		private final SseEventSink sink;
+		private final Sse sse;
+		private final Set<String> types;
+		private final Long authorReference;
+		private final BlockingQueue<OutboundSseEvent> queue;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param sink the event sink
+		 * @param sse the event factory
+		 * @param types the entity types of interest, or empty for all
+		 * @param authorReference the author identity of interest, or {@code null} for all
+		 */
+		public Subscriber (final SseEventSink sink, final Sse sse, final Set<String> types, final Long authorReference) {
+			this.sink = sink;
+			this.sse = sse;
+			this.types = types;
+			this.authorReference = authorReference;
+			this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		}
+
+
+		/**
+		 * Returns whether or not this subscriber is interested in the given notification.
+		 * @param notification the notification
+		 * @return whether or not the notification matches this subscriber's filter
+		 */
+		public boolean matches (final Notification notification) {
+			return (this.types.isEmpty() || this.types.contains(notification.discriminator())) && (this.authorReference == null || this.authorReference.equals(notification.authorReference()));
+		}
+
+
+		/**
+		 * Queues the given event, or disconnects this subscriber if it's queue is full.
+		 * @param event the event
+		 */
+		public void offer (final OutboundSseEvent event) {
+			if (!this.queue.offer(event)) this.close();
+		}
+
+
+		/**
+		 * Sends the queued events until the connection is closed.
+		 */
+		public void run () {
+			try {
+				while (!this.sink.isClosed()) {
+					OutboundSseEvent event = this.queue.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+					if (event == null) event = this.sse.newEventBuilder().comment("keep-alive").build();
+					this.sink.send(event).toCompletableFuture().join();
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (final RuntimeException e) {
+				LOGGER.log(Level.FINE, "change subscriber disconnected", e);
+			} finally {
+				this.close();
+			}
+		}
+
+
+		/**
+		 * Unregisters this subscriber and closes it's connection.
+		 */
+		public void close () {
+			SUBSCRIBERS.remove(this);
+			try {
+				this.sink.close();
+			} catch (final RuntimeException e) {
+				LOGGER.log(Level.FINE, "change subscriber close failed", e);
+			}
+		}
+	}
+
+
+	/**
+	 * Registers the given event sink as subscriber of change notifications.
+	 * @param sink the event sink
+	 * @param sse the event factory
+	 * @param types the entity types of interest, or empty for all
+	 * @param authorReference the author identity of interest, or {@code null} for all
+	 * @throws NullPointerException if any of the given sink, event factory or types is {@code null}
+	 */
+	static public void subscribe (final SseEventSink sink, final Sse sse, final Set<String> types, final Long authorReference) throws NullPointerException {
+		if (sink == null | sse == null | types == null) throw new NullPointerException();
+
+		SSE = sse;
+		final Subscriber subscriber = new Subscriber(sink, sse, Set.copyOf(types), authorReference);
+		SUBSCRIBERS.add(subscriber);
+		Thread.ofVirtual().name("change-subscriber").start(subscriber);
+	}
+
+
+	/**
+	 * Starts polling the change log of the given server session's database, beginning with
+	 * the changes committed after this call.
+	 * @param session the server session
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if polling has already been started
+	 */
+	static synchronized void start (final Session session) throws NullPointerException, IllegalStateException {
+		if (session == null) throw new NullPointerException();
+		if (POLLER != null) throw new IllegalStateException();
+
+		final DataReadQuery query = new DataReadQuery(new SQLCall(QUERY_HORIZON));
+		query.setResultType(DataReadQuery.VALUE);
+		final long horizon = ((Number) session.executeQuery(query)).longValue();
+		final long interval = Long.getLong(PROPERTY_INTERVAL, 1000L);
+
+		final Thread poller = new Thread(() -> {
+			long position = horizon;
+			while (POLLER == Thread.currentThread()) {
+				try {
+					position = poll(session, position);
+					Thread.sleep(interval);
+				} catch (final InterruptedException e) {
+					break;
+				} catch (final Exception e) {
+					LOGGER.log(Level.WARNING, "change log poll failed", e);
+					try {
+						Thread.sleep(interval);
+					} catch (final InterruptedException nested) {
+						break;
+					}
+				}
+			}
+		}, "change-broadcaster");
+		poller.setDaemon(true);
+		POLLER = poller;
+		poller.start();
+	}
+
+
+	/**
+	 * Stops polling the change log.
+	 */
+	static synchronized void stop () {
+		final Thread poller = POLLER;
+		POLLER = null;
+		if (poller != null) poller.interrupt();
+	}
+
+
+	/**
+	 * Publishes the changes logged after the given position to the matching subscribers.
+	 * @param session the server session
+	 * @param horizon the position of the last change published
+	 * @return the position of the last change published
+	 */
+	@SuppressWarnings("unchecked")
+	static private long poll (final Session session, long horizon) {
+		final DataReadQuery query = new DataReadQuery(new SQLCall(QUERY_CHANGES));
+		query.setResultType(DataReadQuery.ARRAY);
+		query.addArgument("horizon");
+		for (final Object[] row : (List<Object[]>) session.executeQuery(query, List.of(horizon))) {
+			horizon = ((Number) row[0]).longValue();
+
+			final String discriminator = (String) row[2];
+			final Sse sse = SSE;
+			if (sse == null || SUBSCRIBERS.isEmpty() || !TYPES.contains(discriminator)) continue;
+
+			final Notification notification = new Notification(((Number) row[1]).longValue(), discriminator, ((Number) row[3]).intValue(), ChangeLogListener.OPERATION_DELETE.equals(row[4]), row[5] == null ? null : ((Number) row[5]).longValue());
+			final OutboundSseEvent event = sse.newEventBuilder().name(EVENT_NAME).mediaType(MediaType.APPLICATION_JSON_TYPE).data(notification.toJson()).build();
+			for (final Subscriber subscriber : SUBSCRIBERS)
+				if (subscriber.matches(notification)) subscriber.offer(event);
+		}
+
+		return horizon;
+	}
+}
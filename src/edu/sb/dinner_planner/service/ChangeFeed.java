@@ -0,0 +1,141 @@
+package edu.sb.dinner_planner.service;
+
+import edu.sb.tool.FieldPropertyStrategy;
+import jakarta.json.bind.annotation.JsonbProperty;
+import jakarta.json.bind.annotation.JsonbVisibility;
+
+
+/**
+ * JSON-B transfer type representing a page of the change feed, i.e. the latest change of each entity
+ * changed after a given token, in commit order. Clients pass the page's token with their next request,
+ * and may continue immediately unless the page is complete.
+ */
+@JsonbVisibility(FieldPropertyStrategy.class)
+public class ChangeFeed extends Object {
+
+	@JsonbProperty
+	private final long token;
+
+	@JsonbProperty
+	private final boolean complete;
+
+	@JsonbProperty
+	private final Change[] changes;
+
+
+	/**
+	 * JSON-B transfer type representing the change of an entity, either an upsert or a tombstone.
+	 */
+	@JsonbVisibility(FieldPropertyStrategy.class)
+	static public class Change extends Object {
+
+		@JsonbProperty
+		private final long identity;
+
+		@JsonbProperty
+		private final String discriminator;
+
+		@JsonbProperty
+		private final int version;
+
+		@JsonbProperty
+		private final boolean deleted;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param identity the entity identity
+		 * @param discriminator the entity discriminator
+		 * @param version the entity version
+		 * @param deleted whether or not the entity has been deleted
+		 * @throws NullPointerException if the given discriminator is {@code null}
+		 */
+		public Change (final long identity, final String discriminator, final int version, final boolean deleted) throws NullPointerException {
+			if (discriminator == null) throw new NullPointerException();
+
+			this.identity = identity;
+			this.discriminator = discriminator;
+			this.version = version;
+			this.deleted = deleted;
+		}
+
+
+		/**
+		 * Returns the entity identity.
+		 * @return the identity
+		 */
+		public long getIdentity () {
+			return this.identity;
+		}
+
+
+		/**
+		 * Returns the entity discriminator.
+		 * @return the discriminator
+		 */
+		public String getDiscriminator () {
+			return this.discriminator;
+		}
+
+
+		/**
+		 * Returns the entity version after the change.
+		 * @return the version
+		 */
+		public int getVersion () {
+			return this.version;
+		}
+
+
+		/**
+		 * Returns whether or not the entity has been deleted.
+		 * @return {@code true} for tombstones, {@code false} for upserts
+		 */
+		public boolean isDeleted () {
+			return this.deleted;
+		}
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param token the token to be passed with the next request
+	 * @param complete whether or not all changes currently available have been returned
+	 * @param changes the changes, in commit order
+	 * @throws NullPointerException if the given changes are {@code null}
+	 */
+	public ChangeFeed (final long token, final boolean complete, final Change[] changes) throws NullPointerException {
+		if (changes == null) throw new NullPointerException();
+
+		this.token = token;
+		this.complete = complete;
+		this.changes = changes;
+	}
+
+
+	/**
+	 * Returns the token to be passed with the next request.
+	 * @return the token
+	 */
+	public long getToken () {
+		return this.token;
+	}
+
+
+	/**
+	 * Returns whether or not all changes currently available have been returned.
+	 * @return {@code true} if the client is up to date, {@code false} otherwise
+	 */
+	public boolean isComplete () {
+		return this.complete;
+	}
+
+
+	/**
+	 * Returns the changes.
+	 * @return the changes, in commit order
+	 */
+	public Change[] getChanges () {
+		return this.changes;
+	}
+}
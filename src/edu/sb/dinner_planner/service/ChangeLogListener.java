@@ -0,0 +1,245 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.queries.DataModifyQuery;
+import org.eclipse.persistence.queries.DataReadQuery;
+import org.eclipse.persistence.queries.ReportQuery;
+import org.eclipse.persistence.queries.SQLCall;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+
+
+/**
+ * EclipseLink descriptor event listener appending a row to the change log for every entity inserted,
+ * updated or deleted. The rows are collected while a transaction writes it's entity changes, and are
+ * written by {@link #write(Session)} just before said transaction commits, using the same connection;
+ * the change log therefore never contains changes that have been rolled back. Each row consists of a
+ * feed position, the entity's identity, discriminator and version, the operation ({@value #OPERATION_UPSERT}
+ * for upserts, {@value #OPERATION_DELETE} for tombstones), a timestamp, and the identity of the entity's author
+ * if it has one. The authors are resolved using report queries instead of navigating the entities' relationships,
+ * those of upserts once per transaction and entity type just before writing, and those of tombstones before
+ * their rows are deleted. The feed positions are reserved
+ * from the counter row of table {@code ChangePosition}, whose row lock is held until the commit completes;
+ * committing writers are therefore serialized for the duration of their commit, and positions become
+ * visible in ascending order, which allows {@link ChangeService} to hand out positions as tokens without
+ * ever skipping a late commit. The {@link ChangeBroadcaster} of each node polls the change log in order to push
+ * the committed changes to it's subscribers. Registered for each concrete entity type using persistence unit properties
+ * {@code eclipselink.descriptor.customizer.<entity-name>}; the {@link SessionLifecycleListener} calls
+ * {@link #write(Session)} and {@link #discard()} at the transaction boundaries. Note that neither JPQL bulk
+ * statements nor the cascades of the database's foreign key constraints raise descriptor events; the former
+ * must therefore not be used to modify entities, and entities affected by the latter must be logged explicitly
+ * using {@link #appendCascaded(EntityManager, Class, Collection, boolean)}.
+ */
+public class ChangeLogListener extends DescriptorEventAdapter implements DescriptorCustomizer {
+	static public final String OPERATION_UPSERT = "U";
+	static public final String OPERATION_DELETE = "D";
+	static private final String SQL_RESERVE_POSITIONS = "UPDATE dinner_planner.ChangePosition SET position = LAST_INSERT_ID(position + #count) WHERE name = 'ChangeLog'";
+	static private final String SQL_RESERVED_POSITION = "SELECT LAST_INSERT_ID()";
+	static private final String SQL_INSERT = "INSERT INTO dinner_planner.ChangeLog (position, entityReference, discriminator, version, operation, changed, authorReference) VALUES ";
+	static private final String QUERY_VERSIONS = "select e.identity, e.version from AbstractEntity as e where e.identity in :identities";
+	static private final Map<String,List<String>> AUTHOR_PATHS = Map.of(
+		"Recipe", List.of("author"),
+		"Ingredient", List.of("recipe", "author"),
+		"Victual", List.of("author"),
+		"Dish", List.of("author"),
+		"MealType", List.of("author")
+	);
+	static private final ThreadLocal<List<Change>> PENDING = ThreadLocal.withInitial(ArrayList::new);
+
+
+	/**
+	 * Change of an entity, pending until it's transaction commits; the author reference of
+	 * upserts is resolved when writing.
+	 */
+	static private record Change (long identity, String discriminator, int version, boolean deleted, long changed, Long authorReference) {}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void customize (final ClassDescriptor descriptor) {
+		descriptor.getEventManager().addListener(this);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void postInsert (final DescriptorEvent event) {
+		append(event, false);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void postUpdate (final DescriptorEvent event) {
+		append(event, false);
+	}
+
+
+	/**
+	 * {@inheritDoc} Raised before the entity's rows are deleted, which still allows resolving it's author.
+	 */
+	@Override
+	public void preDelete (final DescriptorEvent event) {
+		append(event, true);
+	}
+
+
+	/**
+	 * Collects a change log row for the entity of the given event, within the transaction
+	 * writing said entity.
+	 * @param event the descriptor event
+	 * @param deleted whether or not the entity is deleted
+	 */
+	static private void append (final DescriptorEvent event, final boolean deleted) {
+		if (!(event.getObject() instanceof AbstractEntity)) return;
+		final AbstractEntity entity = (AbstractEntity) event.getObject();
+		final String discriminator = event.getDescriptor().getAlias();
+		final Long authorReference = deleted ? authors(event.getSession(), discriminator, Set.of(entity.getIdentity())).get(entity.getIdentity()) : null;
+
+		PENDING.get().add(new Change(entity.getIdentity(), discriminator, entity.getVersion(), deleted, System.currentTimeMillis(), authorReference));
+	}
+
+
+	/**
+	 * Collects change log rows for the given entities, which the database is about to modify or delete
+	 * by cascading another entity's deletion through it's foreign key constraints, without raising any
+	 * descriptor events. Must be called within the transaction performing said deletion, before it is
+	 * flushed; the entities' versions are those currently stored, as the database does not increment
+	 * them when cascading.
+	 * @param entityManager the entity manager
+	 * @param type the entity type
+	 * @param identities the entity identities
+	 * @param deleted whether or not the entities are deleted, or just have their references cleared
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static public void appendCascaded (final EntityManager entityManager, final Class<? extends AbstractEntity> type, final Collection<Long> identities, final boolean deleted) throws NullPointerException {
+		if (entityManager == null | type == null) throw new NullPointerException();
+		if (identities.isEmpty()) return;
+
+		final Session session = entityManager.unwrap(Session.class);
+		final String discriminator = session.getDescriptor(type).getAlias();
+		final Map<Long,Long> authorReferences = deleted ? authors(session, discriminator, identities) : Map.of();
+		final long changed = System.currentTimeMillis();
+		final List<Object[]> rows = entityManager
+			.createQuery(QUERY_VERSIONS, Object[].class)
+			.setFlushMode(FlushModeType.COMMIT)
+			.setParameter("identities", identities)
+			.getResultList();
+
+		for (final Object[] row : rows) {
+			final long identity = ((Number) row[0]).longValue();
+			PENDING.get().add(new Change(identity, discriminator, ((Number) row[1]).intValue(), deleted, changed, authorReferences.get(identity)));
+		}
+	}
+
+
+	/**
+	 * Returns the author identities of the given entities, as currently visible to the given
+	 * session; entities whose type has no author, and those without author, are omitted.
+	 * @param session the session, or it's unit of work
+	 * @param discriminator the entity type's discriminator
+	 * @param identities the entity identities
+	 * @return the author identities, mapped by entity identity
+	 */
+	@SuppressWarnings("unchecked")
+	static private Map<Long,Long> authors (final Session session, final String discriminator, final Collection<Long> identities) {
+		final List<String> path = AUTHOR_PATHS.get(discriminator);
+		if (path == null || identities.isEmpty()) return Map.of();
+
+		// query through the parent session, as a unit of work may be committing
+		final Session parent = session.isUnitOfWork() ? ((UnitOfWork) session).getParent() : session;
+		final ReportQuery query = new ReportQuery(parent.getDescriptorForAlias(discriminator).getJavaClass(), new ExpressionBuilder());
+		Expression author = query.getExpressionBuilder();
+		for (final String attribute : path)
+			author = author.getAllowingNull(attribute);
+		query.addAttribute("identity");
+		query.addAttribute("authorReference", author.get("identity"));
+		query.setSelectionCriteria(query.getExpressionBuilder().get("identity").in(identities));
+		query.setReturnType(ReportQuery.ShouldReturnArray);
+
+		final Map<Long,Long> authorReferences = new HashMap<>();
+		for (final Object[] row : (List<Object[]>) parent.executeQuery(query))
+			if (row[1] != null) authorReferences.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+		return authorReferences;
+	}
+
+
+	/**
+	 * Writes the change log rows collected by the current thread, using the given client session
+	 * whose transaction is about to commit. Reserves one feed position per row from the counter
+	 * row, which stays locked until the transaction completes.
+	 * @param session the client session
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static void write (final Session session) throws NullPointerException {
+		if (session == null) throw new NullPointerException();
+		final List<Change> changes = PENDING.get();
+		PENDING.remove();
+		if (changes.isEmpty()) return;
+
+		final DataModifyQuery reservation = new DataModifyQuery(new SQLCall(SQL_RESERVE_POSITIONS));
+		reservation.setIsBatchExecutionSupported(false);
+		reservation.addArgument("count");
+		session.executeQuery(reservation, List.of(changes.size()));
+
+		final DataReadQuery reservedPosition = new DataReadQuery(new SQLCall(SQL_RESERVED_POSITION));
+		reservedPosition.setResultType(DataReadQuery.VALUE);
+		long position = ((Number) session.executeQuery(reservedPosition)).longValue() - changes.size();
+
+		// resolve the authors of upserts once per entity type, as their rows may have changed within the transaction
+		final Map<Long,Long> authorReferences = new HashMap<>();
+		final Map<String,Set<Long>> upserts = changes.stream()
+			.filter(change -> !change.deleted())
+			.collect(Collectors.groupingBy(Change::discriminator, Collectors.mapping(Change::identity, Collectors.toSet())));
+		upserts.forEach((discriminator, identities) -> authorReferences.putAll(authors(session, discriminator, identities)));
+
+		// one multi-row statement per transaction, instead of one round trip per change
+		final StringBuilder sql = new StringBuilder(SQL_INSERT);
+		final List<Object> arguments = new ArrayList<>();
+		final DataModifyQuery insertion = new DataModifyQuery();
+		for (int index = 0; index < changes.size(); ++index) {
+			final Change change = changes.get(index);
+			if (index > 0) sql.append(", ");
+			sql.append(String.format("(#position%1$d, #entityReference%1$d, #discriminator%1$d, #version%1$d, #operation%1$d, #changed%1$d, #authorReference%1$d)", index));
+
+			for (final String name : new String[] { "position", "entityReference", "discriminator", "version", "operation", "changed", "authorReference" })
+				insertion.addArgument(name + index);
+			arguments.addAll(List.of(++position, change.identity(), change.discriminator(), change.version(), change.deleted() ? OPERATION_DELETE : OPERATION_UPSERT, change.changed()));
+			arguments.add(change.deleted() ? change.authorReference() : authorReferences.get(change.identity()));
+		}
+
+		insertion.setCall(new SQLCall(sql.toString()));
+		insertion.setIsBatchExecutionSupported(false);
+		session.executeQuery(insertion, arguments);
+	}
+
+
+	/**
+	 * Discards the change log rows collected by the current thread, whose transaction has
+	 * been rolled back.
+	 */
+	static void discard () {
+		PENDING.remove();
+	}
+}
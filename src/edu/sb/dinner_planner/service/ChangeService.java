@@ -0,0 +1,114 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+
+/**
+ * JAX-RS based service class for the change feed, which allows clients to synchronize their copies
+ * of entities incrementally, see {@link ChangeLogListener}. The change log's feed positions are
+ * assigned in commit order, and a change becomes visible no earlier than every change of a lower
+ * position; clients may therefore use the position of the last change received as token, without
+ * risking to skip changes of transactions that commit late, and without depending on the clocks of
+ * the nodes involved. The change log may be pruned by timestamp; clients whose token predates the
+ * oldest remaining change are told to resynchronize completely. Clients may additionally subscribe
+ * to committed changes as server-sent events, see {@link ChangeBroadcaster}, and use the change feed
+ * to catch up after reconnecting.
+ */
+@Path("changes")
+public class ChangeService {
+	static private final int MAX_PAGING_LIMIT = 5000;
+	static private final int DEFAULT_PAGING_LIMIT = 500;
+	static private final String QUERY_CHANGES = "SELECT position, entityReference, discriminator, version, operation FROM dinner_planner.ChangeLog WHERE position > ?1 ORDER BY position LIMIT ?2";
+	static private final String QUERY_MIN_POSITION = "SELECT min(position) FROM dinner_planner.ChangeLog";
+
+	@PersistenceContext(unitName="local_database")
+	private EntityManager entityManager;
+
+
+	/**
+	 * HTTP Signature: GET changes IN: - OUT: application/json. Returns the latest change of each
+	 * entity changed after the given token, in commit order.
+	 * @param since the token returned by the previous request, or {@code null} to start from the beginning
+	 * @param pagingLimit the maximum number of change log rows to be read, or {@code null} for undefined
+	 * @return the change feed page
+	 * @throws ClientErrorException (HTTP 410) if the changes following the given token have been pruned
+	 */
+	@GET
+	@Consumes
+	@Produces(MediaType.APPLICATION_JSON)
+	public ChangeFeed queryChanges (
+		@QueryParam("since") @PositiveOrZero final Long since,
+		@QueryParam("paging-limit") @Positive final Integer pagingLimit
+	) throws ClientErrorException {
+		final long token = since == null ? 0L : since;
+		final int limit = pagingLimit == null ? DEFAULT_PAGING_LIMIT : Math.min(pagingLimit, MAX_PAGING_LIMIT);
+
+		if (token > 0) {
+			final Number minPosition = (Number) this.entityManager.createNativeQuery(QUERY_MIN_POSITION).getSingleResult();
+			if (minPosition != null && token < minPosition.longValue() - 1) throw new ClientErrorException(Status.GONE);
+		}
+
+		@SuppressWarnings("unchecked")
+		final List<Object[]> rows = this.entityManager
+			.createNativeQuery(QUERY_CHANGES)
+			.setParameter(1, token)
+			.setParameter(2, limit)
+			.getResultList();
+
+		// collapse multiple changes of the same entity into it's latest one, which keeps commit order
+		final Map<Long,ChangeFeed.Change> changes = new LinkedHashMap<>();
+		long nextToken = token;
+		for (final Object[] row : rows) {
+			final long identity = ((Number) row[1]).longValue();
+			changes.remove(identity);
+			changes.put(identity, new ChangeFeed.Change(identity, (String) row[2], ((Number) row[3]).intValue(), ChangeLogListener.OPERATION_DELETE.equals(row[4])));
+			nextToken = ((Number) row[0]).longValue();
+		}
+
+		return new ChangeFeed(nextToken, rows.size() < limit, changes.values().toArray(ChangeFeed.Change[]::new));
+	}
+
+
+	/**
+	 * HTTP Signature: GET changes IN: - OUT: text/event-stream. Subscribes the client to the changes
+	 * of recipes, ingredients, victuals, dishes and meal types committed by any node, each pushed as
+	 * an event named {@code change}.
+	 * @param sink the event sink
+	 * @param sse the event factory
+	 * @param types the entity discriminators of interest, or empty for all
+	 * @param authorReference the author identity of interest, or {@code null} for all
+	 * @throws ClientErrorException (HTTP 400) if any of the given types is not pushed
+	 */
+	@GET
+	@Consumes
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	public void streamChanges (
+		@Context final SseEventSink sink,
+		@Context final Sse sse,
+		@QueryParam("type") @NotNull final Set<String> types,
+		@QueryParam("author-reference") @Positive final Long authorReference
+	) throws ClientErrorException {
+		if (!ChangeBroadcaster.TYPES.containsAll(types)) throw new ClientErrorException(Status.BAD_REQUEST);
+
+		ChangeBroadcaster.subscribe(sink, sse, types, authorReference);
+	}
+}
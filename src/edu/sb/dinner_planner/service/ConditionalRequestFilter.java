@@ -0,0 +1,114 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Date;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.RedirectionException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response.ResponseBuilder;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.ext.Provider;
+
+
+/**
+ * JAX-RS filter provider adding HTTP validators to GET and HEAD responses, and answering conditional
+ * requests with {@code 304 Not Modified} before the response entity is serialized. Single entity responses
+ * carry a strong {@code ETag} derived from the entity's identity and version, which is suffixed with the
+ * media subtype for representations other than JSON, and a {@code Last-Modified} header derived from it's
+ * modification timestamp. List endpoints opt into weak validators using {@link #evaluate(Long, long)},
+ * which allows them to answer polls without querying their result. The response filter runs after
+ * {@link CborProvider}'s, as the representation must be known for strong validators.
+ */
+@Provider
+@Priority(Priorities.HEADER_DECORATOR - 100)
+public class ConditionalRequestFilter implements ContainerRequestFilter, ContainerResponseFilter {
+	static private final String REQUEST_PROPERTY = ConditionalRequestFilter.class.getName();
+	static private final ThreadLocal<ContainerRequestContext> CURRENT = new ThreadLocal<>();
+
+
+	/**
+	 * Validators of a response.
+	 */
+	static private record Validators (EntityTag entityTag, Date lastModified) {}
+
+
+	/**
+	 * Evaluates the preconditions of the GET or HEAD request being processed by the current thread using
+	 * a weak entity tag derived from the given aggregates of a list endpoint's filter, and the given last
+	 * modification timestamp. Said validators are added to the response unless the request is answered
+	 * with {@code 304 Not Modified}.
+	 * @param maxModified the maximum modification timestamp of the entities matching the filter,
+	 *        or {@code null} for none
+	 * @param count the number of entities matching the filter
+	 * @throws RedirectionException (HTTP 304) if the client's representation is still current
+	 */
+	static public void evaluate (final Long maxModified, final long count) throws RedirectionException {
+		final ContainerRequestContext requestContext = CURRENT.get();
+		if (requestContext == null) return;
+
+		final long lastModified = maxModified == null ? 0L : maxModified;
+		final Validators validators = new Validators(new EntityTag(lastModified + "-" + count, true), new Date(lastModified));
+		final ResponseBuilder builder = requestContext.getRequest().evaluatePreconditions(validators.lastModified(), validators.entityTag());
+		if (builder != null) throw new RedirectionException(builder.lastModified(validators.lastModified()).build());
+
+		requestContext.setProperty(REQUEST_PROPERTY, validators);
+	}
+
+
+	/**
+	 * Associates GET and HEAD requests with the current thread.
+	 * @param requestContext the request context
+	 */
+	public void filter (final ContainerRequestContext requestContext) {
+		CURRENT.remove();
+		if (isSafe(requestContext)) CURRENT.set(requestContext);
+	}
+
+
+	/**
+	 * Adds the validators of the given response, and replaces it with {@code 304 Not Modified}
+	 * if the client's representation of the response entity is still current.
+	 * @param requestContext the request context
+	 * @param responseContext the response context
+	 */
+	public void filter (final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+		CURRENT.remove();
+		if (!isSafe(requestContext) || responseContext.getStatus() != Status.OK.getStatusCode()) return;
+
+		Validators validators = (Validators) requestContext.getProperty(REQUEST_PROPERTY);
+		if (validators == null && responseContext.getEntity() instanceof AbstractEntity) {
+			final AbstractEntity entity = (AbstractEntity) responseContext.getEntity();
+			final MediaType mediaType = responseContext.getMediaType();
+			final String suffix = mediaType == null || mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE) ? "" : "-" + mediaType.getSubtype();
+			validators = new Validators(new EntityTag(entity.getIdentity() + "-" + entity.getVersion() + suffix), new Date(entity.getModified()));
+
+			if (requestContext.getRequest().evaluatePreconditions(validators.lastModified(), validators.entityTag()) != null) {
+				responseContext.setStatus(Status.NOT_MODIFIED.getStatusCode());
+				responseContext.setEntity(null);
+			}
+		}
+
+		if (validators != null) {
+			responseContext.getHeaders().putSingle(HttpHeaders.ETAG, validators.entityTag());
+			responseContext.getHeaders().putSingle(HttpHeaders.LAST_MODIFIED, validators.lastModified());
+		}
+	}
+
+
+	/**
+	 * Returns whether or not the given request is a GET or HEAD request.
+	 * @param requestContext the request context
+	 * @return whether or not the request is safe to be answered conditionally
+	 */
+	static private boolean isSafe (final ContainerRequestContext requestContext) {
+		return HttpMethod.GET.equals(requestContext.getMethod()) | HttpMethod.HEAD.equals(requestContext.getMethod());
+	}
+}
@@ -0,0 +1,174 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.queries.DataModifyQuery;
+import org.eclipse.persistence.queries.DataReadQuery;
+import org.eclipse.persistence.queries.SQLCall;
+import org.eclipse.persistence.sessions.Session;
+
+
+/**
+ * Cache transport delivering messages through table {@code CacheMessage} of the shared database,
+ * which each node polls every number of milliseconds defined by system property {@value #PROPERTY_INTERVAL}
+ * (default 1000). Unlike datagrams, messages are neither lost nor reordered, which makes this transport
+ * suitable both on it's own, and as resynchronizing fallback of a faster but unreliable one. As sequence
+ * numbers are assigned at insert time, a message may become visible after one with a higher sequence number;
+ * the poller therefore keeps re-reading past any such gap for up to {@value #GAP_TIMEOUT_MILLIS} milliseconds.
+ * Messages are deleted once they are older than {@value #RETENTION_MILLIS} milliseconds. The table is created
+ * by the schema migrations, see {@link SchemaMigrator}.
+ */
+public class DatabaseCacheTransport implements CacheTransport {
+	static private final Logger LOGGER = Logger.getLogger(DatabaseCacheTransport.class.getName());
+	static public final String PROPERTY_INTERVAL = "dinner_planner.cache.poll-interval";
+	static private final long GAP_TIMEOUT_MILLIS = 10_000L;
+	static private final long RETENTION_MILLIS = 600_000L;
+	static private final int MAX_MESSAGES_PER_POLL = 1000;
+	static private final String QUERY_HORIZON = "SELECT coalesce(max(sequenceNumber), 0) FROM dinner_planner.CacheMessage";
+	static private final String QUERY_MESSAGES = "SELECT sequenceNumber, message FROM dinner_planner.CacheMessage WHERE sequenceNumber > #horizon ORDER BY sequenceNumber LIMIT " + MAX_MESSAGES_PER_POLL;
+	static private final String INSERT_MESSAGE = "INSERT INTO dinner_planner.CacheMessage (created, message) VALUES (#created, #message)";
+	static private final String DELETE_MESSAGES = "DELETE FROM dinner_planner.CacheMessage WHERE created < #created";
+
+	private final Session session;
+	private final long interval;
+	private final TreeSet<Long> delivered;
+	private long horizon;
+	private long gapTimestamp;
+	private long pruneTimestamp;
+	private volatile Thread poller;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param session the server session of the shared database
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public DatabaseCacheTransport (final Session session) throws NullPointerException {
+		if (session == null) throw new NullPointerException();
+
+		this.session = session;
+		this.interval = Long.getLong(PROPERTY_INTERVAL, 1000L);
+		this.delivered = new TreeSet<>();
+		this.poller = null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void open (final Consumer<byte[]> receiver) throws NullPointerException, IOException {
+		if (receiver == null) throw new NullPointerException();
+		if (this.poller != null) throw new IllegalStateException();
+
+		try {
+			final DataReadQuery query = new DataReadQuery(new SQLCall(QUERY_HORIZON));
+			query.setResultType(DataReadQuery.VALUE);
+			this.horizon = ((Number) this.session.executeQuery(query)).longValue();
+		} catch (final RuntimeException e) {
+			throw new IOException(e);
+		}
+
+		final Thread poller = new Thread(() -> {
+			while (this.poller == Thread.currentThread()) {
+				try {
+					this.poll(receiver);
+					Thread.sleep(this.interval);
+				} catch (final InterruptedException e) {
+					break;
+				} catch (final Exception e) {
+					LOGGER.log(Level.WARNING, "cache invalidation poll failed", e);
+					try {
+						Thread.sleep(this.interval);
+					} catch (final InterruptedException nested) {
+						break;
+					}
+				}
+			}
+		}, "cache-transport-database");
+		poller.setDaemon(true);
+		this.poller = poller;
+		poller.start();
+	}
+
+
+	/**
+	 * Delivers the messages inserted since the last poll, advances the horizon below which all
+	 * messages have been delivered, and occasionally deletes expired messages.
+	 * @param receiver the message receiver
+	 * @throws SQLException if there is a database related problem
+	 */
+	@SuppressWarnings("unchecked")
+	private void poll (final Consumer<byte[]> receiver) throws SQLException {
+		final DataReadQuery query = new DataReadQuery(new SQLCall(QUERY_MESSAGES));
+		query.setResultType(DataReadQuery.ARRAY);
+		query.addArgument("horizon");
+		for (final Object[] row : (List<Object[]>) this.session.executeQuery(query, List.of(this.horizon))) {
+			final long sequenceNumber = ((Number) row[0]).longValue();
+			if (!this.delivered.add(sequenceNumber)) continue;
+
+			final byte[] message = row[1] instanceof Blob ? ((Blob) row[1]).getBytes(1L, (int) ((Blob) row[1]).length()) : (byte[]) row[1];
+			receiver.accept(message);
+		}
+
+		final long now = System.currentTimeMillis();
+		while (!this.delivered.isEmpty()) {
+			if (this.delivered.first() == this.horizon + 1) {
+				this.horizon = this.delivered.pollFirst();
+				this.gapTimestamp = 0L;
+			} else if (this.gapTimestamp == 0L) {
+				this.gapTimestamp = now;
+				break;
+			} else if (now - this.gapTimestamp > GAP_TIMEOUT_MILLIS) {
+				this.horizon = this.delivered.first() - 1;
+				this.gapTimestamp = 0L;
+			} else {
+				break;
+			}
+		}
+
+		if (now - this.pruneTimestamp > RETENTION_MILLIS / 10) {
+			final DataModifyQuery delete = new DataModifyQuery(new SQLCall(DELETE_MESSAGES));
+			delete.addArgument("created");
+			this.session.executeQuery(delete, List.of(now - RETENTION_MILLIS));
+			this.pruneTimestamp = now;
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void send (final byte[] message) throws NullPointerException, IOException {
+		if (message == null) throw new NullPointerException();
+		if (this.poller == null) throw new IllegalStateException();
+
+		final DataModifyQuery query = new DataModifyQuery(new SQLCall(INSERT_MESSAGE));
+		query.setIsBatchExecutionSupported(false);
+		query.addArgument("created");
+		query.addArgument("message");
+		try {
+			this.session.executeQuery(query, List.of(System.currentTimeMillis(), message));
+		} catch (final RuntimeException e) {
+			throw new IOException(e);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close () {
+		final Thread poller = this.poller;
+		this.poller = null;
+		if (poller != null) poller.interrupt();
+	}
+}
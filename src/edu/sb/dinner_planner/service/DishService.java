@@ -1,14 +1,16 @@
 package edu.sb.dinner_planner.service;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 
 import edu.sb.dinner_planner.persistence.Dish;
+import edu.sb.dinner_planner.persistence.MealType;
 import edu.sb.dinner_planner.persistence.Person;
-import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -35,15 +37,19 @@ public class DishService {
 
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 
-	static private final String QUERY_DISHES = """
-		select d.identity from Dish as d
-		where (:minCreated is null or d.created >= :minCreated)
+	static private final String DISH_CRITERIA = """
+		(:minCreated is null or d.created >= :minCreated)
 		  and (:maxCreated is null or d.created <= :maxCreated)
 		  and (:minModified is null or d.modified >= :minModified)
 		  and (:maxModified is null or d.modified <= :maxModified)
 		  and (:dishType is null or d.dishType like concat('%', :dishType, '%'))
-		order by d.dishType asc
 	""";
+	static private final String DISH_ORDERING = "d.dishType asc, d.identity asc";
+	static private final String QUERY_DISHES = "select d.identity from Dish as d where " + DISH_CRITERIA + " order by " + DISH_ORDERING;
+	static private final FieldProjection DISH_FIELDS = new FieldProjection("Dish", "d")
+		.property("dishType", "dishType")
+		.attribute("dish-type", "d.dishType", null)
+		.attribute("author-reference", "author.identity", "left join d.author as author");
 
 	@PersistenceContext(unitName = "local_database")
 	private EntityManager entityManager;
@@ -54,26 +60,34 @@ public class DishService {
 	@GET
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Dish[] queryDishes(
+	public Object[] queryDishes(
 		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
 		@QueryParam("paging-limit")  @Positive final Integer pagingLimit,
 		@QueryParam("min-created")   final Long minCreated,
 		@QueryParam("max-created")   final Long maxCreated,
 		@QueryParam("min-modified")  final Long minModified,
 		@QueryParam("max-modified")  final Long maxModified,
-		@QueryParam("dish-type")     final String dishType
+		@QueryParam("dish-type")     final String dishType,
+		@QueryParam("fields")        @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = DISH_FIELDS.parse(fields);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(DISH_FIELDS.query(fieldNames, DISH_CRITERIA, DISH_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit  != null) query.setMaxResults(pagingLimit);
+
+			bindDishCriteria(query, minCreated, maxCreated, minModified, maxModified, dishType);
+			return Metrics.timed("QUERY_DISH_FIELDS", query::getResultStream)
+				.map(row -> DISH_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
 		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_DISHES, Long.class);
 		if (pagingOffset != null) query.setFirstResult(pagingOffset);
 		if (pagingLimit  != null) query.setMaxResults(pagingLimit);
 
-		return query
-			.setParameter("minCreated",  minCreated)
-			.setParameter("maxCreated",  maxCreated)
-			.setParameter("minModified", minModified)
-			.setParameter("maxModified", maxModified)
-			.setParameter("dishType",    dishType)
-			.getResultStream()
+		bindDishCriteria(query, minCreated, maxCreated, minModified, maxModified, dishType);
+		return Metrics.timed("QUERY_DISHES", query::getResultStream)
 			.map(id -> this.entityManager.find(Dish.class, id))
 			.filter(Objects::nonNull)
 			.toArray(Dish[]::new);
@@ -84,13 +98,45 @@ public class DishService {
 	@Path("{id}")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Dish findDish(@PathParam("id") @Positive final long dishIdentity) {
+	public Object findDish(
+		@PathParam("id") @Positive final long dishIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
+	) {
+		final String[] fieldNames = DISH_FIELDS.parse(fields);
+		if (fieldNames != null) {
+			final List<Tuple> rows = Metrics.timed("QUERY_DISH_FIELDS", this.entityManager.createQuery(DISH_FIELDS.query(fieldNames, "d.identity = :dishIdentity", null), Tuple.class)
+				.setParameter("dishIdentity", dishIdentity)::getResultList);
+			if (rows.isEmpty()) throw new ClientErrorException(Status.NOT_FOUND);
+			return DISH_FIELDS.map(fieldNames, rows.get(0));
+		}
+
 		final Dish dish = this.entityManager.find(Dish.class, dishIdentity);
 		if (dish == null) throw new ClientErrorException(Status.NOT_FOUND);
 		return dish;
 	}
 
 
+	/**
+	 * Sets the parameters of the given dish criteria query.
+	 * @param <T> the query result type
+	 * @param query the query
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param dishType the dish type fragment, or {@code null} for undefined
+	 * @return the given query
+	 */
+	static private <T> TypedQuery<T> bindDishCriteria (final TypedQuery<T> query, final Long minCreated, final Long maxCreated, final Long minModified, final Long maxModified, final String dishType) {
+		return query
+			.setParameter("minCreated",  minCreated)
+			.setParameter("maxCreated",  maxCreated)
+			.setParameter("minModified", minModified)
+			.setParameter("maxModified", maxModified)
+			.setParameter("dishType",    dishType);
+	}
+
+
 	/* ----------------------- CREATE / UPDATE ----------------------- */
 
 	@POST
@@ -120,15 +166,19 @@ public class DishService {
 			entity.setModified(System.currentTimeMillis());
 			entity.setDishType(template.getDishType());
 
-			if (insertMode)
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
+			if (insertMode) {
 				this.entityManager.persist(entity);
-			else
+			} else {
+				cacheInvalidator.add(Dish.class, entity.getIdentity()).addDishReferrers(entity.getIdentity());
 				this.entityManager.flush();
+			}
 
 			this.entityManager.getTransaction().commit();
 
-			final Cache cache = this.entityManager.getEntityManagerFactory().getCache();
-			cache.evict(Dish.class);
+			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets;
+			// the local cache merges the updated dish on commit, but those of all other nodes don't
+			cacheInvalidator.evict();
 
 			return entity.getIdentity();
 
@@ -158,11 +208,13 @@ public class DishService {
 			final Dish entity = this.entityManager.find(Dish.class, dishIdentity);
 			if (entity == null) throw new ClientErrorException(Status.NOT_FOUND);
 
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager).addDishReferrers(dishIdentity);
+			ChangeLogListener.appendCascaded(this.entityManager, MealType.class, cacheInvalidator.identities(MealType.class), false);
 			this.entityManager.remove(entity);
 			this.entityManager.getTransaction().commit();
 
-			final Cache cache = this.entityManager.getEntityManagerFactory().getCache();
-			cache.evict(Dish.class);
+			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
+			cacheInvalidator.evict();
 
 			return dishIdentity;
 
@@ -1,14 +1,16 @@
 package edu.sb.dinner_planner.service;
 
+import java.util.List;
 import java.util.Objects;
 import edu.sb.dinner_planner.persistence.Document;
 import edu.sb.dinner_planner.persistence.Person;
 import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
 import edu.sb.tool.ContentTypes;
 import edu.sb.tool.Copyright;
-import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -39,8 +41,7 @@ import jakarta.ws.rs.core.Response.Status;
 public class DocumentService {
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 	static private final String HEADER_DESCRIPTION = "X-Content-Description";
-	static private final String QUERY_DOCUMENTS = "select d.identity from Document as d where "
-		+ "(:minCreated is null or d.created >= :minCreated) and "
+	static public final String DOCUMENT_CRITERIA = "(:minCreated is null or d.created >= :minCreated) and "
 		+ "(:maxCreated is null or d.created <= :maxCreated) and "
 		+ "(:minModified is null or d.modified >= :minModified) and "
 		+ "(:maxModified is null or d.modified <= :maxModified) and "
@@ -49,11 +50,21 @@ public class DocumentService {
 		+ "(:descriptionFragment is null or d.description like concat('%', :descriptionFragment, '%')) and "
 		+ "(:minSize is null or length(d.content) >= :minSize) and "
 		+ "(:maxSize is null or length(d.content) <= :maxSize)";
+	static public final String DOCUMENT_ORDERING = "d.identity";
+	static private final String QUERY_DOCUMENTS = "select d.identity from Document as d where " + DOCUMENT_CRITERIA + " order by " + DOCUMENT_ORDERING;
+	static public final FieldProjection DOCUMENT_FIELDS = new FieldProjection("Document", "d")
+		.property("hash", "hash")
+		.property("type", "type")
+		.property("description", "description")
+		.attribute("size", "length(d.content)", null);
 	static private final String QUERY_DOCUMENT_BY_HASH = "select d from Document as d where d.hash = :hash";
 
 	@PersistenceContext(unitName="local_database")
 	private EntityManager entityManager;
 
+	@PersistenceContext(unitName=ReadWriteRouter.REPLICA_UNIT)
+	private EntityManager replicaEntityManager;
+
 
 	/**
 	 * HTTP Signature: GET documents IN: - OUT: application/json
@@ -68,12 +79,13 @@ public class DocumentService {
 	 * @param descriptionFragment the description fragment, or {@code null} for undefined
 	 * @param minSize the minimum size, or {@code null} for undefined
 	 * @param maxSize the maximum size, or {@code null} for undefined
-	 * @return the matching documents, sorted by ID
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching documents, or their requested fields, sorted by ID
 	 */
 	@GET
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Document[] queryDocuments (
+	public Object[] queryDocuments (
 		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
 		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
 		@QueryParam("min-created") final Long minCreated,
@@ -84,13 +96,52 @@ public class DocumentService {
 		@QueryParam("type-fragment") @Size(min=1) final String typeFragment,
 		@QueryParam("description-fragment") @Size(min=1) final String descriptionFragment,
 		@QueryParam("min-size") @PositiveOrZero final Integer minSize,
-		@QueryParam("max-size") @PositiveOrZero final Integer maxSize
+		@QueryParam("max-size") @PositiveOrZero final Integer maxSize,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = DOCUMENT_FIELDS.parse(fields);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(DOCUMENT_FIELDS.query(fieldNames, DOCUMENT_CRITERIA, DOCUMENT_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			bindDocumentCriteria(query, minCreated, maxCreated, minModified, maxModified, hash, typeFragment, descriptionFragment, minSize, maxSize);
+			return Metrics.timed("QUERY_DOCUMENT_FIELDS", query::getResultStream)
+				.map(row -> DOCUMENT_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
 		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_DOCUMENTS, Long.class);
 		if (pagingOffset != null) query.setFirstResult(pagingOffset);
 		if (pagingLimit != null) query.setMaxResults(pagingLimit);
 
-		final Document[] documents = query
+		bindDocumentCriteria(query, minCreated, maxCreated, minModified, maxModified, hash, typeFragment, descriptionFragment, minSize, maxSize);
+		final Document[] documents = Metrics.timed("QUERY_DOCUMENTS", query::getResultStream)
+			.map(identity -> this.entityManager.find(Document.class, identity))
+			.filter(Objects::nonNull)
+			.toArray(Document[]::new);
+
+		return documents;
+	}
+
+
+	/**
+	 * Sets the parameters of the given document criteria query.
+	 * @param <T> the query result type
+	 * @param query the query
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param hash the hash, or {@code null} for undefined
+	 * @param typeFragment the type fragment, or {@code null} for undefined
+	 * @param descriptionFragment the description fragment, or {@code null} for undefined
+	 * @param minSize the minimum size, or {@code null} for undefined
+	 * @param maxSize the maximum size, or {@code null} for undefined
+	 * @return the given query
+	 */
+	static private <T> TypedQuery<T> bindDocumentCriteria (final TypedQuery<T> query, final Long minCreated, final Long maxCreated, final Long minModified, final Long maxModified, final String hash, final String typeFragment, final String descriptionFragment, final Integer minSize, final Integer maxSize) {
+		return query
 			.setParameter("minCreated", minCreated)
 			.setParameter("maxCreated", maxCreated)
 			.setParameter("minModified", minModified)
@@ -99,14 +150,7 @@ public class DocumentService {
 			.setParameter("typeFragment", typeFragment)
 			.setParameter("descriptionFragment", descriptionFragment)
 			.setParameter("minSize", minSize)
-			.setParameter("maxSize", maxSize)
-			.getResultStream()
-			.map(identity -> this.entityManager.find(Document.class, identity))
-			.filter(Objects::nonNull)
-			.sorted()
-			.toArray(Document[]::new);
-
-		return documents;
+			.setParameter("maxSize", maxSize);
 	}
 
 
@@ -152,8 +196,9 @@ public class DocumentService {
 	 * HTTP Signature: GET documents/{id} IN: - OUT: * / *
 	 * @param documentIdentity the document identity
 	 * @param acceptableTypes the acceptable types
-	 * @return the matching document's metadata for acceptable type
-	 * 			"application/json", otherwise the matching document's content 
+	 * @param fields the JSON properties and attributes of the metadata to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching document's requested metadata fields if there are any, it's metadata for
+	 * 			acceptable type "application/json", otherwise the matching document's content 
 	 */
 	@GET
 	@Path("{id}")
@@ -161,9 +206,22 @@ public class DocumentService {
 	@Produces(MediaType.WILDCARD)
 	public Response findDocument (
 		@PathParam("id") @Positive final long documentIdentity,
-		@HeaderParam(HttpHeaders.ACCEPT) String acceptableTypes
+		@HeaderParam(HttpHeaders.ACCEPT) String acceptableTypes,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
-		final Document document = this.entityManager.find(Document.class, documentIdentity);
+		final String[] fieldNames = DOCUMENT_FIELDS.parse(fields);
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		if (fieldNames != null) {
+			// requested fields imply the metadata, which is projected without loading the document's content
+			final String queryText = DOCUMENT_FIELDS.query(fieldNames, "d.identity = :documentIdentity", null);
+			List<Tuple> rows = Metrics.timed("QUERY_DOCUMENT_FIELDS", entityManager.createQuery(queryText, Tuple.class).setParameter("documentIdentity", documentIdentity)::getResultList);
+			if (rows.isEmpty() & entityManager != this.entityManager) rows = Metrics.timed("QUERY_DOCUMENT_FIELDS", this.entityManager.createQuery(queryText, Tuple.class).setParameter("documentIdentity", documentIdentity)::getResultList);
+			if (rows.isEmpty()) throw new ClientErrorException(Status.NOT_FOUND);
+			return Response.ok(DOCUMENT_FIELDS.map(fieldNames, rows.get(0)), MediaType.APPLICATION_JSON).build();
+		}
+
+		Document document = entityManager.find(Document.class, documentIdentity);
+		if (document == null & entityManager != this.entityManager) document = this.entityManager.find(Document.class, documentIdentity);
 		if (document == null) throw new ClientErrorException(Status.NOT_FOUND);
 		if (acceptableTypes == null) acceptableTypes = MediaType.WILDCARD;
 
@@ -221,7 +279,7 @@ public class DocumentService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			// final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
+			// final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			// not applicable for document inserts/updates
 
 			return document.getIdentity();
@@ -254,9 +312,18 @@ public class DocumentService {
 			final Document document = this.entityManager.find(Document.class, documentIdentity);
 			if (document == null) throw new ClientErrorException(Status.NOT_FOUND);
 			if (requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager).addDocumentReferrers(document.getIdentity());
+			ChangeLogListener.appendCascaded(this.entityManager, Recipe.class, cacheInvalidator.identities(Recipe.class), false);
+			ChangeLogListener.appendCascaded(this.entityManager, Victual.class, cacheInvalidator.identities(Victual.class), false);
+			ChangeLogListener.appendCascaded(this.entityManager, Person.class, cacheInvalidator.identities(Person.class), false);
 
 			try {
 				this.entityManager.remove(document);
+				this.entityManager.flush();
+
+				// maintain the counters of recipes whose illustration associations have been cascade deleted
+				RecipeService.recountRecipes(this.entityManager, cacheInvalidator.identities(Recipe.class));
+				this.entityManager.flush();
 
 				this.entityManager.getTransaction().commit();
 			} catch (final RuntimeException e) {
@@ -264,8 +331,7 @@ public class DocumentService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			secondLevelCache.evict(Recipe.class);
+			cacheInvalidator.evict();
 
 			return document.getIdentity();
 		} finally {
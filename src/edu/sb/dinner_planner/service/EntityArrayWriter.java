@@ -0,0 +1,303 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import jakarta.json.Json;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.annotation.JsonbProperty;
+import jakarta.json.bind.annotation.JsonbTransient;
+import jakarta.json.bind.annotation.JsonbTypeSerializer;
+import jakarta.json.bind.annotation.JsonbVisibility;
+import jakarta.json.bind.serializer.JsonbSerializer;
+import jakarta.json.bind.serializer.SerializationContext;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+
+/**
+ * JAX-RS message body writer provider serializing entity arrays as JSON, replacing JSON-B's reflective
+ * serialization for the list endpoints. The JSON properties of each class are resolved once into method
+ * handle based getters, following the same rules as JSON-B with {@link edu.sb.tool.FieldPropertyStrategy}:
+ * all non-static, non-transient fields except those annotated with {@link JsonbTransient} are properties,
+ * named by their {@link JsonbProperty} annotation if any; superclass properties precede subclass properties,
+ * each ordered lexicographically, {@code null} values are omitted, and {@link JsonbTypeSerializer} annotated
+ * fields are written by their serializers. Maps are streamed using {@link Map#forEach(java.util.function.BiConsumer)},
+ * which allows an entity's derived attributes to be written without building a map first. Float values are written using their shortest decimal representation
+ * instead of being widened to double, primitive arrays are written without boxing their elements, and byte
+ * arrays become byte strings when writing CBOR; values of any other type that is neither an entity nor
+ * annotated with {@link JsonbVisibility} are written as JSON-B serializes them. The array elements are written using a JSON-P generator, which
+ * flushes every {@value #FLUSH_INTERVAL} elements instead of building the whole document first; as the
+ * services still build their entity arrays before returning them, this bounds the writer's buffering,
+ * but does not advance the response's first byte.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class EntityArrayWriter implements MessageBodyWriter<AbstractEntity[]> {
+	static private final int FLUSH_INTERVAL = 64;
+	static private final String WOVEN_FIELD_PREFIX = "_persistence_";
+	static private final SerializationContext CONTEXT = new GeneratorContext();
+	static private final Jsonb JSONB = JsonbBuilder.create();
+	static private final ClassValue<Property[]> PROPERTIES = new ClassValue<>() {
+		protected Property[] computeValue (final Class<?> type) {
+			return properties(type);
+		}
+	};
+
+
+	/**
+	 * Property kinds, determining how property values are read and written.
+	 */
+	static private enum Kind { INTEGRAL, DECIMAL, FLOAT, BOOLEAN, OBJECT, SERIALIZED }
+
+
+	/**
+	 * Precompiled JSON property.
+	 */
+	static private record Property (String name, Kind kind, MethodHandle getter, JsonbSerializer<Object> serializer) {}
+
+
+	/**
+	 * JSON-B serialization context for custom serializers invoked by this writer.
+	 */
+	static private class GeneratorContext implements SerializationContext {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public <T> void serialize (final String key, final T object, final JsonGenerator generator) {
+			generator.writeKey(key);
+			writeValue(generator, object);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public <T> void serialize (final T object, final JsonGenerator generator) {
+			writeValue(generator, object);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isWriteable (final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType) {
+		return type.isArray() && AbstractEntity.class.isAssignableFrom(type.getComponentType());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeTo (final AbstractEntity[] entities, final Class<?> type, final Type genericType, final Annotation[] annotations, final MediaType mediaType, final MultivaluedMap<String,Object> httpHeaders, final OutputStream entityStream) throws IOException {
+		// the generator is not closed, as this would close the entity stream
+		final JsonGenerator generator = Json.createGenerator(entityStream);
+		generator.writeStartArray();
+		for (int index = 0; index < entities.length; ++index) {
+			writeValue(generator, entities[index]);
+			if (index % FLUSH_INTERVAL == 0) generator.flush();
+		}
+		generator.writeEnd();
+		generator.flush();
+	}
+
+
+	/**
+	 * Writes the given value, which may be an entity, an embeddable, or a value type
+	 * or collection thereof.
+	 * @param generator the JSON generator
+	 * @param value the value, or {@code null} for none
+	 */
+	static void writeValue (final JsonGenerator generator, final Object value) {
+		if (value == null) {
+			generator.writeNull();
+		} else if (value instanceof String) {
+			generator.write((String) value);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			generator.write(((Number) value).longValue());
+		} else if (value instanceof Float) {
+			generator.write(new BigDecimal(Float.toString((Float) value)));
+		} else if (value instanceof Double) {
+			generator.write(((Double) value).doubleValue());
+		} else if (value instanceof BigDecimal) {
+			generator.write((BigDecimal) value);
+		} else if (value instanceof BigInteger) {
+			generator.write((BigInteger) value);
+		} else if (value instanceof Boolean) {
+			generator.write((Boolean) value);
+		} else if (value instanceof Character || value instanceof Enum) {
+			generator.write(value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+		} else if (value instanceof Collection) {
+			generator.writeStartArray();
+			for (final Object element : (Collection<?>) value)
+				writeValue(generator, element);
+			generator.writeEnd();
+		} else if (value instanceof byte[] && generator instanceof CborGenerator) {
+			((CborGenerator) generator).writeBinary((byte[]) value);
+		} else if (value.getClass().isArray()) {
+			writeArray(generator, value);
+		} else if (value instanceof Map) {
+			generator.writeStartObject();
+			((Map<?,?>) value).forEach((key, element) -> {
+				generator.writeKey(String.valueOf(key));
+				writeValue(generator, element);
+			});
+			generator.writeEnd();
+		} else if (value instanceof AbstractEntity || value.getClass().isAnnotationPresent(JsonbVisibility.class)) {
+			writeObject(generator, value);
+		} else {
+			// any other type is written like JSON-B serializes it, for example temporal values
+			generator.write(Json.createReader(new StringReader(JSONB.toJson(value))).readValue());
+		}
+	}
+
+
+	/**
+	 * Writes the given array, reading primitive component types without boxing.
+	 * @param generator the JSON generator
+	 * @param array the array
+	 */
+	static private void writeArray (final JsonGenerator generator, final Object array) {
+		generator.writeStartArray();
+		if (array instanceof long[])
+			for (final long element : (long[]) array) generator.write(element);
+		else if (array instanceof int[])
+			for (final int element : (int[]) array) generator.write(element);
+		else if (array instanceof short[])
+			for (final short element : (short[]) array) generator.write(element);
+		else if (array instanceof byte[])
+			for (final byte element : (byte[]) array) generator.write(element);
+		else if (array instanceof double[])
+			for (final double element : (double[]) array) generator.write(element);
+		else if (array instanceof float[])
+			for (final float element : (float[]) array) generator.write(new BigDecimal(Float.toString(element)));
+		else if (array instanceof boolean[])
+			for (final boolean element : (boolean[]) array) generator.write(element);
+		else if (array instanceof char[])
+			for (final char element : (char[]) array) generator.write(String.valueOf(element));
+		else
+			for (final Object element : (Object[]) array) writeValue(generator, element);
+		generator.writeEnd();
+	}
+
+
+	/**
+	 * Writes the given object's JSON properties.
+	 * @param generator the JSON generator
+	 * @param object the object
+	 */
+	static private void writeObject (final JsonGenerator generator, final Object object) {
+		generator.writeStartObject();
+		try {
+			for (final Property property : PROPERTIES.get(object.getClass())) {
+				switch (property.kind()) {
+					case INTEGRAL:
+						generator.write(property.name(), (long) property.getter().invokeExact(object));
+						break;
+					case DECIMAL:
+						generator.write(property.name(), (double) property.getter().invokeExact(object));
+						break;
+					case FLOAT:
+						generator.write(property.name(), new BigDecimal(Float.toString((float) property.getter().invokeExact(object))));
+						break;
+					case BOOLEAN:
+						generator.write(property.name(), (boolean) property.getter().invokeExact(object));
+						break;
+					default:
+						final Object value = (Object) property.getter().invokeExact(object);
+						if (value == null) break;
+
+						generator.writeKey(property.name());
+						if (property.kind() == Kind.SERIALIZED)
+							property.serializer().serialize(value, generator, CONTEXT);
+						else
+							writeValue(generator, value);
+				}
+			}
+		} catch (final RuntimeException | Error e) {
+			throw e;
+		} catch (final Throwable e) {
+			throw new IllegalStateException(e);
+		}
+		generator.writeEnd();
+	}
+
+
+	/**
+	 * Resolves the JSON properties of the given type.
+	 * @param type the type
+	 * @return the properties, superclass properties first
+	 * @throws IllegalStateException if a property getter or serializer cannot be created
+	 */
+	@SuppressWarnings("unchecked")
+	static private Property[] properties (final Class<?> type) throws IllegalStateException {
+		final List<Property> properties = new ArrayList<>();
+		if (type.getSuperclass() != null && type.getSuperclass() != Object.class)
+			properties.addAll(List.of(PROPERTIES.get(type.getSuperclass())));
+
+		final List<Property> declaredProperties = new ArrayList<>();
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			for (final Field field : type.getDeclaredFields()) {
+				final int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) | Modifier.isTransient(modifiers) | field.isSynthetic()) continue;
+				if (field.getName().startsWith(WOVEN_FIELD_PREFIX) || field.isAnnotationPresent(JsonbTransient.class)) continue;
+
+				final JsonbProperty propertyAnnotation = field.getAnnotation(JsonbProperty.class);
+				final String name = propertyAnnotation == null || propertyAnnotation.value().isEmpty() ? field.getName() : propertyAnnotation.value();
+
+				final MethodHandle getter = lookup.unreflectGetter(field);
+				final Class<?> fieldType = field.getType();
+
+				final Property property;
+				if (field.isAnnotationPresent(JsonbTypeSerializer.class)) {
+					final JsonbSerializer<Object> serializer = (JsonbSerializer<Object>) field.getAnnotation(JsonbTypeSerializer.class).value().getConstructor().newInstance();
+					property = new Property(name, Kind.SERIALIZED, getter.asType(MethodType.methodType(Object.class, Object.class)), serializer);
+				} else if (fieldType == long.class | fieldType == int.class | fieldType == short.class | fieldType == byte.class) {
+					property = new Property(name, Kind.INTEGRAL, getter.asType(MethodType.methodType(long.class, Object.class)), null);
+				} else if (fieldType == double.class) {
+					property = new Property(name, Kind.DECIMAL, getter.asType(MethodType.methodType(double.class, Object.class)), null);
+				} else if (fieldType == float.class) {
+					property = new Property(name, Kind.FLOAT, getter.asType(MethodType.methodType(float.class, Object.class)), null);
+				} else if (fieldType == boolean.class) {
+					property = new Property(name, Kind.BOOLEAN, getter.asType(MethodType.methodType(boolean.class, Object.class)), null);
+				} else {
+					property = new Property(name, Kind.OBJECT, getter.asType(MethodType.methodType(Object.class, Object.class)), null);
+				}
+				declaredProperties.add(property);
+			}
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+
+		declaredProperties.sort(Comparator.comparing(Property::name));
+		properties.addAll(declaredProperties);
+		return properties.toArray(Property[]::new);
+	}
+}
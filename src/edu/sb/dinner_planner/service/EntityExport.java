@@ -0,0 +1,136 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.function.Function;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.config.ResultSetConcurrency;
+import org.eclipse.persistence.config.ResultSetType;
+import org.eclipse.persistence.queries.ScrollableCursor;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import jakarta.ws.rs.core.StreamingOutput;
+
+
+/**
+ * Streaming export of query results as newline delimited JSON ({@value #APPLICATION_NDJSON}), one entity
+ * per line, for jobs that need to retrieve large result sets completely. The query is executed once the
+ * response is written, using a dedicated entity manager and a forward-only, read-only JDBC cursor that
+ * fetches the number of rows defined by system property {@value #PROPERTY_FETCH_SIZE} (default 500) per
+ * round trip. The entities read bypass the second level cache, and the persistence context is cleared every
+ * number of rows defined by system property {@value #PROPERTY_CLEAR_INTERVAL} (default 1000), which keeps
+ * memory consumption flat regardless of the result size. The entities are serialized like JSON arrays of
+ * entities, see {@link EntityArrayWriter}. Export methods share path and verb with the JSON queries, and
+ * therefore produce {@value #APPLICATION_NDJSON_EXPORT}: the lower source quality ensures that clients
+ * accepting any media type, or both, keep receiving JSON arrays.
+ * @param <T> the entity type
+ */
+public class EntityExport<T> implements StreamingOutput {
+	static public final String APPLICATION_NDJSON = "application/x-ndjson";
+	static public final String APPLICATION_NDJSON_EXPORT = APPLICATION_NDJSON + ";qs=0.5";
+	static public final String PROPERTY_FETCH_SIZE = "dinner_planner.export.fetch-size";
+	static public final String PROPERTY_CLEAR_INTERVAL = "dinner_planner.export.clear-interval";
+	static private final int FETCH_SIZE = Integer.getInteger(PROPERTY_FETCH_SIZE, 500);
+	static private final int CLEAR_INTERVAL = Integer.getInteger(PROPERTY_CLEAR_INTERVAL, 1000);
+	static private final JsonGeneratorFactory GENERATOR_FACTORY = Json.createGeneratorFactory(Map.of());
+
+	private final EntityManagerFactory entityManagerFactory;
+	private final String queryName;
+	private final Function<EntityManager,TypedQuery<T>> queryFactory;
+
+
+	/**
+	 * Output stream that flushes instead of closing the underlying stream, allowing
+	 * one JSON generator to be used per line.
+	 */
+	static private class LineStream extends FilterOutputStream {
+
+		/**
+		 * Initializes a new instance.
+		 * @param stream the underlying stream
+		 */
+		public LineStream (final OutputStream stream) {
+			super(stream);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write (final byte[] buffer, final int offset, final int length) throws IOException {
+			this.out.write(buffer, offset, length);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close () throws IOException {
+			this.flush();
+		}
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param entityManagerFactory the factory of the entity manager used for the export
+	 * @param queryName the query name used to record the query's execution time, see {@link Metrics#timed(String, java.util.function.Supplier)}
+	 * @param queryFactory the factory creating the export query with all parameters set
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public EntityExport (final EntityManagerFactory entityManagerFactory, final String queryName, final Function<EntityManager,TypedQuery<T>> queryFactory) throws NullPointerException {
+		if (entityManagerFactory == null | queryName == null | queryFactory == null) throw new NullPointerException();
+
+		this.entityManagerFactory = entityManagerFactory;
+		this.queryName = queryName;
+		this.queryFactory = queryFactory;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write (final OutputStream output) throws IOException {
+		final LineStream stream = new LineStream(output);
+		final EntityManager entityManager = this.entityManagerFactory.createEntityManager();
+		try {
+			final ScrollableCursor cursor = (ScrollableCursor) Metrics.timed(this.queryName, this.queryFactory.apply(entityManager)
+				.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE)
+				.setHint(QueryHints.RESULT_SET_TYPE, ResultSetType.ForwardOnly)
+				.setHint(QueryHints.RESULT_SET_CONCURRENCY, ResultSetConcurrency.ReadOnly)
+				.setHint(QueryHints.JDBC_FETCH_SIZE, FETCH_SIZE)
+				.setHint("jakarta.persistence.cache.storeMode", CacheStoreMode.BYPASS)::getSingleResult);
+
+			try {
+				for (int count = 1; cursor.hasNext(); ++count) {
+					try (JsonGenerator generator = GENERATOR_FACTORY.createGenerator(stream)) {
+						EntityArrayWriter.writeValue(generator, cursor.next());
+					}
+					stream.write('\n');
+
+					if (count % CLEAR_INTERVAL == 0) {
+						entityManager.clear();
+						output.flush();
+					}
+				}
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			entityManager.close();
+		}
+
+		output.flush();
+	}
+}
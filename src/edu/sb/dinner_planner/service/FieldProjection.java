@@ -0,0 +1,163 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import jakarta.persistence.Tuple;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.Response.Status;
+
+
+/**
+ * Sparse fieldset support for list and find endpoints, translating the JSON property names requested
+ * by clients into JPQL tuple projections of an entity type. Neither the database nor the serializer
+ * touch the columns of unrequested properties, and the joins required by some derived attributes are
+ * only added to a query if said attributes are requested. The projected rows are returned as maps that
+ * serialize like the entities themselves, i.e. with derived attributes nested within {@code attributes},
+ * and with {@code identity} always present. Collection and entity valued properties, such as a person's
+ * phones or an ingredient's victual, cannot be projected, and requesting them is rejected like any other
+ * unknown field name. List endpoints order their projected rows and their entities by the same JPQL
+ * ordering, ending with the entity identity as tiebreak, so that paging yields the same rows either way.
+ */
+public class FieldProjection {
+	static private final String IDENTITY = "identity";
+	static private final String ATTRIBUTES = "attributes";
+
+	private final String entityName;
+	private final String alias;
+	private final Map<String,Field> fields;
+
+
+	/**
+	 * Projectable field.
+	 */
+	static private record Field (String expression, String join, boolean attribute) {}
+
+
+	/**
+	 * Initializes a new instance, with the properties and discriminator attribute common to all entities
+	 * already defined.
+	 * @param entityName the JPQL entity name
+	 * @param alias the JPQL identification variable
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public FieldProjection (final String entityName, final String alias) throws NullPointerException {
+		if (entityName == null | alias == null) throw new NullPointerException();
+
+		this.entityName = entityName;
+		this.alias = alias;
+		this.fields = new LinkedHashMap<>();
+		this.property(IDENTITY, IDENTITY).property("version", "version").property("created", "created").property("modified", "modified");
+		this.fields.put("discriminator", new Field(null, null, true));
+	}
+
+
+	/**
+	 * Defines a projectable property.
+	 * @param name the JSON property name
+	 * @param path the JPQL path relative to the identification variable
+	 * @return this instance
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public final FieldProjection property (final String name, final String path) throws NullPointerException {
+		if (name == null | path == null) throw new NullPointerException();
+
+		this.fields.put(name, new Field(this.alias + "." + path, null, false));
+		return this;
+	}
+
+
+	/**
+	 * Defines a projectable derived attribute.
+	 * @param name the attribute name
+	 * @param expression the JPQL expression
+	 * @param join the JPQL join clause required by the expression, or {@code null} for none
+	 * @return this instance
+	 * @throws NullPointerException if any of the given names or the expression is {@code null}
+	 */
+	public FieldProjection attribute (final String name, final String expression, final String join) throws NullPointerException {
+		if (name == null | expression == null) throw new NullPointerException();
+
+		this.fields.put(name, new Field(expression, join, true));
+		return this;
+	}
+
+
+	/**
+	 * Parses the given field selection, which may consist of comma separated lists of names,
+	 * or repeated query parameters.
+	 * @param selection the field selection
+	 * @return the selected field names with identity first, or {@code null} if the selection is empty
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws ClientErrorException (HTTP 400) if the selection contains unknown field names
+	 */
+	public String[] parse (final List<String> selection) throws NullPointerException, ClientErrorException {
+		final Set<String> names = selection.stream().flatMap(text -> Stream.of(text.split(","))).map(String::trim).filter(text -> !text.isEmpty()).collect(Collectors.toSet());
+		if (names.isEmpty()) return null;
+		if (!this.fields.keySet().containsAll(names)) throw new ClientErrorException(Status.BAD_REQUEST);
+
+		names.add(IDENTITY);
+		return this.fields.keySet().stream().filter(names::contains).toArray(String[]::new);
+	}
+
+
+	/**
+	 * Returns a JPQL tuple query projecting the given fields of the entities matching the given criteria.
+	 * @param names the field names, see {@link #parse(List)}
+	 * @param criteria the JPQL criteria
+	 * @param ordering the JPQL ordering, or {@code null} for none
+	 * @return the JPQL query
+	 * @throws NullPointerException if any of the given names or the criteria is {@code null}
+	 */
+	public String query (final String[] names, final String criteria, final String ordering) throws NullPointerException {
+		if (criteria == null) throw new NullPointerException();
+
+		final Set<String> joins = new LinkedHashSet<>();
+		final StringBuilder query = new StringBuilder("select ");
+		for (final String name : names) {
+			final Field field = this.fields.get(name);
+			if (field.expression() == null) continue;
+			if (field.join() != null) joins.add(field.join());
+			if (query.length() > 7) query.append(", ");
+			query.append(field.expression());
+		}
+
+		query.append(" from ").append(this.entityName).append(" as ").append(this.alias);
+		for (final String join : joins)
+			query.append(' ').append(join);
+		query.append(" where ").append(criteria);
+		if (ordering != null) query.append(" order by ").append(ordering);
+		return query.toString();
+	}
+
+
+	/**
+	 * Returns the given projected row as map that serializes like the associated entity.
+	 * @param names the field names, see {@link #parse(List)}
+	 * @param row the tuple returned by the query, see {@link #query(String[], String, String)}
+	 * @return the map
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public Map<String,Object> map (final String[] names, final Tuple row) throws NullPointerException {
+		final Map<String,Object> properties = new LinkedHashMap<>();
+		final Map<String,Object> attributes = new LinkedHashMap<>();
+
+		int index = 0;
+		for (final String name : names) {
+			final Field field = this.fields.get(name);
+			final Object value = field.expression() == null ? this.entityName : row.get(index++);
+
+			if (field.attribute())
+				attributes.put(name, value instanceof Enum ? ((Enum<?>) value).name() : value);
+			else if (value != null)
+				properties.put(name, value);
+		}
+
+		if (!attributes.isEmpty()) properties.put(ATTRIBUTES, attributes);
+		return properties;
+	}
+}
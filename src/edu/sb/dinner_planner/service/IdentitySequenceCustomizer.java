@@ -0,0 +1,45 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.sequencing.Sequence;
+import org.eclipse.persistence.sessions.Session;
+
+
+/**
+ * EclipseLink session customizer adjusting the block size of the table based identity generator
+ * of {@code AbstractEntity}. Each node reserves blocks of identities by incrementing the shared
+ * sequence row within a short transaction on a dedicated sequencing connection, and then assigns
+ * identities from it's current block in memory; as each block is reserved atomically, nodes never
+ * collide, even if they use different block sizes. The block size is defined using system property
+ * {@value #PROPERTY_BLOCK_SIZE}, and defaults to the generator's allocation size. Applied by the
+ * {@link SessionLifecycleListener}, which occupies persistence unit property {@code eclipselink.session.customizer}.
+ */
+public class IdentitySequenceCustomizer implements SessionCustomizer {
+	static private final Logger LOGGER = Logger.getLogger(IdentitySequenceCustomizer.class.getName());
+	static public final String PROPERTY_BLOCK_SIZE = "dinner_planner.identity.block-size";
+	static public final String SEQUENCE_NAME = "AbstractEntity";
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void customize (final Session session) {
+		final Integer blockSize = Integer.getInteger(PROPERTY_BLOCK_SIZE);
+		if (blockSize == null) return;
+		if (blockSize <= 0) {
+			LOGGER.log(Level.WARNING, "illegal identity block size {0} ignored", blockSize);
+			return;
+		}
+
+		final Sequence sequence = session.getLogin().getSequence(SEQUENCE_NAME);
+		if (sequence == null) {
+			LOGGER.log(Level.WARNING, "identity sequence {0} not found", SEQUENCE_NAME);
+			return;
+		}
+
+		sequence.setPreallocationSize(blockSize);
+	}
+}
@@ -0,0 +1,212 @@
+package edu.sb.dinner_planner.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+/**
+ * Command line tool migrating an existing database from the default JOINED mapping of the
+ * {@code AbstractEntity} hierarchy to the alternative SINGLE_TABLE mapping defined in
+ * {@code META-INF/orm-single-table.xml}. The subclass table columns are added to table
+ * {@code AbstractEntity}, filled from the subclass tables, and indexed like before; foreign keys
+ * referencing the subclass tables are redirected to {@code AbstractEntity}, and the subclass
+ * tables are finally renamed with suffix {@value #BACKUP_SUFFIX} instead of being dropped.
+ * The migration statements are derived from the database's information schema, and only printed
+ * unless option {@code --execute} is given. As MariaDB commits DDL statements implicitly,
+ * the migration cannot be rolled back; back up the database before executing it.
+ */
+public class InheritanceMigration {
+	static private final String SCHEMA = "dinner_planner";
+	static private final String ROOT_TABLE = "AbstractEntity";
+	static private final String BACKUP_SUFFIX = "_joined";
+	static private final Map<String,String> SUBCLASS_TABLES = new LinkedHashMap<>();
+	static private final Map<String,String> RENAMED_COLUMNS = Map.of("AccessPlan.alias", "accessKey", "Person.title", "personTitle");
+	static private final String QUERY_COLUMNS = "select COLUMN_NAME, COLUMN_TYPE, coalesce(CHARACTER_MAXIMUM_LENGTH, 0) from information_schema.COLUMNS where TABLE_SCHEMA = ? and TABLE_NAME = ? order by ORDINAL_POSITION";
+	static private final String QUERY_INDEXES = "select INDEX_NAME, NON_UNIQUE, COLUMN_NAME from information_schema.STATISTICS where TABLE_SCHEMA = ? and TABLE_NAME = ? and INDEX_NAME <> 'PRIMARY' order by INDEX_NAME, SEQ_IN_INDEX";
+	static private final String QUERY_FOREIGN_KEYS = "select k.TABLE_NAME, k.CONSTRAINT_NAME, k.COLUMN_NAME, k.REFERENCED_TABLE_NAME, r.DELETE_RULE from information_schema.KEY_COLUMN_USAGE as k "
+		+ "join information_schema.REFERENTIAL_CONSTRAINTS as r on r.CONSTRAINT_SCHEMA = k.CONSTRAINT_SCHEMA and r.CONSTRAINT_NAME = k.CONSTRAINT_NAME "
+		+ "where k.TABLE_SCHEMA = ? and k.REFERENCED_TABLE_NAME is not null";
+
+	static {
+		SUBCLASS_TABLES.put("Person", "personIdentity");
+		SUBCLASS_TABLES.put("Document", "documentIdentity");
+		SUBCLASS_TABLES.put("AccessPlan", "accessPlanIdentity");
+		SUBCLASS_TABLES.put("Victual", "victualIdentity");
+		SUBCLASS_TABLES.put("Recipe", "recipeIdentity");
+		SUBCLASS_TABLES.put("Ingredient", "ingredientIdentity");
+		SUBCLASS_TABLES.put("Dish", "dishIdentity");
+		SUBCLASS_TABLES.put("MealType", "mealTypeIdentity");
+	}
+
+
+	/**
+	 * Foreign key record.
+	 */
+	static private record ForeignKey (String table, String name, String column, String referencedTable, String deleteRule) {}
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private InheritanceMigration () {}
+
+
+	/**
+	 * Application entry point.
+	 * @param args the runtime arguments: JDBC URL, user, password, and optionally {@code --execute}
+	 * @throws SQLException if there is a database related problem
+	 */
+	static public void main (final String[] args) throws SQLException {
+		if (args.length < 3) throw new IllegalArgumentException("usage: InheritanceMigration <jdbc-url> <user> <password> [--execute]");
+		final boolean execute = args.length > 3 && args[3].equals("--execute");
+
+		try (Connection connection = DriverManager.getConnection(args[0], args[1], args[2])) {
+			final List<String> statements = migrationStatements(connection);
+			for (final String sql : statements) {
+				System.out.println(sql + ";");
+				if (execute) try (Statement statement = connection.createStatement()) {
+					statement.executeUpdate(sql);
+				}
+			}
+
+			if (!execute) System.out.println("-- dry run, use --execute to apply the above statements");
+		}
+	}
+
+
+	/**
+	 * Returns the statements required to migrate the database behind the given connection.
+	 * @param connection the JDBC connection
+	 * @return the migration statements
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private List<String> migrationStatements (final Connection connection) throws SQLException {
+		final Set<String> rootColumns = columns(connection, ROOT_TABLE).keySet();
+		final Map<String,String> addedColumns = new LinkedHashMap<>();
+		final Map<String,Long> addedColumnLengths = new LinkedHashMap<>();
+		final List<String> copyStatements = new ArrayList<>();
+		final List<String> indexStatements = new ArrayList<>();
+
+		for (final Map.Entry<String,String> entry : SUBCLASS_TABLES.entrySet()) {
+			final String table = entry.getKey();
+			final Map<String,Object[]> columns = columns(connection, table);
+			columns.remove(entry.getValue());
+			if (columns.isEmpty()) continue;
+
+			final List<String> assignments = new ArrayList<>();
+			for (final Map.Entry<String,Object[]> column : columns.entrySet()) {
+				final String targetColumn = RENAMED_COLUMNS.getOrDefault(table + "." + column.getKey(), column.getKey());
+				final long length = (Long) column.getValue()[1];
+				if (!rootColumns.contains(targetColumn) && length >= addedColumnLengths.getOrDefault(targetColumn, -1L)) {
+					addedColumns.put(targetColumn, (String) column.getValue()[0]);
+					addedColumnLengths.put(targetColumn, length);
+				}
+				assignments.add("a.`" + targetColumn + "` = t.`" + column.getKey() + "`");
+			}
+
+			copyStatements.add("update " + SCHEMA + "." + ROOT_TABLE + " as a join " + SCHEMA + "." + table + " as t on t.`" + entry.getValue() + "` = a.identity set " + String.join(", ", assignments));
+			for (final Map.Entry<String,List<String>> index : indexes(connection, table).entrySet()) {
+				final String columnList = index.getValue().stream().skip(1).map(column -> "`" + RENAMED_COLUMNS.getOrDefault(table + "." + column, column) + "`").collect(Collectors.joining(","));
+				indexStatements.add("create " + index.getValue().get(0) + "index `" + table + "_" + index.getKey() + "` on " + SCHEMA + "." + ROOT_TABLE + " (" + columnList + ")");
+			}
+		}
+
+		final List<String> statements = new ArrayList<>();
+		for (final Map.Entry<String,String> column : addedColumns.entrySet())
+			statements.add("alter table " + SCHEMA + "." + ROOT_TABLE + " add column `" + column.getKey() + "` " + column.getValue() + " null");
+		statements.addAll(copyStatements);
+
+		// subclass tables are retired, so their foreign keys are dropped, while those of other tables are redirected
+		final Set<String> referenceColumns = new HashSet<>();
+		for (final ForeignKey foreignKey : foreignKeys(connection)) {
+			if (SUBCLASS_TABLES.containsKey(foreignKey.table())) {
+				statements.add("alter table " + SCHEMA + "." + foreignKey.table() + " drop foreign key `" + foreignKey.name() + "`");
+				if (!foreignKey.column().equals(SUBCLASS_TABLES.get(foreignKey.table())) && referenceColumns.add(foreignKey.column()))
+					statements.add("alter table " + SCHEMA + "." + ROOT_TABLE + " add foreign key (`" + foreignKey.column() + "`) references " + SCHEMA + "." + ROOT_TABLE + " (identity) on delete " + foreignKey.deleteRule());
+			} else if (SUBCLASS_TABLES.containsKey(foreignKey.referencedTable())) {
+				statements.add("alter table " + SCHEMA + "." + foreignKey.table() + " drop foreign key `" + foreignKey.name() + "`");
+				statements.add("alter table " + SCHEMA + "." + foreignKey.table() + " add constraint `" + foreignKey.name() + "` foreign key (`" + foreignKey.column() + "`) references " + SCHEMA + "." + ROOT_TABLE + " (identity) on delete " + foreignKey.deleteRule());
+			}
+		}
+
+		statements.addAll(indexStatements);
+		for (final String table : SUBCLASS_TABLES.keySet())
+			statements.add("rename table " + SCHEMA + "." + table + " to " + SCHEMA + "." + table + BACKUP_SUFFIX);
+
+		return statements;
+	}
+
+
+	/**
+	 * Returns the columns of the given table.
+	 * @param connection the JDBC connection
+	 * @param table the table name
+	 * @return the column types and character lengths, mapped by column name in ordinal order
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private Map<String,Object[]> columns (final Connection connection, final String table) throws SQLException {
+		final Map<String,Object[]> columns = new LinkedHashMap<>();
+		try (PreparedStatement statement = connection.prepareStatement(QUERY_COLUMNS)) {
+			statement.setString(1, SCHEMA);
+			statement.setString(2, table);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next())
+					columns.put(resultSet.getString(1), new Object[] { resultSet.getString(2), resultSet.getLong(3) });
+			}
+		}
+		return columns;
+	}
+
+
+	/**
+	 * Returns the secondary indexes of the given table.
+	 * @param connection the JDBC connection
+	 * @param table the table name
+	 * @return the index kind ({@code "unique "} or the empty string) followed by the index columns, mapped by index name
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private Map<String,List<String>> indexes (final Connection connection, final String table) throws SQLException {
+		final Map<String,List<String>> indexes = new LinkedHashMap<>();
+		try (PreparedStatement statement = connection.prepareStatement(QUERY_INDEXES)) {
+			statement.setString(1, SCHEMA);
+			statement.setString(2, table);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					final String kind = resultSet.getInt(2) == 0 ? "unique " : "";
+					indexes.computeIfAbsent(resultSet.getString(1), key -> new ArrayList<>(List.of(kind))).add(resultSet.getString(3));
+				}
+			}
+		}
+		return indexes;
+	}
+
+
+	/**
+	 * Returns the foreign keys of the schema.
+	 * @param connection the JDBC connection
+	 * @return the foreign keys
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private List<ForeignKey> foreignKeys (final Connection connection) throws SQLException {
+		final List<ForeignKey> foreignKeys = new ArrayList<>();
+		try (PreparedStatement statement = connection.prepareStatement(QUERY_FOREIGN_KEYS)) {
+			statement.setString(1, SCHEMA);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next())
+					foreignKeys.add(new ForeignKey(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4), resultSet.getString(5)));
+			}
+		}
+		return foreignKeys;
+	}
+}
@@ -0,0 +1,52 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+
+/**
+ * Cache transport delivering messages to all loopback transports opened within the same
+ * process, which allows cache coordination between several entity manager factories to
+ * be exercised without any network setup.
+ */
+public class LoopbackCacheTransport implements CacheTransport {
+	static private final List<Consumer<byte[]>> RECEIVERS = new CopyOnWriteArrayList<>();
+
+	private volatile Consumer<byte[]> receiver;
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void open (final Consumer<byte[]> receiver) throws NullPointerException {
+		if (receiver == null) throw new NullPointerException();
+		if (this.receiver != null) throw new IllegalStateException();
+
+		this.receiver = receiver;
+		RECEIVERS.add(receiver);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void send (final byte[] message) throws NullPointerException {
+		if (message == null) throw new NullPointerException();
+
+		for (final Consumer<byte[]> receiver : RECEIVERS)
+			receiver.accept(message.clone());
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close () {
+		if (this.receiver != null) RECEIVERS.remove(this.receiver);
+		this.receiver = null;
+	}
+}
@@ -1,5 +1,6 @@
 package edu.sb.dinner_planner.service;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -7,9 +8,9 @@ import edu.sb.dinner_planner.persistence.Dish;
 import edu.sb.dinner_planner.persistence.MealType;
 import edu.sb.dinner_planner.persistence.MealType.CourseType;
 import edu.sb.dinner_planner.persistence.Person;
-import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -37,15 +38,22 @@ import jakarta.ws.rs.core.Response.Status;
 public class MealTypeService {
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 
-	static private final String QUERY_MEALTYPES = """
-		select m.identity from MealType as m
-		where (:minCreated is null or m.created >= :minCreated)
+	static private final String MEALTYPE_CRITERIA = """
+		(:minCreated is null or m.created >= :minCreated)
 		  and (:maxCreated is null or m.created <= :maxCreated)
 		  and (:minModified is null or m.modified >= :minModified)
 		  and (:maxModified is null or m.modified <= :maxModified)
 		  and (:courseType is null or m.courseType = :courseType)
-		order by m.courseNumber asc
 	""";
+	static private final String MEALTYPE_ORDERING = "m.courseNumber asc, m.identity asc";
+	static private final String QUERY_MEALTYPES = "select m.identity from MealType as m where " + MEALTYPE_CRITERIA + " order by " + MEALTYPE_ORDERING;
+	static private final FieldProjection MEALTYPE_FIELDS = new FieldProjection("MealType", "m")
+		.property("courseNumber", "courseNumber")
+		.property("courseType", "courseType")
+		.attribute("course-number", "m.courseNumber", null)
+		.attribute("course-type", "m.courseType", null)
+		.attribute("dish-reference", "dish.identity", "left join m.dish as dish")
+		.attribute("author-reference", "author.identity", "left join m.author as author");
 
 	@PersistenceContext(unitName="local_database")
 	private EntityManager entityManager;
@@ -55,26 +63,34 @@ public class MealTypeService {
 	@GET
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public MealType[] queryMealTypes(
+	public Object[] queryMealTypes(
 		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
 		@QueryParam("paging-limit")  @Positive final Integer pagingLimit,
 		@QueryParam("min-created")   final Long minCreated,
 		@QueryParam("max-created")   final Long maxCreated,
 		@QueryParam("min-modified")  final Long minModified,
 		@QueryParam("max-modified")  final Long maxModified,
-		@QueryParam("course-type")   final CourseType courseType
+		@QueryParam("course-type")   final CourseType courseType,
+		@QueryParam("fields")        @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = MEALTYPE_FIELDS.parse(fields);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(MEALTYPE_FIELDS.query(fieldNames, MEALTYPE_CRITERIA, MEALTYPE_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit  != null) query.setMaxResults(pagingLimit);
+
+			bindMealTypeCriteria(query, minCreated, maxCreated, minModified, maxModified, courseType);
+			return Metrics.timed("QUERY_MEALTYPE_FIELDS", query::getResultStream)
+				.map(row -> MEALTYPE_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
 		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_MEALTYPES, Long.class);
 		if (pagingOffset != null) query.setFirstResult(pagingOffset);
 		if (pagingLimit  != null) query.setMaxResults(pagingLimit);
 
-		final MealType[] result = query
-			.setParameter("minCreated",  minCreated)
-			.setParameter("maxCreated",  maxCreated)
-			.setParameter("minModified", minModified)
-			.setParameter("maxModified", maxModified)
-			.setParameter("courseType",  courseType)
-			.getResultStream()
+		bindMealTypeCriteria(query, minCreated, maxCreated, minModified, maxModified, courseType);
+		final MealType[] result = Metrics.timed("QUERY_MEALTYPES", query::getResultStream)
 			.map(id -> this.entityManager.find(MealType.class, id))
 			.filter(Objects::nonNull)
 			.toArray(MealType[]::new);
@@ -86,12 +102,43 @@ public class MealTypeService {
 	@Path("{id}")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public MealType findMealType(@PathParam("id") @Positive final long mealTypeIdentity) {
+	public Object findMealType(
+		@PathParam("id") @Positive final long mealTypeIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
+	) {
+		final String[] fieldNames = MEALTYPE_FIELDS.parse(fields);
+		if (fieldNames != null) {
+			final List<Tuple> rows = Metrics.timed("QUERY_MEALTYPE_FIELDS", this.entityManager.createQuery(MEALTYPE_FIELDS.query(fieldNames, "m.identity = :mealTypeIdentity", null), Tuple.class)
+				.setParameter("mealTypeIdentity", mealTypeIdentity)::getResultList);
+			if (rows.isEmpty()) throw new ClientErrorException(Status.NOT_FOUND);
+			return MEALTYPE_FIELDS.map(fieldNames, rows.get(0));
+		}
+
 		final MealType mealType = this.entityManager.find(MealType.class, mealTypeIdentity);
 		if (mealType == null) throw new ClientErrorException(Status.NOT_FOUND);
 		return mealType;
 	}
 
+	/**
+	 * Sets the parameters of the given meal type criteria query.
+	 * @param <T> the query result type
+	 * @param query the query
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param courseType the course type, or {@code null} for undefined
+	 * @return the given query
+	 */
+	static private <T> TypedQuery<T> bindMealTypeCriteria(final TypedQuery<T> query, final Long minCreated, final Long maxCreated, final Long minModified, final Long maxModified, final CourseType courseType) {
+		return query
+			.setParameter("minCreated",  minCreated)
+			.setParameter("maxCreated",  maxCreated)
+			.setParameter("minModified", minModified)
+			.setParameter("maxModified", maxModified)
+			.setParameter("courseType",  courseType);
+	}
+
 	/* --------------------------- CREATE/UPDATE --------------------------- */
 
 	/**
@@ -136,14 +183,15 @@ public class MealTypeService {
 			final Dish dishRef = (dishId == null) ? null : this.entityManager.getReference(Dish.class, dishId);
 			entity.setDish(dishRef);
 
-			// Kursnummer-Logik
+			// Kursnummer-Logik; verschobene MealTypes werden für die Cache-Invalidierung gesammelt
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			if (insertMode) {
 				final Integer requested = template.getCourseNumber();
 				if (requested == null) {
 					final int next = nextCourseNumber();
 					entity.setCourseNumber(next);
 				} else {
-					shiftUpFrom(requested);         // alle >= requested um +1
+					shiftUpFrom(requested, cacheInvalidator);       // alle >= requested um +1
 					entity.setCourseNumber(requested);
 				}
 				this.entityManager.persist(entity);
@@ -156,21 +204,22 @@ public class MealTypeService {
 
 					if (newNo > oldNo) {
 						// Beispiel: 2 -> 5 : alle in (2,5] um -1
-						shiftRangeDown(oldNo + 1, newNo);
+						shiftRangeDown(oldNo + 1, newNo, cacheInvalidator);
 					} else {
 						// Beispiel: 5 -> 2 : alle in [2,5) um +1
-						shiftRangeUp(newNo, oldNo - 1);
+						shiftRangeUp(newNo, oldNo - 1, cacheInvalidator);
 					}
 					entity.setCourseNumber(newNo);
 				}
+				cacheInvalidator.add(MealType.class, entity.getIdentity());
 				this.entityManager.flush();
 			}
 
 			this.entityManager.getTransaction().commit();
 
-			// Second Level Cache: keine konkreten Abhängigkeiten nötig; optional könnte man MealType evicten
-			final Cache cache = this.entityManager.getEntityManagerFactory().getCache();
-			cache.evict(MealType.class);
+			// Second Level Cache: verschobene und geänderte MealTypes werden zwar lokal beim Commit
+			// in den Cache übernommen, müssen aber auf allen anderen Knoten explizit verdrängt werden
+			cacheInvalidator.evict();
 
 			return entity.getIdentity();
 
@@ -200,16 +249,16 @@ public class MealTypeService {
 			if (entity == null) throw new ClientErrorException(Status.NOT_FOUND);
 
 			final int removedNo = entity.getCourseNumber();
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			this.entityManager.remove(entity);                 // DELETE
 
 			// Nachziehen: alle > removedNo um -1
-			shiftDownFrom(removedNo + 1);
+			shiftDownFrom(removedNo + 1, cacheInvalidator);
 
 			this.entityManager.getTransaction().commit();
 
-			final Cache cache = this.entityManager.getEntityManagerFactory().getCache();
-			cache.evict(MealType.class);
-
+			// Second Level Cache: siehe insertOrUpdateMealType
+			cacheInvalidator.evict();
 			return mealTypeIdentity;
 
 		} catch (RuntimeException e) {
@@ -229,32 +278,39 @@ public class MealTypeService {
 	}
 
 	/** Erhöht alle courseNumber >= from um +1. */
-	private void shiftUpFrom(final int from) {
-		this.entityManager.createQuery(
-			"update MealType m set m.courseNumber = m.courseNumber + 1 where m.courseNumber >= :from"
-		).setParameter("from", from).executeUpdate();
+	private void shiftUpFrom(final int from, final CacheInvalidator cacheInvalidator) {
+		shiftRange(from, Integer.MAX_VALUE, +1, cacheInvalidator);
 	}
 
 	/** Verringert alle courseNumber >= from um -1. */
-	private void shiftDownFrom(final int from) {
-		this.entityManager.createQuery(
-			"update MealType m set m.courseNumber = m.courseNumber - 1 where m.courseNumber >= :from"
-		).setParameter("from", from).executeUpdate();
+	private void shiftDownFrom(final int from, final CacheInvalidator cacheInvalidator) {
+		shiftRange(from, Integer.MAX_VALUE, -1, cacheInvalidator);
 	}
 
 	/** Erhöht alle in [from..to] um +1 (nur wenn from <= to). */
-	private void shiftRangeUp(final int from, final int to) {
-		if (from > to) return;
-		this.entityManager.createQuery(
-			"update MealType m set m.courseNumber = m.courseNumber + 1 where m.courseNumber between :from and :to"
-		).setParameter("from", from).setParameter("to", to).executeUpdate();
+	private void shiftRangeUp(final int from, final int to, final CacheInvalidator cacheInvalidator) {
+		shiftRange(from, to, +1, cacheInvalidator);
 	}
 
 	/** Verringert alle in [from..to] um -1 (nur wenn from <= to). */
-	private void shiftRangeDown(final int from, final int to) {
+	private void shiftRangeDown(final int from, final int to, final CacheInvalidator cacheInvalidator) {
+		shiftRange(from, to, -1, cacheInvalidator);
+	}
+
+	/**
+	 * Verschiebt alle in [from..to] um delta (nur wenn from <= to). Verändert die verwalteten
+	 * Entities statt einer JPQL-Massenänderung, damit der Second Level Cache nicht komplett
+	 * für MealType invalidiert werden muss; die verschobenen MealTypes werden stattdessen
+	 * im gegebenen Invalidator gesammelt.
+	 */
+	private void shiftRange(final int from, final int to, final int delta, final CacheInvalidator cacheInvalidator) {
 		if (from > to) return;
 		this.entityManager.createQuery(
-			"update MealType m set m.courseNumber = m.courseNumber - 1 where m.courseNumber between :from and :to"
-		).setParameter("from", from).setParameter("to", to).executeUpdate();
+			"select m from MealType m where m.courseNumber between :from and :to", MealType.class
+		).setParameter("from", from).setParameter("to", to).getResultStream().forEach(mealType -> {
+			mealType.setModified(System.currentTimeMillis());
+			mealType.setCourseNumber(mealType.getCourseNumber() + delta);
+			cacheInvalidator.add(MealType.class, mealType.getIdentity());
+		});
 	}
 }
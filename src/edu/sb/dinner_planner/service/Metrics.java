@@ -0,0 +1,224 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+
+/**
+ * Process-wide registry of low-overhead counters and latency histograms, rendered in the
+ * Prometheus text exposition format. Counters are backed by {@link LongAdder} instances,
+ * histograms by arrays of them using power-of-two nanosecond buckets, which keeps recording
+ * contention-free and allocation-free on the hot paths.
+ */
+public class Metrics {
+	static public final String CACHE_HITS = "dinner_planner_cache_hits_total";
+	static public final String CACHE_MISSES = "dinner_planner_cache_misses_total";
+	static public final String CACHE_EVICTIONS = "dinner_planner_cache_evictions_total";
+	static public final String QUERY_DURATION = "dinner_planner_query_duration_seconds";
+	static public final String COMMIT_DURATION = "dinner_planner_commit_duration_seconds";
+	static public final String AUTHENTICATION_DURATION = "dinner_planner_authentication_duration_seconds";
+	static public final String AUTHENTICATION_THROTTLED = "dinner_planner_authentication_throttled_total";
+	static public final String POOL_CONNECTIONS = "dinner_planner_pool_connections";
+	static public final String POOL_ACQUIRE_DURATION = "dinner_planner_pool_acquire_duration_seconds";
+	static public final String CHANGE_SUBSCRIBERS = "dinner_planner_change_subscribers";
+	static private final Map<String,Map<String,LongAdder>> COUNTERS = new ConcurrentSkipListMap<>();
+	static private final Map<String,Map<String,Histogram>> HISTOGRAMS = new ConcurrentSkipListMap<>();
+	static private final Map<String,Map<String,LongSupplier>> GAUGES = new ConcurrentSkipListMap<>();
+
+
+	/**
+	 * Latency histogram with power-of-two nanosecond buckets, similar in spirit to HDR histograms
+	 * with a single significant bit. Bucket {@code i} counts the durations below {@code 2^i}
+	 * nanoseconds that do not fit into bucket {@code i-1}.
+	 */
+	static public class Histogram {
+		static private final int MIN_BUCKET = 10;	// ~1µs
+		static private final int MAX_BUCKET = 36;	// ~69s
+
+		private final LongAdder[] buckets;
+		private final LongAdder sum;
+
+
+		/**
+		 * Initializes a new instance.
+		 */
+		private Histogram () {
+			this.buckets = new LongAdder[MAX_BUCKET + 2];
+			for (int index = 0; index < this.buckets.length; ++index)
+				this.buckets[index] = new LongAdder();
+			this.sum = new LongAdder();
+		}
+
+
+		/**
+		 * Records the given duration.
+		 * @param nanos the duration in nanoseconds
+		 */
+		public void record (final long nanos) {
+			final int bucket = nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos - 1);
+			this.buckets[Math.max(MIN_BUCKET, Math.min(MAX_BUCKET + 1, bucket)) - MIN_BUCKET].increment();
+			this.sum.add(nanos);
+		}
+
+
+		/**
+		 * Records the duration elapsed since the given {@link System#nanoTime()} timestamp.
+		 * @param startNanos the start timestamp in nanoseconds
+		 */
+		public void recordSince (final long startNanos) {
+			this.record(System.nanoTime() - startNanos);
+		}
+
+
+		/**
+		 * Appends the Prometheus representation of this histogram to the given builder.
+		 * @param builder the string builder
+		 * @param name the metric name
+		 * @param labels the metric labels, or the empty string for none
+		 */
+		private void render (final StringBuilder builder, final String name, final String labels) {
+			final String separator = labels.isEmpty() ? "" : ",";
+			long count = 0;
+			for (int bucket = MIN_BUCKET; bucket <= MAX_BUCKET; ++bucket) {
+				count += this.buckets[bucket - MIN_BUCKET].sum();
+				builder.append(name).append("_bucket{").append(labels).append(separator).append("le=\"").append(seconds(1L << bucket)).append("\"} ").append(count).append('\n');
+			}
+			count += this.buckets[MAX_BUCKET + 1 - MIN_BUCKET].sum();
+			builder.append(name).append("_bucket{").append(labels).append(separator).append("le=\"+Inf\"} ").append(count).append('\n');
+			builder.append(name).append("_sum").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(seconds(this.sum.sum())).append('\n');
+			builder.append(name).append("_count").append(labels.isEmpty() ? "" : "{" + labels + "}").append(' ').append(count).append('\n');
+		}
+	}
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private Metrics () {}
+
+
+	/**
+	 * Returns the counter with the given name and labels, creating it if necessary.
+	 * @param name the metric name
+	 * @param labels the label names and values, alternating
+	 * @return the counter
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static public LongAdder counter (final String name, final String... labels) throws NullPointerException {
+		return COUNTERS.computeIfAbsent(name, key -> new ConcurrentHashMap<>()).computeIfAbsent(labels(labels), key -> new LongAdder());
+	}
+
+
+	/**
+	 * Returns the histogram with the given name and labels, creating it if necessary.
+	 * @param name the metric name
+	 * @param labels the label names and values, alternating
+	 * @return the histogram
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static public Histogram histogram (final String name, final String... labels) throws NullPointerException {
+		return HISTOGRAMS.computeIfAbsent(name, key -> new ConcurrentHashMap<>()).computeIfAbsent(labels(labels), key -> new Histogram());
+	}
+
+
+	/**
+	 * Registers a gauge with the given name and labels, replacing any gauge previously registered
+	 * with them. The given supplier is queried whenever the metrics are rendered.
+	 * @param name the metric name
+	 * @param supplier the gauge value supplier
+	 * @param labels the label names and values, alternating
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static public void gauge (final String name, final LongSupplier supplier, final String... labels) throws NullPointerException {
+		if (supplier == null) throw new NullPointerException();
+		GAUGES.computeIfAbsent(name, key -> new ConcurrentHashMap<>()).put(labels(labels), supplier);
+	}
+
+
+	/**
+	 * Executes the given query execution, and records it's duration within histogram
+	 * {@value #QUERY_DURATION} using the given query name as label. Call sites pass the
+	 * query's terminal method, for example {@code Metrics.timed("QUERY_RECIPES", query::getResultStream)}.
+	 * @param <R> the result type
+	 * @param queryName the query name, usually the name of the query's constant
+	 * @param execution the query execution
+	 * @return the execution result
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static public <R> R timed (final String queryName, final Supplier<R> execution) throws NullPointerException {
+		if (queryName == null | execution == null) throw new NullPointerException();
+
+		final String previousQueryName = SqlTrace.enter(queryName);
+		final long startNanos = System.nanoTime();
+		try {
+			return execution.get();
+		} finally {
+			SqlTrace.enter(previousQueryName);
+			final long durationNanos = System.nanoTime() - startNanos;
+			histogram(QUERY_DURATION, "query", queryName).record(durationNanos);
+			TimingFilter.addPersistence(durationNanos);
+		}
+	}
+
+
+	/**
+	 * Returns the Prometheus text representation of all metrics.
+	 * @return the text representation
+	 */
+	static public String render () {
+		final StringBuilder builder = new StringBuilder();
+		for (final Map.Entry<String,Map<String,LongAdder>> family : COUNTERS.entrySet()) {
+			builder.append("# TYPE ").append(family.getKey()).append(" counter\n");
+			for (final Map.Entry<String,LongAdder> entry : new ConcurrentSkipListMap<>(family.getValue()).entrySet())
+				builder.append(family.getKey()).append(entry.getKey().isEmpty() ? "" : "{" + entry.getKey() + "}").append(' ').append(entry.getValue().sum()).append('\n');
+		}
+
+		for (final Map.Entry<String,Map<String,LongSupplier>> family : GAUGES.entrySet()) {
+			builder.append("# TYPE ").append(family.getKey()).append(" gauge\n");
+			for (final Map.Entry<String,LongSupplier> entry : new ConcurrentSkipListMap<>(family.getValue()).entrySet())
+				builder.append(family.getKey()).append(entry.getKey().isEmpty() ? "" : "{" + entry.getKey() + "}").append(' ').append(entry.getValue().getAsLong()).append('\n');
+		}
+
+		for (final Map.Entry<String,Map<String,Histogram>> family : HISTOGRAMS.entrySet()) {
+			builder.append("# TYPE ").append(family.getKey()).append(" histogram\n");
+			for (final Map.Entry<String,Histogram> entry : new ConcurrentSkipListMap<>(family.getValue()).entrySet())
+				entry.getValue().render(builder, family.getKey(), entry.getKey());
+		}
+
+		return builder.toString();
+	}
+
+
+	/**
+	 * Returns the Prometheus label representation of the given label names and values.
+	 * @param labels the label names and values, alternating
+	 * @return the label representation, or the empty string for none
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given argument has an odd number of elements
+	 */
+	static private String labels (final String... labels) throws NullPointerException, IllegalArgumentException {
+		if ((labels.length & 1) == 1) throw new IllegalArgumentException();
+
+		final StringBuilder builder = new StringBuilder();
+		for (int index = 0; index < labels.length; index += 2) {
+			if (index > 0) builder.append(',');
+			builder.append(labels[index]).append("=\"").append(labels[index + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+		}
+		return builder.toString();
+	}
+
+
+	/**
+	 * Returns the given nanosecond duration in seconds.
+	 * @param nanos the duration in nanoseconds
+	 * @return the duration in seconds
+	 */
+	static private String seconds (final long nanos) {
+		return String.format(Locale.ROOT, "%.9g", nanos * 1E-9);
+	}
+}
@@ -0,0 +1,92 @@
+package edu.sb.dinner_planner.service;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+
+/**
+ * EclipseLink session profiler recording per-entity second level cache hits and misses within
+ * {@link Metrics}, and SQL statement executions within the {@link TimingFilter} and the
+ * {@link SqlTrace}. The profile weight is always {@link SessionProfiler#ALL}, as EclipseLink reads it only
+ * once when the profiler is set, and client sessions and units of work inherit the result; statement
+ * executions are therefore timed only for threads processing a request sampled by the timing filter, or
+ * while the SQL trace is active, while cache hits and misses are counted for every thread.
+ * Registered using persistence unit property {@code eclipselink.profiler}.
+ */
+public class MetricsProfiler extends SessionProfilerAdapter {
+	static private final ThreadLocal<long[]> STATEMENT_START = ThreadLocal.withInitial(() -> new long[1]);
+
+
+	/**
+	 * Returns whether or not the statements executed by the current thread are profiled.
+	 * @return {@code true} if the current thread processes a sampled request, or the SQL trace
+	 *         is active, {@code false} otherwise
+	 */
+	static private boolean isProfiled () {
+		return TimingFilter.isSampled() || SqlTrace.isActive();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getProfileWeight () {
+		return SessionProfiler.ALL;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void startOperationProfile (final String operationName, final DatabaseQuery query, final int weight) {
+		if (SessionProfiler.StatementExecute.equals(operationName) && isProfiled()) STATEMENT_START.get()[0] = System.nanoTime();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endOperationProfile (final String operationName, final DatabaseQuery query, final int weight) {
+		if (!SessionProfiler.StatementExecute.equals(operationName)) return;
+
+		final long[] statementStart = STATEMENT_START.get();
+		if (statementStart[0] == 0L) return;
+
+		final long durationNanos = System.nanoTime() - statementStart[0];
+		statementStart[0] = 0L;
+		TimingFilter.addStatement();
+		if (!SqlTrace.isActive()) return;
+
+		if (query == null)
+			SqlTrace.record("unknown", null, durationNanos);
+		else
+			SqlTrace.record(query.getClass().getSimpleName() + (query.getReferenceClass() == null ? "" : " " + query.getReferenceClass().getSimpleName()), query.getSQLString(), durationNanos);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void occurred (final String operationName, final DatabaseQuery query, final AbstractSession session) {
+		final String metricName;
+		switch (operationName) {
+			case SessionProfiler.CacheHits:
+				metricName = Metrics.CACHE_HITS;
+				break;
+			case SessionProfiler.CacheMisses:
+				metricName = Metrics.CACHE_MISSES;
+				break;
+			default:
+				return;
+		}
+
+		final Class<?> type = query == null ? null : query.getReferenceClass();
+		Metrics.counter(metricName, "entity", type == null ? "unknown" : type.getSimpleName()).increment();
+	}
+}
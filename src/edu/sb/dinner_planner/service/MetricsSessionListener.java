@@ -0,0 +1,100 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Map;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.ServerSession;
+
+
+/**
+ * EclipseLink session event listener recording transaction commit latency and connection pool
+ * utilization within {@link Metrics}, and commit latency within the {@link TimingFilter}.
+ * Registered using persistence unit property {@code eclipselink.session-event-listener}.
+ */
+public class MetricsSessionListener extends SessionEventAdapter {
+	static private final ThreadLocal<long[]> COMMIT_START = ThreadLocal.withInitial(() -> new long[1]);
+	static private final ThreadLocal<long[]> BEGIN_START = ThreadLocal.withInitial(() -> new long[1]);
+
+	private final Metrics.Histogram commitDuration = Metrics.histogram(Metrics.COMMIT_DURATION);
+	private final Metrics.Histogram acquireDuration = Metrics.histogram(Metrics.POOL_ACQUIRE_DURATION);
+
+
+	/**
+	 * Registers gauges for the total, available and maximum number of connections
+	 * of each connection pool of the server session being logged in.
+	 * @param event the session event
+	 */
+	@Override
+	public void postLogin (final SessionEvent event) {
+		if (!(event.getSession() instanceof ServerSession)) return;
+		final ServerSession session = (ServerSession) event.getSession();
+
+		final String unitName = session.getName();
+		for (final Map.Entry<String,ConnectionPool> entry : session.getConnectionPools().entrySet())
+			registerGauges(unitName, entry.getKey(), entry.getValue());
+		if (session.getReadConnectionPool() != null)
+			registerGauges(unitName, "read", session.getReadConnectionPool());
+	}
+
+
+	/**
+	 * Registers gauges for the given connection pool.
+	 * @param unitName the persistence unit name
+	 * @param poolName the connection pool name
+	 * @param pool the connection pool
+	 */
+	static private void registerGauges (final String unitName, final String poolName, final ConnectionPool pool) {
+		Metrics.gauge(Metrics.POOL_CONNECTIONS, pool::getTotalNumberOfConnections, "unit", unitName, "pool", poolName, "state", "total");
+		Metrics.gauge(Metrics.POOL_CONNECTIONS, () -> pool.getConnectionsAvailable().size(), "unit", unitName, "pool", poolName, "state", "available");
+		Metrics.gauge(Metrics.POOL_CONNECTIONS, pool::getMaxNumberOfConnections, "unit", unitName, "pool", poolName, "state", "max");
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void preBeginTransaction (final SessionEvent event) {
+		BEGIN_START.get()[0] = System.nanoTime();
+	}
+
+
+	/**
+	 * Records the time required to begin a database transaction, which is dominated by
+	 * acquiring a write connection from the pool, including any time spent waiting for one.
+	 * @param event the session event
+	 */
+	@Override
+	public void postBeginTransaction (final SessionEvent event) {
+		final long[] beginStart = BEGIN_START.get();
+		if (beginStart[0] == 0L) return;
+
+		this.acquireDuration.recordSince(beginStart[0]);
+		beginStart[0] = 0L;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void preCommitUnitOfWork (final SessionEvent event) {
+		COMMIT_START.get()[0] = System.nanoTime();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void postCommitUnitOfWork (final SessionEvent event) {
+		final long[] commitStart = COMMIT_START.get();
+		if (commitStart[0] == 0L) return;
+
+		final long durationNanos = System.nanoTime() - commitStart[0];
+		this.commitDuration.record(durationNanos);
+		TimingFilter.addPersistence(durationNanos);
+		commitStart[0] = 0L;
+	}
+}
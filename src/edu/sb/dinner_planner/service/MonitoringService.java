@@ -0,0 +1,127 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Locale;
+import edu.sb.dinner_planner.persistence.Person;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response.Status;
+
+
+/**
+ * JAX-RS based service class for monitoring related services.
+ */
+@Path("monitoring")
+public class MonitoringService {
+	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
+	static private final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+	@PersistenceContext(unitName="local_database")
+	private EntityManager entityManager;
+
+
+	/**
+	 * HTTP Signature: GET monitoring/metrics IN: - OUT: text/plain
+	 * @param requesterIdentity the requester identity
+	 * @return the metrics in Prometheus text exposition format
+	 */
+	@GET
+	@Path("metrics")
+	@Consumes
+	@Produces(PROMETHEUS_TEXT)
+	public String queryMetrics (
+		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity
+	) {
+		final Person requester = this.entityManager.find(Person.class, requesterIdentity);
+		if (requester == null || requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+
+		return Metrics.render();
+	}
+
+
+	/**
+	 * HTTP Signature: GET monitoring/sql-trace IN: - OUT: text/plain
+	 * @param requesterIdentity the requester identity
+	 * @return the SQL trace profile, followed by one line per query override
+	 */
+	@GET
+	@Path("sql-trace")
+	@Consumes
+	@Produces(MediaType.TEXT_PLAIN)
+	public String findSqlTrace (
+		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity
+	) {
+		final Person requester = this.entityManager.find(Person.class, requesterIdentity);
+		if (requester == null || requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+
+		final StringBuilder builder = new StringBuilder(SqlTrace.getProfile().name().toLowerCase(Locale.ROOT)).append('\n');
+		SqlTrace.getOverrides().forEach((queryName, traced) -> builder.append(queryName).append('=').append(traced ? "on" : "off").append('\n'));
+		return builder.toString();
+	}
+
+
+	/**
+	 * HTTP Signature: PUT monitoring/sql-trace IN: text/plain OUT: -
+	 * @param requesterIdentity the requester identity
+	 * @param profile the SQL trace profile, i.e. off, sampled or full
+	 */
+	@PUT
+	@Path("sql-trace")
+	@Consumes(MediaType.TEXT_PLAIN)
+	public void updateSqlTraceProfile (
+		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity,
+		@NotNull final String profile
+	) {
+		final Person requester = this.entityManager.find(Person.class, requesterIdentity);
+		if (requester == null || requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+
+		try {
+			SqlTrace.setProfile(SqlTrace.Profile.valueOf(profile.trim().toUpperCase(Locale.ROOT)));
+		} catch (final IllegalArgumentException e) {
+			throw new ClientErrorException(Status.BAD_REQUEST);
+		}
+	}
+
+
+	/**
+	 * HTTP Signature: PUT monitoring/sql-trace/{query} IN: text/plain OUT: -
+	 * @param requesterIdentity the requester identity
+	 * @param queryName the query name, for example QUERY_RECIPES
+	 * @param override the query override, i.e. on, off or default
+	 */
+	@PUT
+	@Path("sql-trace/{query}")
+	@Consumes(MediaType.TEXT_PLAIN)
+	public void updateSqlTraceOverride (
+		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity,
+		@PathParam("query") final String queryName,
+		@NotNull final String override
+	) {
+		final Person requester = this.entityManager.find(Person.class, requesterIdentity);
+		if (requester == null || requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+
+		switch (override.trim()) {
+			case "on":
+				SqlTrace.setOverride(queryName, Boolean.TRUE);
+				break;
+			case "off":
+				SqlTrace.setOverride(queryName, Boolean.FALSE);
+				break;
+			case "default":
+				SqlTrace.setOverride(queryName, null);
+				break;
+			default:
+				throw new ClientErrorException(Status.BAD_REQUEST);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Cache transport delivering messages as UDP multicast datagrams to all nodes that
+ * joined the same multicast group, including the sending node. As datagrams may be lost,
+ * this transport is always combined with a {@link DatabaseCacheTransport}.
+ */
+public class MulticastCacheTransport implements CacheTransport {
+	static private final Logger LOGGER = Logger.getLogger(MulticastCacheTransport.class.getName());
+	static public final int MAX_MESSAGE_SIZE = 65_507;
+
+	private final InetSocketAddress groupAddress;
+	private volatile MulticastSocket socket;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param group the multicast group
+	 * @param port the multicast port
+	 * @throws NullPointerException if the given group is {@code null}
+	 * @throws IllegalArgumentException if the given group is not a multicast address,
+	 * 			or if the given port is out of range
+	 */
+	public MulticastCacheTransport (final InetAddress group, final int port) throws NullPointerException, IllegalArgumentException {
+		if (!group.isMulticastAddress()) throw new IllegalArgumentException();
+
+		this.groupAddress = new InetSocketAddress(group, port);
+		this.socket = null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void open (final Consumer<byte[]> receiver) throws NullPointerException, IOException {
+		if (receiver == null) throw new NullPointerException();
+		if (this.socket != null) throw new IllegalStateException();
+
+		final MulticastSocket socket = new MulticastSocket(this.groupAddress.getPort());
+		socket.joinGroup(this.groupAddress, null);
+		this.socket = socket;
+
+		final Thread thread = new Thread(() -> {
+			final byte[] buffer = new byte[MAX_MESSAGE_SIZE];
+			while (!socket.isClosed()) {
+				try {
+					final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+					socket.receive(packet);
+					receiver.accept(Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset() + packet.getLength()));
+				} catch (final SocketException e) {
+					if (!socket.isClosed()) LOGGER.log(Level.WARNING, "cache invalidation message dropped", e);
+				} catch (final Exception e) {
+					LOGGER.log(Level.WARNING, "cache invalidation message dropped", e);
+				}
+			}
+		}, "cache-transport-" + this.groupAddress);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void send (final byte[] message) throws NullPointerException, IOException {
+		if (message.length > MAX_MESSAGE_SIZE) throw new IOException("message too large");
+
+		final MulticastSocket socket = this.socket;
+		if (socket == null) throw new IllegalStateException();
+		socket.send(new DatagramPacket(message, message.length, this.groupAddress));
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close () throws IOException {
+		final MulticastSocket socket = this.socket;
+		this.socket = null;
+		if (socket == null) return;
+
+		try {
+			socket.leaveGroup(this.groupAddress, null);
+		} finally {
+			socket.close();
+		}
+	}
+}
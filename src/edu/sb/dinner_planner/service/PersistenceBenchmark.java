@@ -0,0 +1,350 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import edu.sb.dinner_planner.persistence.Document;
+import edu.sb.dinner_planner.persistence.Recipe;
+import jakarta.json.Json;
+import jakarta.json.JsonReader;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.ws.rs.core.MediaType;
+
+
+/**
+ * Command line benchmark for persistence related throughput, run against a database configured
+ * like any deployment, see {@link PersistenceConfiguration}. Scenario {@code insert} compares bulk
+ * insert throughput of a baseline configuration resembling {@code GenerationType.IDENTITY}, i.e.
+ * one identity per sequence round trip without batch writing, with that of pooled identity blocks
+ * combined with JDBC batch writing. All entities inserted are deleted afterwards. Scenarios {@code load}
+ * and {@code polymorphic} measure finds bypassing the second level cache, of recipes by their concrete
+ * type, and of arbitrary entities by their root type respectively; running them once with the default
+ * JOINED mapping and once with the SINGLE_TABLE mapping, see {@link InheritanceMigration}, compares
+ * both inheritance strategies. Scenario {@code allocation} measures the heap allocated per recipe loaded,
+ * and the garbage collections caused while loading, using the HotSpot thread allocation counters.
+ * Scenario {@code serialization} compares the throughput of default JSON-B serialization of recipe
+ * arrays with that of {@link EntityArrayWriter}. Scenario {@code wire-format}
+ * compares the payload size and encoding and decoding durations of recipe arrays in JSON and CBOR,
+ * see {@link CborProvider}.
+ */
+public class PersistenceBenchmark {
+	static private final String UNIT_NAME = "local_database";
+	static private final String QUERY_DELETE_DOCUMENTS = "delete from Document as d where d.identity in :identities";
+	static private final String QUERY_RECIPES = "select r.identity from Recipe as r order by r.identity";
+	static private final String QUERY_ENTITIES = "select e.identity from AbstractEntity as e order by e.identity";
+	static private final String QUERY_RECIPE_ENTITIES = "select r from Recipe as r order by r.identity";
+	static private final int TRANSACTION_SIZE = 100;
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private PersistenceBenchmark () {}
+
+
+	/**
+	 * Application entry point.
+	 * @param args the runtime arguments: scenario, entity count (default 10000),
+	 *        and identity block size (default 50, insert scenario only)
+	 */
+	static public void main (final String[] args) {
+		final String scenario = args.length > 0 ? args[0] : "insert";
+		final int count = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+		final int blockSize = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+		switch (scenario) {
+			case "insert":
+				benchmarkInserts("baseline", count, 1, "None");
+				benchmarkInserts("pooled", count, blockSize, "JDBC");
+				break;
+			case "load":
+				benchmarkFinds("load", count, Recipe.class, QUERY_RECIPES);
+				break;
+			case "polymorphic":
+				benchmarkFinds("polymorphic", count, AbstractEntity.class, QUERY_ENTITIES);
+				break;
+			case "allocation":
+				benchmarkAllocation(count);
+				break;
+			case "serialization":
+				benchmarkSerialization(count);
+				break;
+			case "wire-format":
+				benchmarkWireFormat(count);
+				break;
+			default:
+				throw new IllegalArgumentException(scenario);
+		}
+	}
+
+
+	/**
+	 * Inserts the given number of documents in transactions of fixed size, prints the resulting
+	 * throughput, and deletes the documents afterwards.
+	 * @param label the configuration label
+	 * @param count the number of documents
+	 * @param blockSize the identity block size
+	 * @param batchWriting the EclipseLink batch writing mode
+	 */
+	static private void benchmarkInserts (final String label, final int count, final int blockSize, final String batchWriting) {
+		System.setProperty(IdentitySequenceCustomizer.PROPERTY_BLOCK_SIZE, Integer.toString(blockSize));
+		final Map<String,Object> properties = PersistenceConfiguration.properties(UNIT_NAME);
+		properties.put("eclipselink.jdbc.batch-writing", batchWriting);
+
+		final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(UNIT_NAME, properties);
+		try {
+			final EntityManager entityManager = entityManagerFactory.createEntityManager();
+			try {
+				final List<Long> identities = new ArrayList<>(count);
+				final long startNanos = System.nanoTime();
+				for (int offset = 0; offset < count; offset += TRANSACTION_SIZE) {
+					final List<Document> documents = new ArrayList<>(TRANSACTION_SIZE);
+					entityManager.getTransaction().begin();
+					for (int index = offset; index < Math.min(count, offset + TRANSACTION_SIZE); ++index) {
+						final Document document = new Document(uniqueContent());
+						document.setDescription("benchmark");
+						entityManager.persist(document);
+						documents.add(document);
+					}
+					entityManager.getTransaction().commit();
+					entityManager.clear();
+					for (final Document document : documents)
+						identities.add(document.getIdentity());
+				}
+				final long durationNanos = System.nanoTime() - startNanos;
+
+				System.out.format("%s (block size %d, batch writing %s): %d inserts in %dms, %.0f inserts/s%n", label, blockSize, batchWriting, count, durationNanos / 1_000_000L, count * 1E9 / durationNanos);
+
+				for (int offset = 0; offset < identities.size(); offset += 1000) {
+					entityManager.getTransaction().begin();
+					entityManager.createQuery(QUERY_DELETE_DOCUMENTS).setParameter("identities", identities.subList(offset, Math.min(identities.size(), offset + 1000))).executeUpdate();
+					entityManager.getTransaction().commit();
+				}
+			} finally {
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+				entityManager.close();
+			}
+		} finally {
+			entityManagerFactory.close();
+		}
+	}
+
+
+	/**
+	 * Finds entities of the given type by identity, bypassing the second level cache, cycling through
+	 * the identities selected by the given query until the given number of finds is reached, and prints
+	 * the resulting throughput.
+	 * @param label the scenario label
+	 * @param count the number of finds
+	 * @param type the entity type
+	 * @param identityQuery the query selecting the entity identities
+	 * @throws IllegalStateException if there are no entities to be found
+	 */
+	static private void benchmarkFinds (final String label, final int count, final Class<? extends AbstractEntity> type, final String identityQuery) throws IllegalStateException {
+		final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(UNIT_NAME, PersistenceConfiguration.properties(UNIT_NAME));
+		try {
+			final EntityManager entityManager = entityManagerFactory.createEntityManager();
+			try {
+				final List<Long> identities = entityManager.createQuery(identityQuery, Long.class).setMaxResults(count).getResultList();
+				if (identities.isEmpty()) throw new IllegalStateException("no entities to be found");
+				final Map<String,Object> hints = Map.of("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+				final long startNanos = System.nanoTime();
+				for (int index = 0; index < count; ++index) {
+					if (entityManager.find(type, identities.get(index % identities.size()), hints) == null) throw new IllegalStateException();
+					entityManager.clear();
+				}
+				final long durationNanos = System.nanoTime() - startNanos;
+
+				System.out.format("%s (%s): %d finds in %dms, %.0f finds/s%n", label, type.getSimpleName(), count, durationNanos / 1_000_000L, count * 1E9 / durationNanos);
+			} finally {
+				entityManager.close();
+			}
+		} finally {
+			entityManagerFactory.close();
+		}
+	}
+
+
+	/**
+	 * Loads recipes bypassing the second level cache, first to warm up, then measuring, and prints
+	 * the heap allocated per recipe loaded, as well as the garbage collections during measurement.
+	 * @param count the number of recipes to be loaded
+	 * @throws IllegalStateException if there are no recipes, or the JVM does not support
+	 *         thread allocation counters
+	 */
+	static private void benchmarkAllocation (final int count) throws IllegalStateException {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) throw new IllegalStateException("thread allocation counters not supported");
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadIdentity = Thread.currentThread().threadId();
+
+		final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(UNIT_NAME, PersistenceConfiguration.properties(UNIT_NAME));
+		try {
+			final EntityManager entityManager = entityManagerFactory.createEntityManager();
+			try {
+				final List<Long> identities = entityManager.createQuery(QUERY_RECIPES, Long.class).setMaxResults(count).getResultList();
+				if (identities.isEmpty()) throw new IllegalStateException("no recipes to be loaded");
+				final Map<String,Object> hints = Map.of("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+				long allocatedBytes = 0, collectionCount = 0, collectionMillis = 0;
+				for (int pass = 0; pass < 2; ++pass) {
+					allocatedBytes = -threadBean.getThreadAllocatedBytes(threadIdentity);
+					for (final GarbageCollectorMXBean collectorBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+						collectionCount -= collectorBean.getCollectionCount();
+						collectionMillis -= collectorBean.getCollectionTime();
+					}
+
+					for (int index = 0; index < count; ++index) {
+						entityManager.find(Recipe.class, identities.get(index % identities.size()), hints);
+						entityManager.clear();
+					}
+
+					allocatedBytes += threadBean.getThreadAllocatedBytes(threadIdentity);
+					for (final GarbageCollectorMXBean collectorBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+						collectionCount += collectorBean.getCollectionCount();
+						collectionMillis += collectorBean.getCollectionTime();
+					}
+					if (pass == 0) collectionCount = collectionMillis = 0;
+				}
+
+				System.out.format("allocation (Recipe): %d loads, %d bytes/load, %d collections taking %dms%n", count, allocatedBytes / count, collectionCount, collectionMillis);
+			} finally {
+				entityManager.close();
+			}
+		} finally {
+			entityManagerFactory.close();
+		}
+	}
+
+
+	/**
+	 * Serializes an array of up to the given number of recipes repeatedly, using both default
+	 * JSON-B serialization and {@link EntityArrayWriter}, and prints the average duration
+	 * of each, after a warm-up round.
+	 * @param count the maximum number of recipes
+	 * @throws IllegalStateException if there are no recipes
+	 */
+	static private void benchmarkSerialization (final int count) throws IllegalStateException {
+		final int rounds = 20;
+		final Recipe[] recipes = loadRecipes(count);
+
+		final EntityArrayWriter writer = new EntityArrayWriter();
+		final Jsonb jsonb = JsonbBuilder.create();
+		try {
+			for (final String label : new String[] { "json-b", "entity-array-writer" }) {
+				long durationNanos = 0;
+				for (int round = -1; round < rounds; ++round) {
+					final OutputStream stream = OutputStream.nullOutputStream();
+					final long startNanos = System.nanoTime();
+					if (label.equals("json-b"))
+						jsonb.toJson(recipes, stream);
+					else
+						writer.writeTo(recipes, Recipe[].class, Recipe[].class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, null, stream);
+					if (round < 0) continue;
+
+					durationNanos += System.nanoTime() - startNanos;
+				}
+
+				System.out.format("%s (%d recipes): %.3fms/array%n", label, recipes.length, durationNanos * 1E-6 / rounds);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Encodes an array of up to the given number of recipes repeatedly as JSON and CBOR, decodes the
+	 * results again, and prints the payload size and average encoding and decoding durations of both
+	 * wire formats, after a warm-up round.
+	 * @param count the maximum number of recipes
+	 * @throws IllegalStateException if there are no recipes
+	 */
+	static private void benchmarkWireFormat (final int count) throws IllegalStateException {
+		final int rounds = 20;
+		final Recipe[] recipes = loadRecipes(count);
+
+		try {
+			for (final String label : new String[] { "json", "cbor" }) {
+				long encodeNanos = 0, decodeNanos = 0;
+				int size = 0;
+				for (int round = -1; round < rounds; ++round) {
+					final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+					final long startNanos = System.nanoTime();
+					final JsonGenerator generator = label.equals("json") ? Json.createGenerator(stream) : new CborGenerator(stream);
+					EntityArrayWriter.writeValue(generator, recipes);
+					generator.flush();
+					final long encodedNanos = System.nanoTime();
+
+					final byte[] payload = stream.toByteArray();
+					if (label.equals("json")) {
+						try (JsonReader reader = Json.createReader(new ByteArrayInputStream(payload))) {
+							reader.readValue();
+						}
+					} else {
+						new CborDecoder(new ByteArrayInputStream(payload)).read();
+					}
+					if (round < 0) continue;
+
+					encodeNanos += encodedNanos - startNanos;
+					decodeNanos += System.nanoTime() - encodedNanos;
+					size = payload.length;
+				}
+
+				System.out.format("%s (%d recipes): %d bytes, encoding %.3fms/array, decoding %.3fms/array%n", label, recipes.length, size, encodeNanos * 1E-6 / rounds, decodeNanos * 1E-6 / rounds);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Loads up to the given number of recipes, which are detached afterwards.
+	 * @param count the maximum number of recipes
+	 * @return the recipes
+	 * @throws IllegalStateException if there are no recipes
+	 */
+	static private Recipe[] loadRecipes (final int count) throws IllegalStateException {
+		final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(UNIT_NAME, PersistenceConfiguration.properties(UNIT_NAME));
+		try {
+			final EntityManager entityManager = entityManagerFactory.createEntityManager();
+			try {
+				final Recipe[] recipes = entityManager.createQuery(QUERY_RECIPE_ENTITIES, Recipe.class).setMaxResults(count).getResultList().toArray(Recipe[]::new);
+				if (recipes.length == 0) throw new IllegalStateException("no recipes to be serialized");
+				return recipes;
+			} finally {
+				entityManager.close();
+			}
+		} finally {
+			entityManagerFactory.close();
+		}
+	}
+
+
+	/**
+	 * Returns unique document content, as document hashes must be unique.
+	 * @return the content
+	 */
+	static private byte[] uniqueContent () {
+		final UUID uuid = UUID.randomUUID();
+		return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+	}
+}
@@ -0,0 +1,169 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.JNDIConnector;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.server.ConnectionPool;
+import org.eclipse.persistence.sessions.server.Server;
+
+
+/**
+ * Collects the deployment specific persistence unit property overrides from the system properties,
+ * which allows connection pool sizes, statement caching and similar settings of persistence.xml to
+ * be tuned per deployment. A system property named {@code eclipselink.*} or {@code jakarta.persistence.*}
+ * overrides the property of the same name in any persistence unit, while one prefixed with the unit name,
+ * as in {@code local_database.eclipselink.connection-pool.default.max}, overrides it in said unit only.
+ * Additionally, system property {@code <unit>.data-source} names a non-JTA data source to be looked up
+ * instead of using EclipseLink's internal connection pools, for example one backed by an external pool.
+ * As the server bootstrap creates it's entity manager factories without property map, the overrides are
+ * applied as session customizer, using the unit name configured as persistence unit property
+ * {@code eclipselink.session-name}: the JDBC connection settings, the data source, the connection pool
+ * sizes and wait timeouts, statement caching and batch writing. Any other property is processed by
+ * EclipseLink before session customization, and is therefore ignored with a warning; such properties,
+ * for example {@code eclipselink.metadata-source}, only take effect as global system property, and only
+ * if persistence.xml doesn't define them. Applied by the {@link SessionLifecycleListener} for the primary
+ * unit, and registered using persistence unit property {@code eclipselink.session.customizer} for any other.
+ */
+public class PersistenceConfiguration implements SessionCustomizer {
+	static private final Logger LOGGER = Logger.getLogger(PersistenceConfiguration.class.getName());
+	static private final String[] PROPERTY_PREFIXES = { "eclipselink.", "jakarta.persistence." };
+	static private final String DATA_SOURCE_SUFFIX = ".data-source";
+	static private final String NON_JTA_DATA_SOURCE = "jakarta.persistence.nonJtaDataSource";
+	static private final String CONNECTION_POOL_PREFIX = "eclipselink.connection-pool.";
+
+
+	/**
+	 * Returns the property overrides for the given persistence unit, as defined by the system properties.
+	 * @param unitName the persistence unit name
+	 * @return the property overrides
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public Map<String,Object> properties (final String unitName) throws NullPointerException {
+		final String unitPrefix = unitName + ".";
+		final Properties systemProperties = System.getProperties();
+		final Map<String,Object> properties = new HashMap<>();
+
+		// generic overrides first, so unit specific ones take precedence
+		for (final String name : systemProperties.stringPropertyNames())
+			for (final String prefix : PROPERTY_PREFIXES)
+				if (name.startsWith(prefix)) properties.put(name, systemProperties.getProperty(name));
+
+		for (final String name : systemProperties.stringPropertyNames())
+			if (name.startsWith(unitPrefix))
+				for (final String prefix : PROPERTY_PREFIXES)
+					if (name.startsWith(prefix, unitPrefix.length())) properties.put(name.substring(unitPrefix.length()), systemProperties.getProperty(name));
+
+		final String dataSource = systemProperties.getProperty(unitName + DATA_SOURCE_SUFFIX);
+		if (dataSource != null) properties.put(NON_JTA_DATA_SOURCE, dataSource);
+
+		return properties;
+	}
+
+
+	/**
+	 * Applies the property overrides of the persistence unit named like the given session.
+	 * @param session the server session, not yet logged in
+	 */
+	@Override
+	public void customize (final Session session) {
+		final DatabaseLogin login = (DatabaseLogin) session.getDatasourceLogin();
+		for (final Map.Entry<String,Object> entry : properties(session.getName()).entrySet()) {
+			final String name = entry.getKey(), value = entry.getValue().toString().trim();
+			try {
+				if (!apply(session, login, name, value))
+					LOGGER.log(Level.WARNING, "property override {0} of persistence unit {1} ignored, as it is processed before session customization", new Object[] { name, session.getName() });
+			} catch (final IllegalArgumentException e) {
+				LOGGER.log(Level.WARNING, "illegal value \"{0}\" of property override {1} ignored", new Object[] { value, name });
+			}
+		}
+	}
+
+
+	/**
+	 * Applies the given property override to the given session.
+	 * @param session the server session
+	 * @param login the session's login
+	 * @param name the property name
+	 * @param value the property value
+	 * @return whether or not the property has been applied
+	 * @throws IllegalArgumentException if the given value is illegal
+	 */
+	static private boolean apply (final Session session, final DatabaseLogin login, final String name, final String value) throws IllegalArgumentException {
+		switch (name) {
+			case "jakarta.persistence.jdbc.url":
+				login.setURL(value);
+				return true;
+			case "jakarta.persistence.jdbc.user":
+				login.setUserName(value);
+				return true;
+			case "jakarta.persistence.jdbc.password":
+				login.setPassword(value);
+				return true;
+			case "jakarta.persistence.jdbc.driver":
+				login.setDriverClassName(value);
+				return true;
+			case NON_JTA_DATA_SOURCE:
+				login.setConnector(new JNDIConnector(value));
+				login.useExternalConnectionPooling();
+				return true;
+			case "eclipselink.jdbc.cache-statements":
+				login.setShouldCacheAllStatements(Boolean.parseBoolean(value));
+				return true;
+			case "eclipselink.jdbc.cache-statements.size":
+				login.setStatementCacheSize(Integer.parseInt(value));
+				return true;
+			case "eclipselink.jdbc.batch-writing":
+				login.setUsesBatchWriting(!value.equalsIgnoreCase("None"));
+				login.setUsesJDBCBatchWriting(value.equalsIgnoreCase("JDBC"));
+				return true;
+			case "eclipselink.jdbc.batch-writing.size":
+				login.setMaxBatchWritingSize(Integer.parseInt(value));
+				return true;
+			default:
+				return name.startsWith(CONNECTION_POOL_PREFIX) && session instanceof Server && applyConnectionPool((Server) session, name.substring(CONNECTION_POOL_PREFIX.length()), value);
+		}
+	}
+
+
+	/**
+	 * Applies the given connection pool property override to the given session.
+	 * @param server the server session
+	 * @param name the property name without connection pool prefix, as in {@code default.max}
+	 * @param value the property value
+	 * @return whether or not the property has been applied
+	 * @throws IllegalArgumentException if the given value is illegal
+	 */
+	static private boolean applyConnectionPool (final Server server, final String name, final String value) throws IllegalArgumentException {
+		final int delimiterPosition = name.lastIndexOf('.');
+		final String poolName = delimiterPosition == -1 ? "default" : name.substring(0, delimiterPosition);
+		final ConnectionPool pool = switch (poolName) {
+			case "default" -> server.getDefaultConnectionPool();
+			case "read" -> server.getReadConnectionPool();
+			default -> server.getConnectionPool(poolName);
+		};
+		if (pool == null) return false;
+
+		switch (name.substring(delimiterPosition + 1)) {
+			case "initial":
+				pool.setInitialNumberOfConnections(Integer.parseInt(value));
+				return true;
+			case "min":
+				pool.setMinNumberOfConnections(Integer.parseInt(value));
+				return true;
+			case "max":
+				pool.setMaxNumberOfConnections(Integer.parseInt(value));
+				return true;
+			case "wait":
+				pool.setWaitTimeout(Integer.parseInt(value));
+				return true;
+			default:
+				return false;
+		}
+	}
+}
@@ -1,7 +1,7 @@
 package edu.sb.dinner_planner.service;
 
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.Stream;
 import edu.sb.dinner_planner.persistence.AccessPlan;
 import edu.sb.dinner_planner.persistence.Document;
 import edu.sb.dinner_planner.persistence.Person;
@@ -10,9 +10,9 @@ import edu.sb.dinner_planner.persistence.Victual;
 import edu.sb.tool.ContentTypes;
 import edu.sb.tool.Copyright;
 import edu.sb.tool.HashCodes;
-import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -30,6 +30,7 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.RedirectionException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -43,8 +44,7 @@ public class PersonService {
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 	static private final String HEADER_SET_PASSWORD = "X-Set-Password";
 
-	static private final String QUERY_PEOPLE = "select p.identity from Person as p where "
-		+ "(:minCreated is null or p.created >= :minCreated) and "
+	static public final String PERSON_CRITERIA = "(:minCreated is null or p.created >= :minCreated) and "
 		+ "(:maxCreated is null or p.created <= :maxCreated) and "
 		+ "(:minModified is null or p.modified >= :minModified) and "
 		+ "(:maxModified is null or p.modified <= :maxModified) and "
@@ -58,6 +58,27 @@ public class PersonService {
 		+ "(:city is null or p.address.city = :city) and "
 		+ "(:country is null or p.address.country = :country) and "
 		+ "(:postcode is null or p.address.postcode = :postcode)";
+	static public final String PERSON_ORDERING = "p.identity";
+	static private final String QUERY_PEOPLE = "select p.identity from Person as p where " + PERSON_CRITERIA + " order by " + PERSON_ORDERING;
+	static private final String QUERY_PERSON_VALIDATORS = "select max(p.modified), count(p) from Person as p where " + PERSON_CRITERIA;
+	static private final String QUERY_PERSON_EXPORT = "select p from Person as p where " + PERSON_CRITERIA + " order by p.identity";
+	static private final FieldProjection PERSON_FIELDS = new FieldProjection("Person", "p")
+		.property("email", "email")
+		.property("gender", "gender")
+		.property("group", "group")
+		.property("name", "name")
+		.property("address", "address")
+		.attribute("avatar-reference", "coalesce(avatar.identity, 1)", "left join p.avatar as avatar");
+	static private final FieldProjection ACCESS_PLAN_FIELDS = new FieldProjection("AccessPlan", "a")
+		.property("application", "application")
+		.property("variant", "variant")
+		.property("key", "key")
+		.attribute("tenant-reference", "a.tenant.identity", null);
+	static private final String PERSON_RECIPE_CRITERIA = "r.author.identity = :personIdentity";
+	static private final String PERSON_VICTUAL_CRITERIA = "v.author.identity = :personIdentity";
+	static private final String PERSON_ACCESS_PLAN_CRITERIA = "a.tenant.identity = :personIdentity";
+	static public final String QUERY_PERSON_RECIPES = "select r.identity from Recipe as r where " + PERSON_RECIPE_CRITERIA + " order by " + RecipeService.RECIPE_ORDERING;
+	static public final String QUERY_PERSON_VICTUALS = "select v.identity from Victual as v where " + PERSON_VICTUAL_CRITERIA + " order by " + VictualService.VICTUAL_ORDERING;
 
 	@PersistenceContext(unitName="local_database")
 	private EntityManager entityManager;
@@ -81,12 +102,14 @@ public class PersonService {
 	 * @param city the city, or {@code null} for undefined
 	 * @param country the country, or {@code null} for undefined
 	 * @param postcode the postcode, or {@code null} for undefined
-	 * @return the matching people, sorted by name and email
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching people, or their requested fields, sorted by identity
+	 * @throws RedirectionException (HTTP 304) if the client's representation is still current
 	 */
 	@GET
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Person[] queryPeople (
+	public Object[] queryPeople (
 		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
 		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
 		@QueryParam("min-created") final Long minCreated,
@@ -102,65 +125,123 @@ public class PersonService {
 		@QueryParam("postcode") @Size(min=1) final String postcode,
 		@QueryParam("street") @Size(min=1) final String street,
 		@QueryParam("city") @Size(min=1) final String city,
-		@QueryParam("country") @Size(min=1) final String country
+		@QueryParam("country") @Size(min=1) final String country,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = PERSON_FIELDS.parse(fields);
+		final Object[] validators = Metrics.timed("QUERY_PERSON_VALIDATORS", bindPersonCriteria(this.entityManager.createQuery(QUERY_PERSON_VALIDATORS, Object[].class), minCreated, maxCreated, minModified, maxModified, email, gender, group, title, surname, forename, postcode, street, city, country)::getSingleResult);
+		ConditionalRequestFilter.evaluate((Long) validators[0], (Long) validators[1]);
+
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(PERSON_FIELDS.query(fieldNames, PERSON_CRITERIA, PERSON_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			bindPersonCriteria(query, minCreated, maxCreated, minModified, maxModified, email, gender, group, title, surname, forename, postcode, street, city, country);
+			return Metrics.timed("QUERY_PERSON_FIELDS", query::getResultStream)
+				.map(row -> PERSON_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
 		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_PEOPLE, Long.class);
 		if (pagingOffset != null) query.setFirstResult(pagingOffset);
 		if (pagingLimit != null) query.setMaxResults(pagingLimit);
 
-		final Person[] people = query
-			.setParameter("minCreated", minCreated)
-			.setParameter("maxCreated", maxCreated)
-			.setParameter("minModified", minModified)
-			.setParameter("maxModified", maxModified)
-			.setParameter("email", email)
-			.setParameter("gender", gender)
-			.setParameter("group", group)
-			.setParameter("title", title)
-			.setParameter("surname", surname)
-			.setParameter("forename", forename)
-			.setParameter("postcode", postcode)
-			.setParameter("street", street)
-			.setParameter("city", city)
-			.setParameter("country", country)
-			.getResultStream()
+		bindPersonCriteria(query, minCreated, maxCreated, minModified, maxModified, email, gender, group, title, surname, forename, postcode, street, city, country);
+		final Person[] people = Metrics.timed("QUERY_PEOPLE", query::getResultStream)
 			.map(identity -> this.entityManager.find(Person.class, identity))
 			.filter(Objects::nonNull)
-			.sorted()
 			.toArray(Person[]::new);
 
 		return people;
 	}
 
 
+	/**
+	 * HTTP Signature: GET people IN: - OUT: application/x-ndjson. Streams all matching
+	 * people as newline delimited JSON, see {@link EntityExport}.
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param email the email, or {@code null} for undefined
+	 * @param gender the gender, or {@code null} for undefined
+	 * @param group the group, or {@code null} for undefined
+	 * @param title the title, or {@code null} for undefined
+	 * @param surname the surname, or {@code null} for undefined
+	 * @param forename the forename, or {@code null} for undefined
+	 * @param street the street, or {@code null} for undefined
+	 * @param city the city, or {@code null} for undefined
+	 * @param country the country, or {@code null} for undefined
+	 * @param postcode the postcode, or {@code null} for undefined
+	 * @return the matching people, sorted by identity
+	 */
+	@GET
+	@Consumes
+	@Produces(EntityExport.APPLICATION_NDJSON_EXPORT)
+	public EntityExport<Person> exportPeople (
+		@QueryParam("min-created") final Long minCreated,
+		@QueryParam("max-created") final Long maxCreated,
+		@QueryParam("min-modified") final Long minModified,
+		@QueryParam("max-modified") final Long maxModified,
+		@QueryParam("email") final String email,
+		@QueryParam("gender") final Person.Gender gender,
+		@QueryParam("group") final Person.Group group,
+		@QueryParam("title") @Size(min=1) final String title,
+		@QueryParam("surname") @Size(min=1) final String surname,
+		@QueryParam("forename") @Size(min=1) final String forename,
+		@QueryParam("postcode") @Size(min=1) final String postcode,
+		@QueryParam("street") @Size(min=1) final String street,
+		@QueryParam("city") @Size(min=1) final String city,
+		@QueryParam("country") @Size(min=1) final String country
+	) {
+		return new EntityExport<>(this.entityManager.getEntityManagerFactory(), "QUERY_PERSON_EXPORT", exportEntityManager -> bindPersonCriteria(
+			exportEntityManager.createQuery(QUERY_PERSON_EXPORT, Person.class),
+			minCreated, maxCreated, minModified, maxModified, email, gender, group, title, surname, forename, postcode, street, city, country
+		));
+	}
+
+
 	/**
 	 * HTTP Signature: GET people/requester IN: - OUT: application/json
 	 * @param requesterIdentity the requester identity
-	 * @return the matching person
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching person, or it's requested fields
 	 */
 	@GET
 	@Path("requester")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Person findRequester (
-		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity
+	public Object findRequester (
+		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
-		return this.findPerson(requesterIdentity);
+		return this.findPerson(requesterIdentity, fields);
 	}
 
 
 	/**
 	 * HTTP Signature: GET people/{id} IN: - OUT: application/json
 	 * @param personIdentity the person identity
-	 * @return the matching person
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching person, or it's requested fields
 	 */
 	@GET
 	@Path("{id}")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Person findPerson (
-		@PathParam("id") @Positive final long personIdentity
+	public Object findPerson (
+		@PathParam("id") @Positive final long personIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = PERSON_FIELDS.parse(fields);
+		if (fieldNames != null) {
+			final List<Tuple> rows = Metrics.timed("QUERY_PERSON_FIELDS", this.entityManager.createQuery(PERSON_FIELDS.query(fieldNames, "p.identity = :personIdentity", null), Tuple.class)
+				.setParameter("personIdentity", personIdentity)::getResultList);
+			if (rows.isEmpty()) throw new ClientErrorException(Status.NOT_FOUND);
+			return PERSON_FIELDS.map(fieldNames, rows.get(0));
+		}
+
 		final Person person = this.entityManager.find(Person.class, personIdentity);
 		if (person == null) throw new ClientErrorException(Status.NOT_FOUND);
 
@@ -221,7 +302,7 @@ public class PersonService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			// final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
+			// final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			// not applicable for person inserts
 
 			return person.getIdentity();
@@ -299,7 +380,7 @@ public class PersonService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			// final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
+			// final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			// not applicable for person updates
 
 			return person.getIdentity();
@@ -332,6 +413,9 @@ public class PersonService {
 			final Person person = this.entityManager.find(Person.class, personIdentity);
 			if (person == null) throw new ClientErrorException(Status.NOT_FOUND);
 			if (requester != person & requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager).addPersonReferrers(person.getIdentity());
+			ChangeLogListener.appendCascaded(this.entityManager, Recipe.class, cacheInvalidator.identities(Recipe.class), false);
+			ChangeLogListener.appendCascaded(this.entityManager, Victual.class, cacheInvalidator.identities(Victual.class), false);
 
 			try {
 				this.entityManager.remove(person);
@@ -342,8 +426,7 @@ public class PersonService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			// final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			// not applicable for person deletes
+			cacheInvalidator.evict();
 
 			return person.getIdentity();
 		} finally {
@@ -357,16 +440,19 @@ public class PersonService {
 	 * HTTP Signature: GET people/{id}/access-plans IN: - OUT: application/json
 	 * @param requesterIdentity the requester identity
 	 * @param personIdentity the person identity
-	 * @return the access plans associated with the matching person
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the access plans associated with the matching person, or their requested fields, sorted by ID
 	 */
 	@GET
 	@Path("{id}/access-plans")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public AccessPlan[] queryPersonAccessPlans (
+	public Object[] queryPersonAccessPlans (
 		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity,
-		@PathParam("id") @Positive final long personIdentity
+		@PathParam("id") @Positive final long personIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = ACCESS_PLAN_FIELDS.parse(fields);
 		final Person requester = this.entityManager.find(Person.class, requesterIdentity);
 		if (requester == null) throw new ClientErrorException(Status.FORBIDDEN);
 
@@ -374,6 +460,13 @@ public class PersonService {
 		if (person == null) throw new ClientErrorException(Status.NOT_FOUND);
 		if (requester != person & requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
 
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(ACCESS_PLAN_FIELDS.query(fieldNames, PERSON_ACCESS_PLAN_CRITERIA, "a.identity"), Tuple.class);
+			return Metrics.timed("QUERY_PERSON_ACCESS_PLAN_FIELDS", query.setParameter("personIdentity", personIdentity)::getResultStream)
+				.map(row -> ACCESS_PLAN_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
 		return person.getAccessPlans().stream().sorted().toArray(AccessPlan[]::new);
 	}
 
@@ -426,8 +519,7 @@ public class PersonService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			if (insertMode) secondLevelCache.evict(Person.class, requester.getIdentity());
+			if (insertMode) new CacheInvalidator(this.entityManager).add(Person.class, requester.getIdentity()).evict();
 
 			return accessPlan.getIdentity();
 		} finally {
@@ -442,24 +534,43 @@ public class PersonService {
 	 * @param personIdentity the person identity
 	 * @param pagingOffset the paging offset, or {@code null} for none
 	 * @param pagingLimit the paging limit, or {@code null} for none
-	 * @return the recipes authored by the matching person, sorted by title
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the recipes authored by the matching person, or their requested fields, sorted by title
 	 */
 	@GET
 	@Path("{id}/recipes")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Recipe[] queryPersonRecipes (
+	public Object[] queryPersonRecipes (
 		@PathParam("id") @Positive final long personIdentity,
-		@QueryParam("paging-offset") @PositiveOrZero final Long pagingOffset,
-		@QueryParam("paging-limit") @Positive final Long pagingLimit
+		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
+		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = RecipeService.RECIPE_FIELDS.parse(fields);
 		final Person person = this.entityManager.find(Person.class, personIdentity);
 		if (person == null) throw new ClientErrorException(Status.NOT_FOUND);
 
-		Stream<Recipe> stream = person.getRecipes().stream().sorted(Recipe.TITLE_COMPARATOR);
-		if (pagingOffset != null) stream = stream.skip(pagingOffset);
-		if (pagingLimit != null) stream = stream.limit(pagingLimit);
-		final Recipe[] recipes = stream.toArray(Recipe[]::new);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(RecipeService.RECIPE_FIELDS.query(fieldNames, PERSON_RECIPE_CRITERIA, RecipeService.RECIPE_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			query.setParameter("personIdentity", personIdentity);
+			return Metrics.timed("QUERY_PERSON_RECIPE_FIELDS", query::getResultStream)
+				.map(row -> RecipeService.RECIPE_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
+		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_PERSON_RECIPES, Long.class);
+		if (pagingOffset != null) query.setFirstResult(pagingOffset);
+		if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+		query.setParameter("personIdentity", personIdentity);
+		final Recipe[] recipes = Metrics.timed("QUERY_PERSON_RECIPES", query::getResultStream)
+			.map(identity -> this.entityManager.find(Recipe.class, identity))
+			.filter(Objects::nonNull)
+			.toArray(Recipe[]::new);
 
 		return recipes;
 	}
@@ -470,25 +581,83 @@ public class PersonService {
 	 * @param personIdentity the person identity
 	 * @param pagingOffset the paging offset, or {@code null} for none
 	 * @param pagingLimit the paging limit, or {@code null} for none
-	 * @return the victuals authored by the matching person, sorted by alias
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the victuals authored by the matching person, or their requested fields, sorted by alias
 	 */
 	@GET
 	@Path("{id}/victuals")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Victual[] queryPersonVictuals (
+	public Object[] queryPersonVictuals (
 		@PathParam("id") @Positive final long personIdentity,
-		@QueryParam("paging-offset") @PositiveOrZero final Long pagingOffset,
-		@QueryParam("paging-limit") @Positive final Long pagingLimit
+		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
+		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = VictualService.VICTUAL_FIELDS.parse(fields);
 		final Person person = this.entityManager.find(Person.class, personIdentity);
 		if (person == null) throw new ClientErrorException(Status.NOT_FOUND);
 
-		Stream<Victual> stream = person.getVictuals().stream().sorted(Victual.ALIAS_COMPARATOR);
-		if (pagingOffset != null) stream = stream.skip(pagingOffset);
-		if (pagingLimit != null) stream = stream.limit(pagingLimit);
-		final Victual[] victuals = stream.toArray(Victual[]::new);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(VictualService.VICTUAL_FIELDS.query(fieldNames, PERSON_VICTUAL_CRITERIA, VictualService.VICTUAL_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			query.setParameter("personIdentity", personIdentity);
+			return Metrics.timed("QUERY_PERSON_VICTUAL_FIELDS", query::getResultStream)
+				.map(row -> VictualService.VICTUAL_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
+		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_PERSON_VICTUALS, Long.class);
+		if (pagingOffset != null) query.setFirstResult(pagingOffset);
+		if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+		query.setParameter("personIdentity", personIdentity);
+		final Victual[] victuals = Metrics.timed("QUERY_PERSON_VICTUALS", query::getResultStream)
+			.map(identity -> this.entityManager.find(Victual.class, identity))
+			.filter(Objects::nonNull)
+			.toArray(Victual[]::new);
 
 		return victuals;
 	}
+
+
+	/**
+	 * Sets the parameters of the given person criteria query.
+	 * @param <T> the query result type
+	 * @param query the query
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param email the email, or {@code null} for undefined
+	 * @param gender the gender, or {@code null} for undefined
+	 * @param group the group, or {@code null} for undefined
+	 * @param title the title, or {@code null} for undefined
+	 * @param surname the surname, or {@code null} for undefined
+	 * @param forename the forename, or {@code null} for undefined
+	 * @param postcode the postcode, or {@code null} for undefined
+	 * @param street the street, or {@code null} for undefined
+	 * @param city the city, or {@code null} for undefined
+	 * @param country the country, or {@code null} for undefined
+	 * @return the given query
+	 */
+	static private <T> TypedQuery<T> bindPersonCriteria (final TypedQuery<T> query, final Long minCreated, final Long maxCreated, final Long minModified, final Long maxModified, final String email, final Person.Gender gender, final Person.Group group, final String title, final String surname, final String forename, final String postcode, final String street, final String city, final String country) {
+		return query
+			.setParameter("minCreated", minCreated)
+			.setParameter("maxCreated", maxCreated)
+			.setParameter("minModified", minModified)
+			.setParameter("maxModified", maxModified)
+			.setParameter("email", email)
+			.setParameter("gender", gender)
+			.setParameter("group", group)
+			.setParameter("title", title)
+			.setParameter("surname", surname)
+			.setParameter("forename", forename)
+			.setParameter("postcode", postcode)
+			.setParameter("street", street)
+			.setParameter("city", city)
+			.setParameter("country", country);
+	}
 }
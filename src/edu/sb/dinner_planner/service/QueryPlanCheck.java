@@ -0,0 +1,146 @@
+package edu.sb.dinner_planner.service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.jpa.JpaQuery;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.sessions.Session;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.Persistence;
+import jakarta.persistence.TypedQuery;
+
+
+/**
+ * Command line check verifying that the common query shapes of the services are supported by indexes,
+ * intended to be run against a migrated database as part of the build pipeline. Each shape is one of the
+ * services' JPQL queries, usually one built from their selective criteria, with a single criterion bound
+ * to a sample value, and every other one to the value the services bind for an undefined criterion. The
+ * shapes are translated into SQL by EclipseLink with the parameters inlined, as MariaDB's client side
+ * prepared statements do; the check fails with exit code 1 if the {@code EXPLAIN} output of any shape reports
+ * a full table scan without any usable index. Small tables may still be scanned by the optimizer's choice,
+ * which is why only the absence of a usable index counts as failure.
+ */
+public class QueryPlanCheck {
+	static private final String UNIT_NAME = "local_database";
+	static private final long SAMPLE_TIMESTAMP = 1700000000000L;
+	static private final String QUERY_RECIPES = "select r.identity from Recipe as r where " + RecipeService.RECIPE_CRITERIA + " order by " + RecipeService.RECIPE_ORDERING;
+	static private final String QUERY_VICTUALS = "select v.identity from Victual as v where " + VictualService.VICTUAL_CRITERIA + " order by " + VictualService.VICTUAL_ORDERING;
+	static private final String QUERY_PEOPLE = "select p.identity from Person as p where " + PersonService.PERSON_CRITERIA + " order by " + PersonService.PERSON_ORDERING;
+	static private final Set<String> COLLECTION_PARAMETERS = Set.of("diets", "excludedVictualIdentities", "identities");
+	static private final Map<String,QueryShape> QUERY_SHAPES = new LinkedHashMap<>();
+
+	static {
+		QUERY_SHAPES.put("recipes by creation", new QueryShape(QUERY_RECIPES, Map.of("minCreated", SAMPLE_TIMESTAMP)));
+		QUERY_SHAPES.put("recipes by modification", new QueryShape(QUERY_RECIPES, Map.of("minModified", SAMPLE_TIMESTAMP)));
+		QUERY_SHAPES.put("recipes by category", new QueryShape(QUERY_RECIPES, Map.of("category", Recipe.Category.MAIN_COURSE)));
+		QUERY_SHAPES.put("recipes by diet", new QueryShape(QUERY_RECIPES, Map.of("ignoreDiets", false, "diets", Set.of(Victual.Diet.VEGAN, Victual.Diet.LACTO_VEGETARIAN))));
+		QUERY_SHAPES.put("recipes by excluded victual", new QueryShape(QUERY_RECIPES, Map.of("ignoreExcludedVictuals", false, "excludedVictualIdentities", Set.of(1L))));
+		QUERY_SHAPES.put("recipes by author", new QueryShape(PersonService.QUERY_PERSON_RECIPES, Map.of("personIdentity", 1L)));
+		QUERY_SHAPES.put("ingredients by recipe", new QueryShape(RecipeService.QUERY_RECIPE_INGREDIENTS, Map.of("recipeIdentity", 1L)));
+		QUERY_SHAPES.put("victuals by modification", new QueryShape(QUERY_VICTUALS, Map.of("minModified", SAMPLE_TIMESTAMP)));
+		QUERY_SHAPES.put("victuals by diet", new QueryShape(QUERY_VICTUALS, Map.of("ignoreDiets", false, "diets", Set.of(Victual.Diet.VEGAN, Victual.Diet.LACTO_VEGETARIAN))));
+		QUERY_SHAPES.put("victuals by author", new QueryShape(PersonService.QUERY_PERSON_VICTUALS, Map.of("personIdentity", 1L)));
+		QUERY_SHAPES.put("people by modification", new QueryShape(QUERY_PEOPLE, Map.of("minModified", SAMPLE_TIMESTAMP)));
+		QUERY_SHAPES.put("people by surname", new QueryShape(QUERY_PEOPLE, Map.of("surname", "Smith")));
+		QUERY_SHAPES.put("people by forename", new QueryShape(QUERY_PEOPLE, Map.of("forename", "Sam")));
+		QUERY_SHAPES.put("people by city", new QueryShape(QUERY_PEOPLE, Map.of("city", "Berlin")));
+		QUERY_SHAPES.put("people by country", new QueryShape(QUERY_PEOPLE, Map.of("country", "Germany")));
+		QUERY_SHAPES.put("people by postcode", new QueryShape(QUERY_PEOPLE, Map.of("postcode", "10115")));
+	}
+
+
+	/**
+	 * Query shape, i.e. a JPQL query and the sample values of it's selective parameters.
+	 */
+	static private record QueryShape (String query, Map<String,Object> parameters) {}
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private QueryPlanCheck () {}
+
+
+	/**
+	 * Application entry point.
+	 * @param args the runtime arguments: JDBC URL, user and password
+	 * @throws SQLException if there is a database related problem
+	 */
+	static public void main (final String[] args) throws SQLException {
+		if (args.length < 3) throw new IllegalArgumentException("usage: QueryPlanCheck <jdbc-url> <user> <password>");
+
+		// neither migrate nor warm up the database, see SessionLifecycleListener
+		final Map<String,Object> properties = PersistenceConfiguration.properties(UNIT_NAME);
+		properties.put(PersistenceUnitProperties.JDBC_URL, args[0]);
+		properties.put(PersistenceUnitProperties.JDBC_USER, args[1]);
+		properties.put(PersistenceUnitProperties.JDBC_PASSWORD, args[2]);
+		properties.put(PersistenceUnitProperties.SESSION_CUSTOMIZER, PersistenceConfiguration.class.getName());
+
+		int failures = 0;
+		final EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(UNIT_NAME, properties);
+		try {
+			final EntityManager entityManager = entityManagerFactory.createEntityManager();
+			try {
+				entityManager.getTransaction().begin();
+				final Connection connection = entityManager.unwrap(Connection.class);
+				for (final Map.Entry<String,QueryShape> entry : QUERY_SHAPES.entrySet()) {
+					final String sql = translate(entityManager, entry.getValue());
+					try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+						while (resultSet.next()) {
+							final boolean fullScan = "ALL".equals(resultSet.getString("type")) && resultSet.getString("possible_keys") == null;
+							System.out.format("%s %s: table %s, access %s, key %s%n", fullScan ? "FAIL" : "ok  ", entry.getKey(), resultSet.getString("table"), resultSet.getString("type"), resultSet.getString("key"));
+							if (fullScan) failures += 1;
+						}
+					}
+				}
+			} finally {
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+				entityManager.close();
+			}
+		} finally {
+			entityManagerFactory.close();
+		}
+
+		if (failures > 0) System.exit(1);
+	}
+
+
+	/**
+	 * Returns the SQL generated for the given query shape, with the parameters inlined.
+	 * Parameters without sample value are bound like the services bind undefined criteria.
+	 * @param entityManager the entity manager
+	 * @param shape the query shape
+	 * @return the SQL text
+	 */
+	static private String translate (final EntityManager entityManager, final QueryShape shape) {
+		final TypedQuery<Long> query = entityManager.createQuery(shape.query(), Long.class);
+		final Map<String,Object> arguments = new HashMap<>();
+		for (final Parameter<?> parameter : query.getParameters()) {
+			final String name = parameter.getName();
+			final Object value = shape.parameters().containsKey(name)
+				? shape.parameters().get(name)
+				: (name.startsWith("ignore") ? Boolean.TRUE : (COLLECTION_PARAMETERS.contains(name) ? Collections.singleton(null) : null));
+			arguments.put(name, value instanceof Set ? new ArrayList<>((Set<?>) value) : value);
+		}
+
+		final DatabaseRecord translationRow = new DatabaseRecord();
+		arguments.forEach(translationRow::put);
+
+		final DatabaseQuery databaseQuery = query.unwrap(JpaQuery.class).getDatabaseQuery();
+		return databaseQuery.getTranslatedSQLString(entityManager.unwrap(Session.class), translationRow);
+	}
+}
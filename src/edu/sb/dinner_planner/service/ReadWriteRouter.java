@@ -0,0 +1,113 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Priority;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Response.Status.Family;
+import jakarta.ws.rs.ext.Provider;
+
+
+/**
+ * JAX-RS filter provider routing the reads of GET and HEAD requests to the read replica persistence
+ * unit {@value #REPLICA_UNIT}, while any other request uses the primary persistence unit. Requesters
+ * that successfully performed a mutating request remain routed to the primary for the window defined
+ * by system property {@value #PROPERTY_STICKINESS} (in milliseconds, default 5000), which provides them
+ * with read-your-writes consistency despite replication lag. Routing is disabled unless system property
+ * {@value #PROPERTY_ENABLED} is {@code true}; the replica's connection settings are configured like those
+ * of any other persistence unit, see {@link PersistenceConfiguration}, which for example allows local
+ * testing using two embedded databases. The replica unit has no second level cache, as it would
+ * otherwise serve entities that committed primary mutations never invalidate; it's reads therefore
+ * always reflect the replica's current state. Service methods opt into routing using
+ * {@link #select(EntityManager, EntityManager)}.
+ */
+@Provider
+@Priority(Priorities.USER)
+public class ReadWriteRouter implements ContainerRequestFilter, ContainerResponseFilter {
+	static public final String REPLICA_UNIT = "replica_database";
+	static public final String PROPERTY_ENABLED = "dinner_planner.replica.enabled";
+	static public final String PROPERTY_STICKINESS = "dinner_planner.replica.stickiness";
+	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
+	static private final int MAX_STICKY_REQUESTERS = 10_000;
+	static private final boolean ENABLED = Boolean.getBoolean(PROPERTY_ENABLED);
+	static private final long STICKINESS_NANOS = Long.getLong(PROPERTY_STICKINESS, 5000L) * 1_000_000L;
+	static private final ThreadLocal<Boolean> REPLICA_ROUTED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	static private final Map<Long,Long> STICKY_REQUESTERS = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Returns the entity manager to be used for the reads of the request being processed by the current thread.
+	 * @param primaryEntityManager the primary entity manager
+	 * @param replicaEntityManager the replica entity manager
+	 * @return the replica entity manager if the current request is routed to the replica, otherwise the primary one
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static public EntityManager select (final EntityManager primaryEntityManager, final EntityManager replicaEntityManager) throws NullPointerException {
+		if (primaryEntityManager == null | replicaEntityManager == null) throw new NullPointerException();
+		return REPLICA_ROUTED.get() ? replicaEntityManager : primaryEntityManager;
+	}
+
+
+	/**
+	 * Routes the reads of the given request to the replica if it is a GET or HEAD request,
+	 * and the requester has not recently performed a mutating request.
+	 * @param requestContext the request context
+	 */
+	public void filter (final ContainerRequestContext requestContext) {
+		final String method = requestContext.getMethod();
+		final boolean readOnly = method.equals("GET") | method.equals("HEAD");
+		final Long requesterIdentity = requesterIdentity(requestContext);
+
+		boolean sticky = false;
+		if (requesterIdentity != null) {
+			final Long expiry = STICKY_REQUESTERS.get(requesterIdentity);
+			sticky = expiry != null && expiry - System.nanoTime() > 0;
+			if (expiry != null & !sticky) STICKY_REQUESTERS.remove(requesterIdentity, expiry);
+		}
+
+		REPLICA_ROUTED.set(ENABLED & readOnly & !sticky);
+	}
+
+
+	/**
+	 * Resets the routing of the current thread, and pins the requester to the primary
+	 * if the given request successfully performed a mutation.
+	 * @param requestContext the request context
+	 * @param responseContext the response context
+	 */
+	public void filter (final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+		REPLICA_ROUTED.remove();
+
+		final String method = requestContext.getMethod();
+		if (!ENABLED | method.equals("GET") | method.equals("HEAD") | method.equals("OPTIONS")) return;
+		if (responseContext.getStatusInfo().getFamily() != Family.SUCCESSFUL) return;
+
+		final Long requesterIdentity = requesterIdentity(requestContext);
+		if (requesterIdentity == null) return;
+
+		final long now = System.nanoTime();
+		if (STICKY_REQUESTERS.size() >= MAX_STICKY_REQUESTERS)
+			STICKY_REQUESTERS.values().removeIf(expiry -> expiry - now <= 0);
+		STICKY_REQUESTERS.put(requesterIdentity, now + STICKINESS_NANOS);
+	}
+
+
+	/**
+	 * Returns the authenticated requester identity of the given request.
+	 * @param requestContext the request context
+	 * @return the requester identity, or {@code null} for none
+	 */
+	static private Long requesterIdentity (final ContainerRequestContext requestContext) {
+		final String text = requestContext.getHeaderString(HEADER_REQUESTER_IDENTITY);
+		try {
+			return text == null ? null : Long.valueOf(text);
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package edu.sb.dinner_planner.service;
+
+import edu.sb.dinner_planner.persistence.Ingredient;
+import edu.sb.dinner_planner.persistence.Person;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+import edu.sb.tool.FieldPropertyStrategy;
+import jakarta.json.bind.annotation.JsonbProperty;
+import jakarta.json.bind.annotation.JsonbVisibility;
+
+
+/**
+ * JSON-B transfer type representing a graph of recipes together with their requested
+ * related entities. Related entities are listed once each, and are correlated with
+ * their recipes using the recipes' and ingredients' reference attributes.
+ */
+@JsonbVisibility(FieldPropertyStrategy.class)
+public class RecipeGraph extends Object {
+	static private final Ingredient[] NO_INGREDIENTS = {};
+	static private final Person[] NO_PEOPLE = {};
+	static private final Victual[] NO_VICTUALS = {};
+
+	@JsonbProperty
+	private final Recipe[] recipes;
+
+	@JsonbProperty
+	private final Ingredient[] ingredients;
+
+	@JsonbProperty
+	private final Person[] authors;
+
+	@JsonbProperty
+	private final Victual[] victuals;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param recipes the recipes
+	 * @param ingredients the ingredients of said recipes, or {@code null} for none
+	 * @param authors the authors of said recipes, or {@code null} for none
+	 * @param victuals the victuals of said ingredients, or {@code null} for none
+	 * @throws NullPointerException if the given recipes are {@code null}
+	 */
+	public RecipeGraph (final Recipe[] recipes, final Ingredient[] ingredients, final Person[] authors, final Victual[] victuals) throws NullPointerException {
+		if (recipes == null) throw new NullPointerException();
+
+		this.recipes = recipes;
+		this.ingredients = ingredients == null ? NO_INGREDIENTS : ingredients;
+		this.authors = authors == null ? NO_PEOPLE : authors;
+		this.victuals = victuals == null ? NO_VICTUALS : victuals;
+	}
+
+
+	/**
+	 * Returns the recipes.
+	 * @return the recipes
+	 */
+	public Recipe[] getRecipes () {
+		return this.recipes;
+	}
+
+
+	/**
+	 * Returns the ingredients.
+	 * @return the ingredients of the recipes
+	 */
+	public Ingredient[] getIngredients () {
+		return this.ingredients;
+	}
+
+
+	/**
+	 * Returns the authors.
+	 * @return the authors of the recipes
+	 */
+	public Person[] getAuthors () {
+		return this.authors;
+	}
+
+
+	/**
+	 * Returns the victuals.
+	 * @return the victuals of the recipe's ingredients
+	 */
+	public Victual[] getVictuals () {
+		return this.victuals;
+	}
+}
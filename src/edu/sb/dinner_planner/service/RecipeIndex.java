@@ -0,0 +1,300 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.queries.ReportQuery;
+import org.eclipse.persistence.sessions.Session;
+import edu.sb.dinner_planner.persistence.Ingredient;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+import edu.sb.dinner_planner.persistence.Victual.Diet;
+import jakarta.persistence.EntityManager;
+
+
+/**
+ * In-memory bitmap index correlating victuals and victual diets with the recipes whose ingredients
+ * use them. Recipe identities are mapped to dense bit positions, which allows diet compatibility and
+ * victual exclusion queries to be answered with a handful of bit set operations instead of loading
+ * recipes and their ingredients. Each server session has it's own index, which is built lazily from
+ * it's database upon first access, and must be kept up to date by the services performing recipe,
+ * ingredient and victual mutations; as mutations committed by other nodes cannot be applied incrementally,
+ * the {@link CacheCoordinator} invalidates the index upon receiving them, which causes it to be rebuilt
+ * upon next access. The {@link SessionLifecycleListener} discards the index when it's session logs out.
+ */
+public class RecipeIndex {
+	static private final long[] EMPTY = {};
+	static private final String QUERY_RECIPE_VICTUALS = "select i.victual.identity from Ingredient as i where i.recipe.identity = :recipeIdentity";
+	static private final Map<Session,RecipeIndex> INDICES = new ConcurrentHashMap<>();
+
+	private final Map<Long,Integer> recipePositions;
+	private long[] recipeIdentities;
+	private final BitSet recipes;
+	private final Map<Long,long[]> recipeVictuals;
+	private final Map<Long,Diet> victualDiets;
+	private final Map<Long,BitSet> victualRecipes;
+	private final Map<Diet,BitSet> dietRecipes;
+
+
+	/**
+	 * Returns the recipe index of the server session of the given entity manager,
+	 * building it from the database if necessary.
+	 * @param entityManager the entity manager
+	 * @return the recipe index
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public RecipeIndex get (final EntityManager entityManager) throws NullPointerException {
+		return get(JpaHelper.getServerSession(entityManager.getEntityManagerFactory()));
+	}
+
+
+	/**
+	 * Returns the recipe index of the given server session, building it from the database if
+	 * necessary. Used directly whenever no entity manager is available, like during session login.
+	 * @param session the server session
+	 * @return the recipe index
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	static public synchronized RecipeIndex get (final Session session) throws NullPointerException {
+		RecipeIndex index = INDICES.get(session);
+		if (index == null) {
+			final ReportQuery victualQuery = new ReportQuery(Victual.class, new ExpressionBuilder());
+			victualQuery.addAttribute("identity");
+			victualQuery.addAttribute("diet");
+			victualQuery.setReturnType(ReportQuery.ShouldReturnArray);
+
+			final ReportQuery recipeQuery = new ReportQuery(Recipe.class, new ExpressionBuilder());
+			recipeQuery.addAttribute("identity");
+			recipeQuery.setReturnType(ReportQuery.ShouldReturnSingleAttribute);
+
+			final ReportQuery ingredientQuery = new ReportQuery(Ingredient.class, new ExpressionBuilder());
+			ingredientQuery.addAttribute("recipeIdentity", ingredientQuery.getExpressionBuilder().get("recipe").get("identity"));
+			ingredientQuery.addAttribute("victualIdentity", ingredientQuery.getExpressionBuilder().get("victual").get("identity"));
+			ingredientQuery.setReturnType(ReportQuery.ShouldReturnArray);
+
+			index = new RecipeIndex();
+			index.build((List<Object[]>) session.executeQuery(victualQuery), (List<Long>) session.executeQuery(recipeQuery), (List<Object[]>) session.executeQuery(ingredientQuery));
+			INDICES.put(session, index);
+		}
+
+		return index;
+	}
+
+
+	/**
+	 * Discards the recipe index of the given server session, causing it to be rebuilt from
+	 * the database upon next access.
+	 * @param session the server session
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public synchronized void invalidate (final Session session) throws NullPointerException {
+		INDICES.remove(session);
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 */
+	private RecipeIndex () {
+		this.recipePositions = new HashMap<>();
+		this.recipeIdentities = new long[64];
+		this.recipes = new BitSet();
+		this.recipeVictuals = new HashMap<>();
+		this.victualDiets = new HashMap<>();
+		this.victualRecipes = new HashMap<>();
+		this.dietRecipes = new EnumMap<>(Diet.class);
+		for (final Diet diet : Diet.values())
+			this.dietRecipes.put(diet, new BitSet());
+	}
+
+
+	/**
+	 * Populates this index from the given database rows.
+	 * @param victualRows the victual identities and diets
+	 * @param recipeIdentities the recipe identities
+	 * @param ingredientRows the recipe and victual identities of the ingredients
+	 */
+	private void build (final List<Object[]> victualRows, final List<Long> recipeIdentities, final List<Object[]> ingredientRows) {
+		for (final Object[] row : victualRows)
+			this.victualDiets.put((Long) row[0], (Diet) row[1]);
+
+		final Map<Long,List<Long>> recipeVictuals = new HashMap<>();
+		for (final Long recipeIdentity : recipeIdentities)
+			recipeVictuals.put(recipeIdentity, new ArrayList<>());
+		for (final Object[] row : ingredientRows)
+			recipeVictuals.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add((Long) row[1]);
+
+		for (final Map.Entry<Long,List<Long>> entry : recipeVictuals.entrySet())
+			this.putRecipe(entry.getKey(), entry.getValue().stream().mapToLong(Long::longValue).toArray());
+	}
+
+
+	/**
+	 * Re-reads the victual references of the given recipe's ingredients from the database,
+	 * and updates this index accordingly. Must be called after a recipe has been inserted,
+	 * or after any of it's ingredients has been inserted, updated or deleted.
+	 * @param entityManager the entity manager
+	 * @param recipeIdentity the recipe identity
+	 * @throws NullPointerException if the given entity manager is {@code null}
+	 */
+	public void refreshRecipe (final EntityManager entityManager, final long recipeIdentity) throws NullPointerException {
+		final long[] victualIdentities = entityManager
+			.createQuery(QUERY_RECIPE_VICTUALS, Long.class)
+			.setParameter("recipeIdentity", recipeIdentity)
+			.getResultStream()
+			.mapToLong(Long::longValue)
+			.toArray();
+
+		this.putRecipe(recipeIdentity, victualIdentities);
+	}
+
+
+	/**
+	 * Associates the given recipe with the given victuals, replacing any previous association.
+	 * @param recipeIdentity the recipe identity
+	 * @param victualIdentities the identities of the victuals used by the recipe's ingredients
+	 * @throws NullPointerException if the given victual identities are {@code null}
+	 */
+	public synchronized void putRecipe (final long recipeIdentity, final long[] victualIdentities) throws NullPointerException {
+		final int position = this.recipePositions.computeIfAbsent(recipeIdentity, key -> this.recipes.nextClearBit(0));
+		if (position >= this.recipeIdentities.length)
+			this.recipeIdentities = Arrays.copyOf(this.recipeIdentities, Math.max(position + 1, 2 * this.recipeIdentities.length));
+		this.recipeIdentities[position] = recipeIdentity;
+		this.recipes.set(position);
+
+		for (final long victualIdentity : this.recipeVictuals.getOrDefault(recipeIdentity, EMPTY)) {
+			final BitSet bits = this.victualRecipes.get(victualIdentity);
+			if (bits != null) bits.clear(position);
+		}
+
+		this.recipeVictuals.put(recipeIdentity, victualIdentities.clone());
+		for (final long victualIdentity : victualIdentities)
+			this.victualRecipes.computeIfAbsent(victualIdentity, key -> new BitSet()).set(position);
+
+		this.refreshDiets(recipeIdentity, position);
+	}
+
+
+	/**
+	 * Removes the given recipe from this index.
+	 * @param recipeIdentity the recipe identity
+	 */
+	public synchronized void removeRecipe (final long recipeIdentity) {
+		final Integer position = this.recipePositions.remove(recipeIdentity);
+		if (position == null) return;
+
+		for (final long victualIdentity : this.recipeVictuals.remove(recipeIdentity)) {
+			final BitSet bits = this.victualRecipes.get(victualIdentity);
+			if (bits != null) bits.clear(position);
+		}
+
+		for (final BitSet bits : this.dietRecipes.values())
+			bits.clear(position);
+		this.recipes.clear(position);
+		this.recipeIdentities[position] = 0L;
+	}
+
+
+	/**
+	 * Registers the given victual diet, updating the diets of all recipes using said victual
+	 * if it changed. Must be called after a victual has been inserted or updated.
+	 * @param victualIdentity the victual identity
+	 * @param diet the victual's diet
+	 * @throws NullPointerException if the given diet is {@code null}
+	 */
+	public synchronized void putVictual (final long victualIdentity, final Diet diet) throws NullPointerException {
+		if (this.victualDiets.put(victualIdentity, diet) == diet) return;
+
+		final BitSet bits = this.victualRecipes.get(victualIdentity);
+		if (bits == null) return;
+		for (int position = bits.nextSetBit(0); position >= 0; position = bits.nextSetBit(position + 1))
+			this.refreshDiets(this.recipeIdentities[position], position);
+	}
+
+
+	/**
+	 * Removes the given victual from this index.
+	 * @param victualIdentity the victual identity
+	 */
+	public synchronized void removeVictual (final long victualIdentity) {
+		this.victualDiets.remove(victualIdentity);
+		final BitSet bits = this.victualRecipes.remove(victualIdentity);
+		if (bits == null) return;
+
+		for (int position = bits.nextSetBit(0); position >= 0; position = bits.nextSetBit(position + 1))
+			this.refreshDiets(this.recipeIdentities[position], position);
+	}
+
+
+	/**
+	 * Returns the identities of the recipes matching all of the given criteria.
+	 * @param diets the recipe diets, or empty for undefined
+	 * @param compatibleDiet the diet all of a recipe's ingredients must comply with, or {@code null} for undefined
+	 * @param excludedVictualIdentities the identities of the victuals a recipe must not use, or empty for undefined
+	 * @return the matching recipe identities, in no particular order
+	 * @throws NullPointerException if any of the given sets is {@code null}
+	 */
+	public synchronized long[] queryRecipes (final Set<Diet> diets, final Diet compatibleDiet, final Set<Long> excludedVictualIdentities) throws NullPointerException {
+		final BitSet result = (BitSet) this.recipes.clone();
+
+		if (!diets.isEmpty()) {
+			final BitSet matches = new BitSet();
+			for (final Diet diet : diets)
+				matches.or(this.recipesWithDiet(diet));
+			result.and(matches);
+		}
+
+		if (compatibleDiet != null)
+			for (final Diet diet : Diet.values())
+				if (diet.compareTo(compatibleDiet) < 0)
+					result.andNot(this.dietRecipes.get(diet));
+
+		for (final Long victualIdentity : excludedVictualIdentities) {
+			final BitSet bits = this.victualRecipes.get(victualIdentity);
+			if (bits != null) result.andNot(bits);
+		}
+
+		return result.stream().mapToLong(position -> this.recipeIdentities[position]).toArray();
+	}
+
+
+	/**
+	 * Returns the recipes whose diet equals the given one, i.e. the minimum diet of their
+	 * ingredient's victuals, or {@link Diet#VEGAN} for recipes without ingredients.
+	 * @param diet the diet
+	 * @return the recipe positions
+	 */
+	private BitSet recipesWithDiet (final Diet diet) {
+		final BitSet result = (BitSet) (diet == Diet.VEGAN ? this.recipes : this.dietRecipes.get(diet)).clone();
+		for (final Diet lowerDiet : Diet.values())
+			if (lowerDiet.compareTo(diet) < 0)
+				result.andNot(this.dietRecipes.get(lowerDiet));
+
+		return result;
+	}
+
+
+	/**
+	 * Recalculates the diet bits of the given recipe.
+	 * @param recipeIdentity the recipe identity
+	 * @param position the recipe position
+	 */
+	private void refreshDiets (final long recipeIdentity, final int position) {
+		for (final BitSet bits : this.dietRecipes.values())
+			bits.clear(position);
+
+		for (final long victualIdentity : this.recipeVictuals.getOrDefault(recipeIdentity, EMPTY)) {
+			final Diet diet = this.victualDiets.get(victualIdentity);
+			if (diet != null) this.dietRecipes.get(diet).set(position);
+		}
+	}
+}
@@ -1,16 +1,27 @@
 package edu.sb.dinner_planner.service;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import org.eclipse.persistence.annotations.BatchFetchType;
+import org.eclipse.persistence.config.QueryHints;
 import edu.sb.dinner_planner.persistence.Document;
 import edu.sb.dinner_planner.persistence.Ingredient;
 import edu.sb.dinner_planner.persistence.Person;
 import edu.sb.dinner_planner.persistence.Recipe;
 import edu.sb.dinner_planner.persistence.Victual;
-import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -28,6 +39,7 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.RedirectionException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -39,8 +51,7 @@ import jakarta.ws.rs.core.Response.Status;
 public class RecipeService {
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 
-	static private final String QUERY_RECIPES = "select r.identity from Recipe as r left outer join r.ingredients as i left outer join r.illustrations as d where "
-		+ "(:minCreated is null or r.created >= :minCreated) and "
+	static public final String RECIPE_CRITERIA = "(:minCreated is null or r.created >= :minCreated) and "
 		+ "(:maxCreated is null or r.created <= :maxCreated) and "
 		+ "(:minModified is null or r.modified >= :minModified) and "
 		+ "(:maxModified is null or r.modified <= :maxModified) and "
@@ -48,17 +59,79 @@ public class RecipeService {
 		+ "(:titleFragment is null or r.title like concat('%', :titleFragment, '%')) and "
 		+ "(:descriptionFragment is null or r.description like concat('%', :descriptionFragment, '%')) and "
 		+ "(:instructionFragment is null or r.instruction like concat('%', :instructionFragment, '%')) and "
-		+ "(:authored is null or r.author is not null = :authored) "
-		+ "group by r having "
-		+ "(:minIngredientCount is null or count(distinct i) >= :minIngredientCount) and "
-		+ "(:maxIngredientCount is null or count(distinct i) <= :maxIngredientCount) and "
-		+ "(:minIllustrationCount is null or count(distinct d) >= :minIllustrationCount) and "
-		+ "(:maxIllustrationCount is null or count(distinct d) <= :maxIllustrationCount)";
+		+ "(:authored is null or r.author is not null = :authored) and "
+		+ "(:minIngredientCount is null or r.ingredientCount >= :minIngredientCount) and "
+		+ "(:maxIngredientCount is null or r.ingredientCount <= :maxIngredientCount) and "
+		+ "(:minIllustrationCount is null or r.illustrationCount >= :minIllustrationCount) and "
+		+ "(:maxIllustrationCount is null or r.illustrationCount <= :maxIllustrationCount) and "
+		+ "(:ignoreDiets = true or r.diet in :diets) and "
+		+ "(:ignoreExcludedVictuals = true or not exists (select i from Ingredient as i where i.recipe = r and i.victual.identity in :excludedVictualIdentities)) and "
+		+ "(:ignoreIdentities = true or r.identity in :identities)";
+	static public final String RECIPE_ORDERING = "r.title, r.identity";
+	static private final String QUERY_RECIPES = "select r.identity from Recipe as r where " + RECIPE_CRITERIA + " order by " + RECIPE_ORDERING;
+	static private final String QUERY_RECIPE_VALIDATORS = "select max(r.modified), count(r) from Recipe as r where " + RECIPE_CRITERIA;
+	static private final String QUERY_RECIPE_EXPORT = "select r from Recipe as r where " + RECIPE_CRITERIA + " order by r.identity";
+	static public final FieldProjection RECIPE_FIELDS = new FieldProjection("Recipe", "r")
+		.property("category", "category")
+		.property("title", "title")
+		.property("description", "description")
+		.property("instruction", "instruction")
+		.attribute("avatar-reference", "coalesce(avatar.identity, 1)", "left join r.avatar as avatar")
+		.attribute("author-reference", "author.identity", "left join r.author as author")
+		.attribute("ingredient-count", "r.ingredientCount", null)
+		.attribute("illustration-count", "r.illustrationCount", null)
+		.attribute("diet", "r.diet", null);
+	static private final FieldProjection INGREDIENT_FIELDS = new FieldProjection("Ingredient", "i")
+		.property("amount", "amount")
+		.property("unit", "unit")
+		.attribute("recipe-reference", "i.recipe.identity", null);
+
+	static private final String QUERY_GRAPH_RECIPES = "select r from Recipe as r where r.identity in :identities";
+	static private final String QUERY_GRAPH_INGREDIENTS = "select i from Ingredient as i join fetch i.victual where i.recipe.identity in :identities";
+	static private final String QUERY_GRAPH_VICTUALS = "select distinct v from Ingredient as i join i.victual as v where i.recipe.identity in :identities";
+	static public final String QUERY_RECIPE_INGREDIENTS = "select i.identity from Ingredient as i where i.recipe.identity = :recipeIdentity order by i.identity";
+	static private final String QUERY_RECIPE_ILLUSTRATIONS = "select d.identity from Recipe as r join r.illustrations as d where r.identity = :recipeIdentity order by d.identity";
+	static private final String RECIPE_INGREDIENT_CRITERIA = "i.recipe.identity = :recipeIdentity";
+	static private final String RECIPE_ILLUSTRATION_CRITERIA = "exists (select r from Recipe as r join r.illustrations as x where r.identity = :recipeIdentity and x = d)";
+	static private final String QUERY_RECIPE_DIETS = "select i.victual.diet from Ingredient as i where i.recipe.identity = :recipeIdentity and i.identity <> :ingredientIdentity";
+	static private final String QUERY_INGREDIENT_COUNTS = "select i.recipe.identity, count(i) from Ingredient as i where i.recipe.identity in :identities group by i.recipe.identity";
+	static private final String QUERY_ILLUSTRATION_COUNTS = "select r.identity, count(d) from Recipe as r join r.illustrations as d where r.identity in :identities group by r.identity";
+	static private final String QUERY_INGREDIENT_DIETS = "select i.recipe.identity, i.victual.diet from Ingredient as i where i.recipe.identity in :identities";
+	static private final Set<String> GRAPH_EXPANSIONS = Set.of("ingredients", "author", "victual");
+	static private final int MAX_INDEX_IDENTITIES = 1000;
+	static private final int MAX_GRAPH_RECIPES = 500;
 
 
 	@PersistenceContext(unitName="local_database")
 	private EntityManager entityManager;
 
+	@PersistenceContext(unitName=ReadWriteRouter.REPLICA_UNIT)
+	private EntityManager replicaEntityManager;
+
+
+	/**
+	 * Resolved diet and victual criteria of a recipe query. Selective criteria are resolved into
+	 * recipe identities using the in-memory recipe index; broad ones, whose identities would exceed
+	 * {@value #MAX_INDEX_IDENTITIES}, are left to the database instead, using the maintained recipe
+	 * diets, as feeding them back as identity parameters would be slower than the join itself.
+	 * @param ignoreIdentities whether or not to ignore the identities
+	 * @param identities the recipe identities
+	 * @param ignoreDiets whether or not to ignore the diets
+	 * @param diets the recipe diets
+	 * @param ignoreExcludedVictuals whether or not to ignore the excluded victual identities
+	 * @param excludedVictualIdentities the identities of victuals that must not be used by any ingredient
+	 */
+	static private record DietCriteria (boolean ignoreIdentities, Set<Long> identities, boolean ignoreDiets, Set<Victual.Diet> diets, boolean ignoreExcludedVictuals, Set<Long> excludedVictualIdentities) {
+
+		/**
+		 * Returns whether or not no recipe can match these criteria.
+		 * @return {@code true} if the recipe index resolved these criteria to no recipe, {@code false} otherwise
+		 */
+		public boolean isEmpty () {
+			return !this.ignoreIdentities & this.identities.isEmpty();
+		}
+	}
+
 
 	/**
 	 * HTTP Signature: GET recipes IN: - OUT: application/json
@@ -78,13 +151,17 @@ public class RecipeService {
 	 * @param maxIllustrationCount the maximum illustration count, or {@code null} for undefined
 	 * @param authored whether or not recipes have an author, or {@code null} for undefined
 	 * @param diets the diets, or empty for undefined
-	 * @return the matching recipes, sorted by title
+	 * @param compatibleDiet the diet all ingredients must comply with, or {@code null} for undefined
+	 * @param excludedVictualIdentities the identities of victuals that must not be used by any ingredient, or empty for undefined
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching recipes, or their requested fields, sorted by title
+	 * @throws RedirectionException (HTTP 304) if the client's representation is still current
 	 */
 	@GET
 	// @Path("")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Recipe[] queryRecipes (
+	public Object[] queryRecipes (
 		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
 		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
 		@QueryParam("min-created") final Long minCreated,
@@ -100,55 +177,207 @@ public class RecipeService {
 		@QueryParam("min-illustration-count") @Positive final Integer minIllustrationCount,
 		@QueryParam("max-illustration-count") @Positive final Integer maxIllustrationCount,
 		@QueryParam("authored") final Boolean authored,
-		@QueryParam("diet") @NotNull final Set<Victual.Diet> diets
+		@QueryParam("diet") @NotNull final Set<Victual.Diet> diets,
+		@QueryParam("compatible-diet") final Victual.Diet compatibleDiet,
+		@QueryParam("excluded-victual") @NotNull final Set<Long> excludedVictualIdentities,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
-		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_RECIPES, Long.class);
+		final String[] fieldNames = RECIPE_FIELDS.parse(fields);
+
+		final DietCriteria dietCriteria = this.resolveDietCriteria(diets, compatibleDiet, excludedVictualIdentities);
+		if (dietCriteria.isEmpty()) return new Recipe[0];
+
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		final Object[] validators = Metrics.timed("QUERY_RECIPE_VALIDATORS", bindRecipeCriteria(entityManager.createQuery(QUERY_RECIPE_VALIDATORS, Object[].class), minCreated, maxCreated, minModified, maxModified, category, titleFragment, descriptionFragment, instructionFragment, authored, minIngredientCount, maxIngredientCount, minIllustrationCount, maxIllustrationCount, dietCriteria)::getSingleResult);
+		ConditionalRequestFilter.evaluate((Long) validators[0], (Long) validators[1]);
+
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = entityManager.createQuery(RECIPE_FIELDS.query(fieldNames, RECIPE_CRITERIA, RECIPE_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			bindRecipeCriteria(query, minCreated, maxCreated, minModified, maxModified, category, titleFragment, descriptionFragment, instructionFragment, authored, minIngredientCount, maxIngredientCount, minIllustrationCount, maxIllustrationCount, dietCriteria);
+			return Metrics.timed("QUERY_RECIPE_FIELDS", query::getResultStream)
+				.map(row -> RECIPE_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
+		final TypedQuery<Long> query = entityManager.createQuery(QUERY_RECIPES, Long.class);
 		if (pagingOffset != null) query.setFirstResult(pagingOffset);
 		if (pagingLimit != null) query.setMaxResults(pagingLimit);
 
-		final Recipe[] recipes = query
-			.setParameter("minCreated", minCreated)
-			.setParameter("maxCreated", maxCreated)
-			.setParameter("minModified", minModified)
-			.setParameter("maxModified", maxModified)
-			.setParameter("category", category)
-			.setParameter("titleFragment", titleFragment)
-			.setParameter("descriptionFragment", descriptionFragment)
-			.setParameter("instructionFragment", instructionFragment)
-			.setParameter("authored", authored)
-			.setParameter("minIngredientCount", minIngredientCount)
-			.setParameter("maxIngredientCount", maxIngredientCount)
-			.setParameter("minIllustrationCount", minIllustrationCount)
-			.setParameter("maxIllustrationCount", maxIllustrationCount)
-			.getResultStream()
-			.map(identity -> this.entityManager.find(Recipe.class, identity))
+		bindRecipeCriteria(query, minCreated, maxCreated, minModified, maxModified, category, titleFragment, descriptionFragment, instructionFragment, authored, minIngredientCount, maxIngredientCount, minIllustrationCount, maxIllustrationCount, dietCriteria);
+		final Recipe[] recipes = Metrics.timed("QUERY_RECIPES", query::getResultStream)
+			.map(identity -> entityManager.find(Recipe.class, identity))
 			.filter(Objects::nonNull)
-			.filter(recipe -> diets.isEmpty() || diets.stream().anyMatch(diet -> diet.name().equals(recipe.getAttributes().get("diet"))))
-			.sorted(Recipe.TITLE_COMPARATOR)
 			.toArray(Recipe[]::new);
 
 		return recipes;
 	}
 
 
+	/**
+	 * HTTP Signature: GET recipes IN: - OUT: application/x-ndjson. Streams all matching
+	 * recipes as newline delimited JSON, see {@link EntityExport}.
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param category the category, or {@code null} for undefined
+	 * @param titleFragment the title fragment, or {@code null} for undefined
+	 * @param descriptionFragment the description fragment, or {@code null} for undefined
+	 * @param instructionFragment the instruction fragment, or {@code null} for undefined
+	 * @param minIngredientCount the minimum ingredient count, or {@code null} for undefined
+	 * @param maxIngredientCount the maximum ingredient count, or {@code null} for undefined
+	 * @param minIllustrationCount the minimum illustration count, or {@code null} for undefined
+	 * @param maxIllustrationCount the maximum illustration count, or {@code null} for undefined
+	 * @param authored whether or not recipes have an author, or {@code null} for undefined
+	 * @param diets the diets, or empty for undefined
+	 * @param compatibleDiet the diet all ingredients must comply with, or {@code null} for undefined
+	 * @param excludedVictualIdentities the identities of victuals that must not be used by any ingredient, or empty for undefined
+	 * @return the matching recipes, sorted by identity
+	 */
+	@GET
+	// @Path("")
+	@Consumes
+	@Produces(EntityExport.APPLICATION_NDJSON_EXPORT)
+	public EntityExport<Recipe> exportRecipes (
+		@QueryParam("min-created") final Long minCreated,
+		@QueryParam("max-created") final Long maxCreated,
+		@QueryParam("min-modified") final Long minModified,
+		@QueryParam("max-modified") final Long maxModified,
+		@QueryParam("category") final Recipe.Category category,
+		@QueryParam("title-fragment") @Size(min=1) final String titleFragment,
+		@QueryParam("description-fragment") @Size(min=1) final String descriptionFragment,
+		@QueryParam("instruction-fragment") @Size(min=1) final String instructionFragment,
+		@QueryParam("min-ingredient-count") @Positive final Integer minIngredientCount,
+		@QueryParam("max-ingredient-count") @Positive final Integer maxIngredientCount,
+		@QueryParam("min-illustration-count") @Positive final Integer minIllustrationCount,
+		@QueryParam("max-illustration-count") @Positive final Integer maxIllustrationCount,
+		@QueryParam("authored") final Boolean authored,
+		@QueryParam("diet") @NotNull final Set<Victual.Diet> diets,
+		@QueryParam("compatible-diet") final Victual.Diet compatibleDiet,
+		@QueryParam("excluded-victual") @NotNull final Set<Long> excludedVictualIdentities
+	) {
+		final DietCriteria dietCriteria = this.resolveDietCriteria(diets, compatibleDiet, excludedVictualIdentities);
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		return new EntityExport<>(entityManager.getEntityManagerFactory(), "QUERY_RECIPE_EXPORT", exportEntityManager -> bindRecipeCriteria(
+			exportEntityManager.createQuery(QUERY_RECIPE_EXPORT, Recipe.class),
+			minCreated, maxCreated, minModified, maxModified, category, titleFragment, descriptionFragment, instructionFragment, authored,
+			minIngredientCount, maxIngredientCount, minIllustrationCount, maxIllustrationCount, dietCriteria
+		));
+	}
+
+
 	/**
 	 * HTTP method signature: GET recipes/{id} - application/json.
 	 * @param recipeIdentity the recipe identity
-	 * @return the matching recipe
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching recipe, or it's requested fields
 	 */
 	@GET
 	@Path("{id}")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Recipe findRecipe (
-		@PathParam("id") @Positive final long recipeIdentity
+	public Object findRecipe (
+		@PathParam("id") @Positive final long recipeIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
-		final Recipe recipe = this.entityManager.find(Recipe.class, recipeIdentity);
+		final String[] fieldNames = RECIPE_FIELDS.parse(fields);
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		if (fieldNames != null) {
+			final String queryText = RECIPE_FIELDS.query(fieldNames, "r.identity = :recipeIdentity", null);
+			List<Tuple> rows = Metrics.timed("QUERY_RECIPE_FIELDS", entityManager.createQuery(queryText, Tuple.class).setParameter("recipeIdentity", recipeIdentity)::getResultList);
+			if (rows.isEmpty() & entityManager != this.entityManager) rows = Metrics.timed("QUERY_RECIPE_FIELDS", this.entityManager.createQuery(queryText, Tuple.class).setParameter("recipeIdentity", recipeIdentity)::getResultList);
+			if (rows.isEmpty()) throw new ClientErrorException(Status.NOT_FOUND);
+			return RECIPE_FIELDS.map(fieldNames, rows.get(0));
+		}
+
+		Recipe recipe = entityManager.find(Recipe.class, recipeIdentity);
+		if (recipe == null & entityManager != this.entityManager) recipe = this.entityManager.find(Recipe.class, recipeIdentity);
 		if (recipe == null) throw new ClientErrorException(Status.NOT_FOUND);
 		return recipe;
 	}
 
 
+	/**
+	 * HTTP method signature: GET recipes/graph - application/json. Assembles the matching recipes
+	 * and their requested related entities using one query per entity type, plus one batch query
+	 * per eagerly loaded or serialized relationship (avatars, authors and phones) that is not already
+	 * cached, regardless of the number of recipes requested; at most {@value #MAX_GRAPH_RECIPES}
+	 * recipes may be requested at once. Both recipe identities and expansions may be passed either
+	 * as comma separated lists, or as repeated query parameters.
+	 * @param recipeIdentities the recipe identities
+	 * @param expansions the related entities to include, any of "ingredients", "author" and "victual"
+	 * @return the recipe graph, with recipes sorted by ID
+	 * @throws ClientErrorException (HTTP 400) if the identities or expansions are malformed,
+	 *         or if more than {@value #MAX_GRAPH_RECIPES} recipes are requested
+	 */
+	@GET
+	@Path("graph")
+	@Consumes
+	@Produces(MediaType.APPLICATION_JSON)
+	public RecipeGraph queryRecipeGraph (
+		@QueryParam("ids") @NotNull @Size(min=1) final List<String> recipeIdentities,
+		@QueryParam("expand") @NotNull final List<String> expansions
+	) {
+		final Set<Long> identities;
+		try {
+			identities = recipeIdentities.stream().flatMap(text -> Stream.of(text.split(","))).map(String::trim).map(Long::valueOf).collect(Collectors.toSet());
+		} catch (final NumberFormatException e) {
+			throw new ClientErrorException(Status.BAD_REQUEST, e);
+		}
+		if (identities.size() > MAX_GRAPH_RECIPES) throw new ClientErrorException(Status.BAD_REQUEST);
+
+		final Set<String> expansionSet = expansions.stream().flatMap(text -> Stream.of(text.split(","))).map(String::trim).filter(text -> !text.isEmpty()).collect(Collectors.toSet());
+		if (!GRAPH_EXPANSIONS.containsAll(expansionSet)) throw new ClientErrorException(Status.BAD_REQUEST);
+
+		// many-to-one relationships are loaded eagerly, and would otherwise be read one row at a time
+		final TypedQuery<Recipe> recipeQuery = this.entityManager.createQuery(QUERY_GRAPH_RECIPES, Recipe.class)
+			.setHint(QueryHints.BATCH_TYPE, BatchFetchType.IN)
+			.setHint(QueryHints.BATCH, "r.avatar")
+			.setHint(QueryHints.BATCH, "r.author.avatar");
+		if (expansionSet.contains("author"))
+			recipeQuery.setHint(QueryHints.LEFT_FETCH, "r.author").setHint(QueryHints.BATCH, "r.author.phones");
+		else
+			recipeQuery.setHint(QueryHints.BATCH, "r.author");
+		recipeQuery.setParameter("identities", identities);
+		final Recipe[] recipes = Metrics.timed("QUERY_GRAPH_RECIPES", recipeQuery::getResultStream)
+			.sorted()
+			.toArray(Recipe[]::new);
+
+		final Ingredient[] ingredients = expansionSet.contains("ingredients")
+			? Metrics.timed("QUERY_GRAPH_INGREDIENTS", this.entityManager.createQuery(QUERY_GRAPH_INGREDIENTS, Ingredient.class)
+				.setHint(QueryHints.BATCH_TYPE, BatchFetchType.IN)
+				.setHint(QueryHints.BATCH, "i.victual.avatar")
+				.setHint(QueryHints.BATCH, "i.victual.author")
+				.setParameter("identities", identities)::getResultStream)
+				.sorted()
+				.toArray(Ingredient[]::new)
+			: null;
+
+		final Person[] authors = expansionSet.contains("author")
+			? Stream.of(recipes).map(Recipe::getAuthor).filter(Objects::nonNull).distinct().sorted().toArray(Person[]::new)
+			: null;
+
+		final Victual[] victuals;
+		if (!expansionSet.contains("victual"))
+			victuals = null;
+		else if (ingredients != null)
+			victuals = Stream.of(ingredients).map(Ingredient::getVictual).distinct().sorted().toArray(Victual[]::new);
+		else
+			victuals = Metrics.timed("QUERY_GRAPH_VICTUALS", this.entityManager.createQuery(QUERY_GRAPH_VICTUALS, Victual.class)
+				.setHint(QueryHints.BATCH_TYPE, BatchFetchType.IN)
+				.setHint(QueryHints.BATCH, "v.avatar")
+				.setHint(QueryHints.BATCH, "v.author")
+				.setParameter("identities", identities)::getResultStream)
+				.sorted()
+				.toArray(Victual[]::new);
+
+		return new RecipeGraph(recipes, ingredients, authors, victuals);
+	}
+
+
 	/**
 	 * HTTP method signature: POST recipes application/json text/plain.
 	 * @param requesterIdentity the requester identity
@@ -204,8 +433,8 @@ public class RecipeService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			if (insertMode) secondLevelCache.evict(Person.class, requester.getIdentity());
+			if (insertMode) new CacheInvalidator(this.entityManager).add(Person.class, requester.getIdentity()).evict();
+			if (insertMode) RecipeIndex.get(this.entityManager).putRecipe(recipe.getIdentity(), new long[0]);
 
 			return recipe.getIdentity();
 		} finally {
@@ -249,8 +478,8 @@ public class RecipeService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			if (author != null) secondLevelCache.evict(Person.class, author.getIdentity());
+			if (author != null) new CacheInvalidator(this.entityManager).add(Person.class, author.getIdentity()).evict();
+			RecipeIndex.get(this.entityManager).removeRecipe(recipe.getIdentity());
 
 			return recipe.getIdentity();
 		} finally {
@@ -265,24 +494,43 @@ public class RecipeService {
 	 * @param recipeIdentity the recipe identity
 	 * @param pagingOffset the result offset, or {@code null} for undefined
 	 * @param pagingLimit the maximum result size, or {@code null} for undefined
-	 * @return the ingredients associated with the matching recipe, sorted by ID
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the ingredients associated with the matching recipe, or their requested fields, sorted by ID
 	 */
 	@GET
 	@Path("{id}/ingredients")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Ingredient[] queryRecipeIngredients (
+	public Object[] queryRecipeIngredients (
 		@PathParam("id") @Positive final long recipeIdentity,
-		@QueryParam("paging-offset") @PositiveOrZero final Long pagingOffset,
-		@QueryParam("paging-limit") @Positive final Long pagingLimit
+		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
+		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = INGREDIENT_FIELDS.parse(fields);
 		final Recipe recipe = this.entityManager.find(Recipe.class, recipeIdentity);
 		if (recipe == null) throw new ClientErrorException(Status.NOT_FOUND);
 
-		Stream<Ingredient> stream = recipe.getIngredients().stream().sorted();
-		if (pagingOffset != null) stream = stream.skip(pagingOffset);
-		if (pagingLimit != null) stream = stream.limit(pagingLimit);
-		final Ingredient[] ingredients = stream.toArray(Ingredient[]::new);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(INGREDIENT_FIELDS.query(fieldNames, RECIPE_INGREDIENT_CRITERIA, "i.identity"), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			query.setParameter("recipeIdentity", recipeIdentity);
+			return Metrics.timed("QUERY_RECIPE_INGREDIENT_FIELDS", query::getResultStream)
+				.map(row -> INGREDIENT_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
+		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_RECIPE_INGREDIENTS, Long.class);
+		if (pagingOffset != null) query.setFirstResult(pagingOffset);
+		if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+		query.setParameter("recipeIdentity", recipeIdentity);
+		final Ingredient[] ingredients = Metrics.timed("QUERY_RECIPE_INGREDIENTS", query::getResultStream)
+			.map(identity -> this.entityManager.find(Ingredient.class, identity))
+			.filter(Objects::nonNull)
+			.toArray(Ingredient[]::new);
 
 		return ingredients;
 	}
@@ -331,6 +579,8 @@ public class RecipeService {
 			final Victual victual = this.entityManager.find(Victual.class, ingredientTemplate.getVictual().getIdentity());
 			if (victual == null) throw new ClientErrorException(Status.NOT_FOUND);
 			ingredient.setVictual(victual);
+			if (insertMode) recipe.setIngredientCount(recipe.getIngredientCount() + 1);
+			recipe.setDiet(this.queryRecipeDiet(recipe, ingredient, victual.getDiet()));
 
 			try {
 				if (insertMode)
@@ -344,8 +594,8 @@ public class RecipeService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			if (insertMode) secondLevelCache.evict(Recipe.class, recipe.getIdentity());
+			if (insertMode) new CacheInvalidator(this.entityManager).add(Recipe.class, recipe.getIdentity()).evict();
+			RecipeIndex.get(this.entityManager).refreshRecipe(this.entityManager, recipe.getIdentity());
 
 			return ingredient.getIdentity();
 		} finally {
@@ -355,6 +605,90 @@ public class RecipeService {
 	}
 
 
+	/**
+	 * HTTP method signature: PATCH recipes/{id}/ingredients application/json application/json.
+	 * Inserts or updates all given ingredients within a single transaction; ingredient templates
+	 * with identity zero are inserted, all others updated. With batch writing and preallocated
+	 * identities, the resulting INSERT and UPDATE statements are sent in a few JDBC batches.
+	 * @param requesterIdentity the requester identity
+	 * @param recipeIdentity the recipe identity
+	 * @param ingredientTemplates the ingredient templates
+	 * @return the associated recipe ingredients' identities, in template order
+	 */
+	@PATCH
+	@Path("{id}/ingredients")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	public long[] insertOrUpdateRecipeIngredients (
+		@HeaderParam(HEADER_REQUESTER_IDENTITY) @Positive final long requesterIdentity,
+		@PathParam("id") @Positive final long recipeIdentity,
+		@NotNull @Size(min=1, max=256) @Valid final Ingredient[] ingredientTemplates
+	) {
+		this.entityManager.getTransaction().begin();
+		try {
+			final Person requester = this.entityManager.find(Person.class, requesterIdentity);
+			if (requester == null) throw new ClientErrorException(Status.FORBIDDEN);
+
+			final Recipe recipe = this.entityManager.find(Recipe.class, recipeIdentity);
+			if (recipe == null) throw new ClientErrorException(Status.NOT_FOUND);
+			if (requester != recipe.getAuthor() & requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+
+			final Ingredient[] ingredients = new Ingredient[ingredientTemplates.length];
+			int insertCount = 0;
+			for (int index = 0; index < ingredientTemplates.length; ++index) {
+				final Ingredient ingredientTemplate = ingredientTemplates[index];
+				final boolean insertMode = ingredientTemplate.getIdentity() == 0L;
+				final Ingredient ingredient;
+				if (insertMode) {
+					ingredient = new Ingredient(recipe);
+					insertCount += 1;
+				} else {
+					ingredient = this.entityManager.find(Ingredient.class, ingredientTemplate.getIdentity());
+					if (ingredient == null) throw new ClientErrorException(Status.NOT_FOUND);
+					if (ingredient.getRecipe() != recipe) throw new ClientErrorException(Status.CONFLICT);
+					ingredient.setVersion(ingredientTemplate.getVersion());
+				}
+
+				ingredient.setModified(System.currentTimeMillis());
+				ingredient.setAmount(ingredientTemplate.getAmount());
+				ingredient.setUnit(ingredientTemplate.getUnit());
+
+				final Victual victual = this.entityManager.find(Victual.class, ingredientTemplate.getVictual().getIdentity());
+				if (victual == null) throw new ClientErrorException(Status.NOT_FOUND);
+				ingredient.setVictual(victual);
+				if (insertMode) this.entityManager.persist(ingredient);
+				ingredients[index] = ingredient;
+			}
+
+			try {
+				this.entityManager.flush();				// send batched SQL INSERT and UPDATE statements to the database
+				recipe.setIngredientCount(recipe.getIngredientCount() + insertCount);
+				recipe.setDiet(this.entityManager
+					.createQuery(QUERY_RECIPE_DIETS, Victual.Diet.class)
+					.setParameter("recipeIdentity", recipe.getIdentity())
+					.setParameter("ingredientIdentity", 0L)
+					.getResultStream()
+					.min(Comparator.naturalOrder())
+					.orElse(Victual.Diet.VEGAN)
+				);
+
+				this.entityManager.getTransaction().commit();
+			} catch (final RuntimeException e) {
+				throw new ClientErrorException(Status.CONFLICT, e);
+			}
+
+			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
+			if (insertCount > 0) new CacheInvalidator(this.entityManager).add(Recipe.class, recipe.getIdentity()).evict();
+			RecipeIndex.get(this.entityManager).refreshRecipe(this.entityManager, recipe.getIdentity());
+
+			return Arrays.stream(ingredients).mapToLong(Ingredient::getIdentity).toArray();
+		} finally {
+			if (this.entityManager.getTransaction().isActive())
+				this.entityManager.getTransaction().rollback();
+		}
+	}
+
+
 	/**
 	 * HTTP method signature: DELETE recipes/{id1}/ingredients/{id2} - text/plain.
 	 * @param requesterIdentity the requester identity
@@ -383,6 +717,8 @@ public class RecipeService {
 			final Ingredient ingredient = this.entityManager.find(Ingredient.class, ingredientIdentity);
 			if (ingredient == null) throw new ClientErrorException(Status.NOT_FOUND);
 			if (ingredient.getRecipe() != recipe) throw new ClientErrorException(Status.CONFLICT);
+			recipe.setIngredientCount(Math.max(0, recipe.getIngredientCount() - 1));
+			recipe.setDiet(this.queryRecipeDiet(recipe, ingredient, null));
 
 			try {
 				this.entityManager.remove(ingredient);	// send SQL DELETE statements to the database
@@ -393,8 +729,8 @@ public class RecipeService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			secondLevelCache.evict(Recipe.class, recipe.getIdentity());
+			new CacheInvalidator(this.entityManager).add(Recipe.class, recipe.getIdentity()).evict();
+			RecipeIndex.get(this.entityManager).refreshRecipe(this.entityManager, recipe.getIdentity());
 
 			return ingredient.getIdentity();
 		} finally {
@@ -409,24 +745,43 @@ public class RecipeService {
 	 * @param recipeIdentity the recipe identity
 	 * @param pagingOffset the result offset, or {@code null} for undefined
 	 * @param pagingLimit the maximum result size, or {@code null} for undefined
-	 * @return the illustrations associated with the matching recipe, sorted by ID
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the illustrations associated with the matching recipe, or their requested fields, sorted by ID
 	 */
 	@GET
 	@Path("{id}/illustrations")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Document[] queryRecipeIllustrations (
+	public Object[] queryRecipeIllustrations (
 		@PathParam("id") @Positive final long recipeIdentity,
-		@QueryParam("paging-offset") @PositiveOrZero final Long pagingOffset,
-		@QueryParam("paging-limit") @Positive final Long pagingLimit
+		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
+		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
+		final String[] fieldNames = DocumentService.DOCUMENT_FIELDS.parse(fields);
 		final Recipe recipe = this.entityManager.find(Recipe.class, recipeIdentity);
 		if (recipe == null) throw new ClientErrorException(Status.NOT_FOUND);
 
-		Stream<Document> stream = recipe.getIllustrations().stream().sorted();
-		if (pagingOffset != null) stream = stream.skip(pagingOffset);
-		if (pagingLimit != null) stream = stream.limit(pagingLimit);
-		final Document[] illustrations = stream.toArray(Document[]::new);
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = this.entityManager.createQuery(DocumentService.DOCUMENT_FIELDS.query(fieldNames, RECIPE_ILLUSTRATION_CRITERIA, DocumentService.DOCUMENT_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			query.setParameter("recipeIdentity", recipeIdentity);
+			return Metrics.timed("QUERY_RECIPE_ILLUSTRATION_FIELDS", query::getResultStream)
+				.map(row -> DocumentService.DOCUMENT_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
+		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_RECIPE_ILLUSTRATIONS, Long.class);
+		if (pagingOffset != null) query.setFirstResult(pagingOffset);
+		if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+		query.setParameter("recipeIdentity", recipeIdentity);
+		final Document[] illustrations = Metrics.timed("QUERY_RECIPE_ILLUSTRATIONS", query::getResultStream)
+			.map(identity -> this.entityManager.find(Document.class, identity))
+			.filter(Objects::nonNull)
+			.toArray(Document[]::new);
 
 		return illustrations;
 	}
@@ -460,7 +815,8 @@ public class RecipeService {
 			final Document illustration = this.entityManager.find(Document.class, illustrationIdentity);
 			if (illustration == null) throw new ClientErrorException(Status.NOT_FOUND);
 
-			recipe.getIllustrations().add(illustration);
+			if (recipe.getIllustrations().add(illustration))
+				recipe.setIllustrationCount(recipe.getIllustrations().size());
 
 			try {
 				this.entityManager.flush();		// send SQL INSERT statements to the database
@@ -471,7 +827,7 @@ public class RecipeService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			// final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
+			// final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			// Not applicable for illustration additions
 
 			return illustration.getIdentity();
@@ -510,7 +866,8 @@ public class RecipeService {
 			final Document illustration = this.entityManager.find(Document.class, illustrationIdentity);
 			if (illustration == null) throw new ClientErrorException(Status.NOT_FOUND);
 
-			recipe.getIllustrations().remove(illustration);
+			if (recipe.getIllustrations().remove(illustration))
+				recipe.setIllustrationCount(recipe.getIllustrations().size());
 
 			try {
 				this.entityManager.flush();			// send SQL DELETE statements to the database
@@ -521,7 +878,7 @@ public class RecipeService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			// final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
+			// final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
 			// Not applicable for illustration removals
 
 			return illustration.getIdentity();
@@ -551,4 +908,155 @@ public class RecipeService {
 
 		return recipe.getAuthor();
 	}
+
+
+	/**
+	 * Recounts the ingredients and illustrations of the given recipes, whose ingredients or illustration
+	 * associations have been deleted by the database's foreign key cascades, which bypass the incremental
+	 * maintenance of the counters; uses one query per counter, regardless of the number of recipes. Must
+	 * be called within the transaction performing said deletion, after it has been flushed.
+	 * @param entityManager the entity manager
+	 * @param recipeIdentities the recipe identities
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static void recountRecipes (final EntityManager entityManager, final Collection<Long> recipeIdentities) throws NullPointerException {
+		if (entityManager == null) throw new NullPointerException();
+		if (recipeIdentities.isEmpty()) return;
+
+		final Map<Long,Long> ingredientCounts = entityManager
+			.createQuery(QUERY_INGREDIENT_COUNTS, Object[].class)
+			.setParameter("identities", recipeIdentities)
+			.getResultStream()
+			.collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+		final Map<Long,Long> illustrationCounts = entityManager
+			.createQuery(QUERY_ILLUSTRATION_COUNTS, Object[].class)
+			.setParameter("identities", recipeIdentities)
+			.getResultStream()
+			.collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+
+		for (final Long recipeIdentity : recipeIdentities) {
+			final Recipe recipe = entityManager.find(Recipe.class, recipeIdentity);
+			if (recipe == null) continue;
+
+			recipe.setIngredientCount(ingredientCounts.getOrDefault(recipeIdentity, 0L).intValue());
+			recipe.setIllustrationCount(illustrationCounts.getOrDefault(recipeIdentity, 0L).intValue());
+		}
+	}
+
+
+	/**
+	 * Rederives the diets of the given recipes, whose ingredients have been deleted by the database's
+	 * foreign key cascades, which bypass the incremental maintenance of the diets; uses a single query,
+	 * regardless of the number of recipes. Must be called within the transaction performing said deletion,
+	 * after it has been flushed.
+	 * @param entityManager the entity manager
+	 * @param recipeIdentities the recipe identities
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static void rederiveRecipeDiets (final EntityManager entityManager, final Collection<Long> recipeIdentities) throws NullPointerException {
+		if (entityManager == null) throw new NullPointerException();
+		if (recipeIdentities.isEmpty()) return;
+
+		final Map<Long,Victual.Diet> diets = entityManager
+			.createQuery(QUERY_INGREDIENT_DIETS, Object[].class)
+			.setParameter("identities", recipeIdentities)
+			.getResultStream()
+			.collect(Collectors.toMap(row -> (Long) row[0], row -> (Victual.Diet) row[1], BinaryOperator.minBy(Comparator.<Victual.Diet>naturalOrder())));
+
+		for (final Long recipeIdentity : recipeIdentities) {
+			final Recipe recipe = entityManager.find(Recipe.class, recipeIdentity);
+			if (recipe == null) continue;
+
+			recipe.setDiet(diets.getOrDefault(recipeIdentity, Victual.Diet.VEGAN));
+		}
+	}
+
+
+	/**
+	 * Returns the diet of the given recipe, i.e. the least restrictive diet of all it's ingredient
+	 * victuals, with the given ingredient's victual diet replaced by the given one.
+	 * @param recipe the recipe
+	 * @param ingredient the ingredient to disregard
+	 * @param ingredientDiet the diet to consider instead, or {@code null} for none
+	 * @return the recipe diet, or {@link Victual.Diet#VEGAN} for none
+	 */
+	private Victual.Diet queryRecipeDiet (final Recipe recipe, final Ingredient ingredient, final Victual.Diet ingredientDiet) {
+		final Stream<Victual.Diet> diets = this.entityManager
+			.createQuery(QUERY_RECIPE_DIETS, Victual.Diet.class)
+			.setParameter("recipeIdentity", recipe.getIdentity())
+			.setParameter("ingredientIdentity", ingredient.getIdentity())
+			.getResultStream();
+
+		return Stream.concat(diets, Stream.ofNullable(ingredientDiet)).min(Comparator.naturalOrder()).orElse(Victual.Diet.VEGAN);
+	}
+
+
+	/**
+	 * Sets the parameters of the given recipe criteria query.
+	 * @param <T> the query result type
+	 * @param query the query
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param category the category, or {@code null} for undefined
+	 * @param titleFragment the title fragment, or {@code null} for undefined
+	 * @param descriptionFragment the description fragment, or {@code null} for undefined
+	 * @param instructionFragment the instruction fragment, or {@code null} for undefined
+	 * @param authored whether or not recipes have an author, or {@code null} for undefined
+	 * @param minIngredientCount the minimum ingredient count, or {@code null} for undefined
+	 * @param maxIngredientCount the maximum ingredient count, or {@code null} for undefined
+	 * @param minIllustrationCount the minimum illustration count, or {@code null} for undefined
+	 * @param maxIllustrationCount the maximum illustration count, or {@code null} for undefined
+	 * @param dietCriteria the resolved diet and victual criteria
+	 * @return the given query
+	 */
+	static private <T> TypedQuery<T> bindRecipeCriteria (final TypedQuery<T> query, final Long minCreated, final Long maxCreated, final Long minModified, final Long maxModified, final Recipe.Category category, final String titleFragment, final String descriptionFragment, final String instructionFragment, final Boolean authored, final Integer minIngredientCount, final Integer maxIngredientCount, final Integer minIllustrationCount, final Integer maxIllustrationCount, final DietCriteria dietCriteria) {
+		// empty collection parameters are replaced by ones that match nothing
+		return query
+			.setParameter("minCreated", minCreated)
+			.setParameter("maxCreated", maxCreated)
+			.setParameter("minModified", minModified)
+			.setParameter("maxModified", maxModified)
+			.setParameter("category", category)
+			.setParameter("titleFragment", titleFragment)
+			.setParameter("descriptionFragment", descriptionFragment)
+			.setParameter("instructionFragment", instructionFragment)
+			.setParameter("authored", authored)
+			.setParameter("minIngredientCount", minIngredientCount)
+			.setParameter("maxIngredientCount", maxIngredientCount)
+			.setParameter("minIllustrationCount", minIllustrationCount)
+			.setParameter("maxIllustrationCount", maxIllustrationCount)
+			.setParameter("ignoreDiets", dietCriteria.ignoreDiets())
+			.setParameter("diets", dietCriteria.diets().isEmpty() ? Collections.singleton(null) : dietCriteria.diets())
+			.setParameter("ignoreExcludedVictuals", dietCriteria.ignoreExcludedVictuals())
+			.setParameter("excludedVictualIdentities", dietCriteria.excludedVictualIdentities().isEmpty() ? Collections.singleton(null) : dietCriteria.excludedVictualIdentities())
+			.setParameter("ignoreIdentities", dietCriteria.ignoreIdentities())
+			.setParameter("identities", dietCriteria.identities().isEmpty() ? Collections.singleton(null) : dietCriteria.identities());
+	}
+
+
+	/**
+	 * Resolves the given diet and victual criteria using the in-memory recipe index, unless they
+	 * match more than {@value #MAX_INDEX_IDENTITIES} recipes, in which case they are left to the database.
+	 * @param diets the diets, or empty for undefined
+	 * @param compatibleDiet the diet all ingredients must comply with, or {@code null} for undefined
+	 * @param excludedVictualIdentities the identities of victuals that must not be used by any ingredient, or empty for undefined
+	 * @return the resolved criteria
+	 */
+	private DietCriteria resolveDietCriteria (final Set<Victual.Diet> diets, final Victual.Diet compatibleDiet, final Set<Long> excludedVictualIdentities) {
+		if (diets.isEmpty() & compatibleDiet == null & excludedVictualIdentities.isEmpty())
+			return new DietCriteria(true, Set.of(), true, Set.of(), true, Set.of());
+
+		final long[] identities = RecipeIndex.get(this.entityManager).queryRecipes(diets, compatibleDiet, excludedVictualIdentities);
+		if (identities.length <= MAX_INDEX_IDENTITIES)
+			return new DietCriteria(false, LongStream.of(identities).boxed().collect(Collectors.toSet()), true, Set.of(), true, Set.of());
+
+		// a recipe's diet is the least restrictive one of it's ingredients, and therefore complies with the compatible diet if it isn't less restrictive
+		final Set<Victual.Diet> dietCriteria = Stream.of(Victual.Diet.values())
+			.filter(diet -> diets.isEmpty() || diets.contains(diet))
+			.filter(diet -> compatibleDiet == null || diet.compareTo(compatibleDiet) >= 0)
+			.collect(Collectors.toSet());
+		return new DietCriteria(true, Set.of(), diets.isEmpty() & compatibleDiet == null, dietCriteria, excludedVictualIdentities.isEmpty(), excludedVictualIdentities);
+	}
 }
@@ -0,0 +1,198 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.persistence.sessions.Session;
+import edu.sb.tool.HashCodes;
+
+
+/**
+ * Versioned schema migrations. The DDL scripts {@code META-INF/migration/V<version>__<description>.sql}
+ * listed in {@link #SCRIPTS} are applied in version order, each one at most once; applied versions are
+ * recorded alongside their checksums in table {@code SchemaVersion}, and a script whose checksum no longer
+ * matches its recorded one aborts the migration. Concurrently starting nodes are serialized using a named
+ * database lock, waiting at most the number of seconds defined by system property {@value #PROPERTY_LOCK_TIMEOUT}
+ * (default 60). As MariaDB commits DDL statements implicitly, a failed script is not rolled back; scripts
+ * are therefore written to be re-runnable, using {@code IF NOT EXISTS} clauses and idempotent updates.
+ * The {@link SessionLifecycleListener} calls {@link #migrate(Session)} once the primary server session
+ * has been logged in, and before any other use of it; a failed migration therefore fails the creation
+ * of the entity manager factory. Migrations may be disabled by setting system property
+ * {@value #PROPERTY_ENABLED} to {@code false}, for example for nodes whose schema is managed externally.
+ */
+public class SchemaMigrator {
+	static private final Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+	static public final String PROPERTY_ENABLED = "dinner_planner.migration.enabled";
+	static public final String PROPERTY_LOCK_TIMEOUT = "dinner_planner.migration.lock-timeout";
+	static private final String SCRIPT_DIRECTORY = "META-INF/migration/";
+	static private final String[] SCRIPTS = { "V1__recipe_counters.sql", "V2__recipe_diet.sql", "V3__identity_sequence.sql", "V4__query_indexes.sql", "V5__change_log.sql", "V6__cache_message.sql", "V7__change_position.sql", "V8__change_log_author.sql" };
+	static private final String LOCK_NAME = "dinner_planner.migration";
+	static private final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS dinner_planner.SchemaVersion (version INT NOT NULL, description VARCHAR(128) NOT NULL, checksum CHAR(64) NOT NULL, installed BIGINT NOT NULL, duration BIGINT NOT NULL, PRIMARY KEY (version))";
+	static private final String QUERY_VERSIONS = "SELECT version, checksum FROM dinner_planner.SchemaVersion";
+	static private final String INSERT_VERSION = "INSERT INTO dinner_planner.SchemaVersion (version, description, checksum, installed, duration) VALUES (?, ?, ?, ?, ?)";
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private SchemaMigrator () {}
+
+
+	/**
+	 * Application entry point, applying the pending migrations to the given database.
+	 * @param args the runtime arguments: JDBC URL, user and password
+	 * @throws SQLException if there is a database related problem
+	 */
+	static public void main (final String[] args) throws SQLException {
+		if (args.length < 3) throw new IllegalArgumentException("usage: SchemaMigrator <jdbc-url> <user> <password>");
+
+		try (Connection connection = DriverManager.getConnection(args[0], args[1], args[2])) {
+			System.out.format("%d migrations applied%n", migrate(connection));
+		}
+	}
+
+
+	/**
+	 * Applies the pending migrations to the database of the given server session, unless migrations
+	 * are disabled. The migrations use a dedicated JDBC connection, which is closed afterwards.
+	 * @param session the server session
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if a migration fails, or an applied migration has been modified
+	 */
+	static public void migrate (final Session session) throws NullPointerException, IllegalStateException {
+		if (!Boolean.parseBoolean(System.getProperty(PROPERTY_ENABLED, "true"))) return;
+
+		try (Connection connection = (Connection) session.getDatasourceLogin().connectToDatasource(null, session)) {
+			final int count = migrate(connection);
+			if (count > 0) LOGGER.log(Level.INFO, "{0} schema migrations applied", count);
+		} catch (final SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	/**
+	 * Applies the pending migrations using the given JDBC connection, while holding the migration lock.
+	 * @param connection the JDBC connection
+	 * @return the number of migrations applied
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalStateException if the migration lock cannot be acquired in time,
+	 *         or an applied migration has been modified
+	 * @throws SQLException if there is a database related problem
+	 */
+	static public int migrate (final Connection connection) throws NullPointerException, IllegalStateException, SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT get_lock(?, ?)")) {
+			statement.setString(1, LOCK_NAME);
+			statement.setInt(2, Integer.getInteger(PROPERTY_LOCK_TIMEOUT, 60));
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next() || resultSet.getInt(1) != 1) throw new IllegalStateException("migration lock not acquired");
+			}
+		}
+
+		try {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(CREATE_VERSION_TABLE);
+			}
+
+			final Map<Integer,String> appliedChecksums = new HashMap<>();
+			try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(QUERY_VERSIONS)) {
+				while (resultSet.next())
+					appliedChecksums.put(resultSet.getInt(1), resultSet.getString(2));
+			}
+
+			int count = 0;
+			for (final String script : SCRIPTS) {
+				final int separatorOffset = script.indexOf("__");
+				final int version = Integer.parseInt(script.substring(1, separatorOffset));
+				final String description = script.substring(separatorOffset + 2, script.length() - 4).replace('_', ' ');
+				final String content = readScript(script);
+				final String checksum = HashCodes.sha2HashText(256, content);
+
+				final String appliedChecksum = appliedChecksums.get(version);
+				if (appliedChecksum != null) {
+					if (!appliedChecksum.equals(checksum)) throw new IllegalStateException("applied migration " + script + " has been modified");
+					continue;
+				}
+
+				final long timestamp = System.currentTimeMillis();
+				try (Statement statement = connection.createStatement()) {
+					for (final String sql : statements(content))
+						statement.execute(sql);
+				}
+
+				try (PreparedStatement statement = connection.prepareStatement(INSERT_VERSION)) {
+					statement.setInt(1, version);
+					statement.setString(2, description);
+					statement.setString(3, checksum);
+					statement.setLong(4, timestamp);
+					statement.setLong(5, System.currentTimeMillis() - timestamp);
+					statement.executeUpdate();
+				}
+
+				LOGGER.log(Level.INFO, "schema migration {0} applied", script);
+				count += 1;
+			}
+
+			return count;
+		} finally {
+			try (PreparedStatement statement = connection.prepareStatement("SELECT release_lock(?)")) {
+				statement.setString(1, LOCK_NAME);
+				statement.executeQuery().close();
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the content of the given migration script.
+	 * @param script the script name
+	 * @return the script content
+	 * @throws IllegalStateException if the script is missing
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	static private String readScript (final String script) throws IllegalStateException, UncheckedIOException {
+		try (InputStream stream = SchemaMigrator.class.getClassLoader().getResourceAsStream(SCRIPT_DIRECTORY + script)) {
+			if (stream == null) throw new IllegalStateException("migration " + script + " is missing");
+			return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+
+	/**
+	 * Splits the given script content into statements, which are terminated by
+	 * semicolons at line ends. Comment lines are skipped.
+	 * @param content the script content
+	 * @return the statements
+	 */
+	static private List<String> statements (final String content) {
+		final List<String> statements = new ArrayList<>();
+		final StringBuilder builder = new StringBuilder();
+		for (final String line : content.split("\\R")) {
+			if (line.isBlank() || line.trim().startsWith("--")) continue;
+
+			builder.append(line).append('\n');
+			if (line.stripTrailing().endsWith(";")) {
+				statements.add(builder.substring(0, builder.lastIndexOf(";")).trim());
+				builder.setLength(0);
+			}
+		}
+
+		if (!builder.toString().isBlank()) statements.add(builder.toString().trim());
+		return statements;
+	}
+}
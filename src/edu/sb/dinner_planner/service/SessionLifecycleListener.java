@@ -0,0 +1,145 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.persistence.config.SessionCustomizer;
+import org.eclipse.persistence.sessions.Session;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import org.eclipse.persistence.sessions.changesets.ObjectChangeSet;
+import org.eclipse.persistence.sessions.changesets.UnitOfWorkChangeSet;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+
+
+/**
+ * EclipseLink session customizer and event listener managing the node-wide services bound to the
+ * lifecycle of the primary server session, independently of how the server bootstrap creates it's
+ * entity manager factory. After login, the pending {@link SchemaMigrator schema migrations} are applied,
+ * the session's {@link CacheCoordinator} is opened, the {@link CacheWarmer} preloads it's second level
+ * cache, and the {@link ChangeBroadcaster} starts polling the change log; before logout, the broadcaster
+ * is stopped, the cache snapshot is written, the cache coordinator is closed again, and the session's
+ * {@link RecipeIndex} is discarded.
+ * After each commit, the identities of all entities inserted, updated or deleted by it are broadcast
+ * to all other nodes, whose second level caches would otherwise keep serving the previous state.
+ * The change log rows collected by the {@link ChangeLogListener} are written just before each client
+ * session transaction commits, and discarded if it rolls back or it's unit of work is released.
+ * Also applies the {@link PersistenceConfiguration} and the {@link IdentitySequenceCustomizer}.
+ * Registered using persistence unit property {@code eclipselink.session.customizer}.
+ */
+public class SessionLifecycleListener extends SessionEventAdapter implements SessionCustomizer {
+	private Session session;
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void customize (final Session session) throws Exception {
+		new PersistenceConfiguration().customize(session);
+		new IdentitySequenceCustomizer().customize(session);
+
+		this.session = session;
+		session.getEventManager().addListener(this);
+	}
+
+
+	/**
+	 * Applies the pending schema migrations to the database of the server session being logged in,
+	 * opens it's cache coordinator, warms up it's cache, and starts broadcasting it's changes.
+	 * @param event the session event
+	 */
+	@Override
+	public void postLogin (final SessionEvent event) {
+		if (event.getSession() != this.session) return;
+
+		SchemaMigrator.migrate(this.session);
+		CacheCoordinator.get(this.session);
+		CacheWarmer.warmUp(this.session);
+		ChangeBroadcaster.start(this.session);
+	}
+
+
+	/**
+	 * Stops broadcasting the changes of the server session being logged out, writes it's cache snapshot,
+	 * closes it's cache coordinator, and discards it's recipe index.
+	 * @param event the session event
+	 */
+	@Override
+	public void preLogout (final SessionEvent event) {
+		if (event.getSession() != this.session) return;
+
+		ChangeBroadcaster.stop();
+		CacheWarmer.snapshot(this.session);
+		CacheCoordinator.get(this.session).close();
+		RecipeIndex.invalidate(this.session);
+	}
+
+
+	/**
+	 * Writes the change log rows collected during the client session transaction about to commit.
+	 * @param event the session event
+	 */
+	@Override
+	public void preCommitTransaction (final SessionEvent event) {
+		if (event.getSession().isClientSession()) ChangeLogListener.write(event.getSession());
+	}
+
+
+	/**
+	 * Discards the change log rows collected during the client session transaction just rolled back.
+	 * @param event the session event
+	 */
+	@Override
+	public void postRollbackTransaction (final SessionEvent event) {
+		if (event.getSession().isClientSession()) ChangeLogListener.discard();
+	}
+
+
+	/**
+	 * Discards the change log rows collected by a unit of work released without committing, for example
+	 * one rolled back before it's first flush, which never began a database transaction.
+	 * @param event the session event
+	 */
+	@Override
+	public void postReleaseUnitOfWork (final SessionEvent event) {
+		ChangeLogListener.discard();
+	}
+
+
+	/**
+	 * Broadcasts the identities of the entities inserted, updated or deleted by the unit
+	 * of work just committed to all other nodes.
+	 * @param event the session event
+	 */
+	@Override
+	public void postCommitUnitOfWork (final SessionEvent event) {
+		final UnitOfWorkChangeSet changeSet = ((UnitOfWork) event.getSession()).getUnitOfWorkChangeSet();
+		if (changeSet == null) return;
+
+		final Map<Class<? extends AbstractEntity>,Set<Long>> evictions = new HashMap<>();
+		this.collect(changeSet.getAllChangeSets().keySet(), evictions);
+		this.collect(changeSet.getDeletedObjects().keySet(), evictions);
+		CacheCoordinator.get(this.session).broadcast(evictions);
+	}
+
+
+	/**
+	 * Collects the entity identities of the given object change sets.
+	 * @param objectChangeSets the object change sets
+	 * @param evictions the entity identities, mapped by entity type
+	 */
+	@SuppressWarnings("unchecked")
+	private void collect (final Collection<?> objectChangeSets, final Map<Class<? extends AbstractEntity>,Set<Long>> evictions) {
+		for (final Object element : objectChangeSets) {
+			final ObjectChangeSet objectChangeSet = (ObjectChangeSet) element;
+			final Class<?> type = objectChangeSet.getClassType(this.session);
+			if (!AbstractEntity.class.isAssignableFrom(type) || !(objectChangeSet.getId() instanceof Long)) continue;
+
+			evictions.computeIfAbsent((Class<? extends AbstractEntity>) type, key -> new HashSet<>()).add((Long) objectChangeSet.getId());
+		}
+	}
+}
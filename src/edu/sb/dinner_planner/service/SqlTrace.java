@@ -0,0 +1,173 @@
+package edu.sb.dinner_planner.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Structured SQL statement trace, replacing EclipseLink's synchronous SQL logging. Traced statements
+ * are recorded as key/value lines containing the query name, the SQL text without bind values, the
+ * execution time and the executing thread; they are handed to a bounded ring buffer, and logged
+ * asynchronously by a daemon thread, dropping entries whenever the buffer is full. The initial profile
+ * is selected using environment variable {@value #VARIABLE_PROFILE}, or system property
+ * {@value #PROPERTY_PROFILE} which takes precedence. Both the profile and per-query overrides may
+ * be changed at runtime, see {@link MonitoringService}.
+ */
+public class SqlTrace {
+	static private final Logger LOGGER = Logger.getLogger(SqlTrace.class.getName());
+	static public final String VARIABLE_PROFILE = "DINNER_PLANNER_SQL_TRACE";
+	static public final String PROPERTY_PROFILE = "dinner_planner.sql-trace";
+	static public final String PROPERTY_SAMPLE_RATE = "dinner_planner.sql-trace.sample-rate";
+	static public final String PROPERTY_SLOW_THRESHOLD = "dinner_planner.sql-trace.slow-threshold";
+	static public final String STATEMENTS_DROPPED = "dinner_planner_sql_trace_dropped_total";
+	static private final int BUFFER_CAPACITY = 4096;
+	static private final double SAMPLE_RATE = Double.parseDouble(System.getProperty(PROPERTY_SAMPLE_RATE, "0.01"));
+	static private final long SLOW_THRESHOLD_NANOS = Long.getLong(PROPERTY_SLOW_THRESHOLD, 100L) * 1_000_000L;
+	static private final BlockingQueue<String> BUFFER = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+	static private final ThreadLocal<String> CURRENT_QUERY = new ThreadLocal<>();
+	static private final Map<String,Boolean> OVERRIDES = new ConcurrentHashMap<>();
+	static private volatile Profile PROFILE = Profile.OFF;
+
+	static {
+		final String profile = System.getProperty(PROPERTY_PROFILE, System.getenv().getOrDefault(VARIABLE_PROFILE, "off"));
+		try {
+			PROFILE = Profile.valueOf(profile.trim().toUpperCase(Locale.ROOT));
+		} catch (final IllegalArgumentException e) {
+			LOGGER.log(Level.WARNING, "unknown SQL trace profile \"{0}\", tracing disabled", profile);
+		}
+
+		final Thread thread = new Thread(SqlTrace::drain, "sql-trace");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/**
+	 * SQL trace profiles.
+	 */
+	static public enum Profile {
+		/** no statements are traced, unless enabled per query; intended for production */
+		OFF,
+		/** a fraction of all statements, and all slow statements are traced; intended for staging */
+		SAMPLED,
+		/** all statements are traced; intended for development */
+		FULL
+	}
+
+
+	/**
+	 * Prevents instantiation.
+	 */
+	private SqlTrace () {}
+
+
+	/**
+	 * Returns the current profile.
+	 * @return the profile
+	 */
+	static public Profile getProfile () {
+		return PROFILE;
+	}
+
+
+	/**
+	 * Sets the current profile.
+	 * @param profile the profile
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public void setProfile (final Profile profile) throws NullPointerException {
+		if (profile == null) throw new NullPointerException();
+		PROFILE = profile;
+	}
+
+
+	/**
+	 * Returns the per-query overrides.
+	 * @return the per-query overrides, mapping query names to whether or not they are traced
+	 */
+	static public Map<String,Boolean> getOverrides () {
+		return Map.copyOf(OVERRIDES);
+	}
+
+
+	/**
+	 * Sets whether or not the statements issued by the given query are traced regardless
+	 * of the current profile.
+	 * @param queryName the query name
+	 * @param traced whether or not to trace, or {@code null} to follow the current profile
+	 * @throws NullPointerException if the given query name is {@code null}
+	 */
+	static public void setOverride (final String queryName, final Boolean traced) throws NullPointerException {
+		if (traced == null)
+			OVERRIDES.remove(queryName);
+		else
+			OVERRIDES.put(queryName, traced);
+	}
+
+
+	/**
+	 * Associates the statements subsequently issued by the current thread with the given query name.
+	 * @param queryName the query name, or {@code null} for none
+	 * @return the previously associated query name, or {@code null} for none
+	 */
+	static public String enter (final String queryName) {
+		final String previousQueryName = CURRENT_QUERY.get();
+		if (queryName == null)
+			CURRENT_QUERY.remove();
+		else
+			CURRENT_QUERY.set(queryName);
+		return previousQueryName;
+	}
+
+
+	/**
+	 * Returns whether or not any statements may be traced at all, given the current profile and query overrides.
+	 * @return {@code true} if statements may be traced, {@code false} otherwise
+	 */
+	static public boolean isActive () {
+		return PROFILE != Profile.OFF || !OVERRIDES.isEmpty();
+	}
+
+
+	/**
+	 * Traces the given statement execution if required by the current profile or query override.
+	 * @param fallbackQueryName the query name to be used if the current thread is not associated with one
+	 * @param sql the SQL text, or {@code null} for unknown
+	 * @param durationNanos the execution time in nanoseconds
+	 */
+	static public void record (final String fallbackQueryName, final String sql, final long durationNanos) {
+		if (!isActive()) return;
+
+		final Profile profile = PROFILE;
+		final String queryName = CURRENT_QUERY.get() == null ? fallbackQueryName : CURRENT_QUERY.get();
+		final Boolean override = OVERRIDES.get(queryName);
+		final boolean traced = override != null ? override : switch (profile) {
+			case OFF -> false;
+			case SAMPLED -> durationNanos >= SLOW_THRESHOLD_NANOS || ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE;
+			case FULL -> true;
+		};
+		if (!traced) return;
+
+		final String entry = String.format(Locale.ROOT, "query=\"%s\" duration=%.3fms thread=\"%s\" sql=\"%s\"", queryName, durationNanos * 1E-6, Thread.currentThread().getName(), sql == null ? "?" : sql.replace('"', '\''));
+		if (!BUFFER.offer(entry)) Metrics.counter(STATEMENTS_DROPPED).increment();
+	}
+
+
+	/**
+	 * Logs buffered entries until the current thread is interrupted.
+	 */
+	static private void drain () {
+		try {
+			while (true)
+				LOGGER.log(Level.INFO, BUFFER.take());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package edu.sb.dinner_planner.service;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+
+/**
+ * JAX-RS filter and interceptor provider that measures the end-to-end latency of REST service
+ * requests per HTTP method and resource path template, recorded within histogram
+ * {@value #REQUEST_DURATION}. Each measurement is broken down into the time spent within
+ * authentication, JPA query execution and commits, and JSON-B serialization, plus the number
+ * of SQL statements issued; requests exceeding the threshold defined by system property
+ * {@value #PROPERTY_SLOW_THRESHOLD} (in milliseconds, default 1000) are logged with said
+ * breakdown. System property {@value #PROPERTY_SAMPLE_RATE} (default 1.0) defines the fraction
+ * of requests being measured, which allows production overhead to be reduced as required.
+ * The request filter runs before authentication, the response filter after any other response
+ * filter, and the measurement is completed once the response entity has been written. As the
+ * breakdown is collected per thread, the measurement is rebound to the thread running the response
+ * filter and entity serialization, which differs from the request thread for suspended requests;
+ * work performed on any other thread is not included in the breakdown. Server-sent event streams
+ * are measured until the stream has been opened, as their lifetime is unrelated to latency.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 100)
+public class TimingFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+	static private final Logger LOGGER = Logger.getLogger(TimingFilter.class.getName());
+	static public final String PROPERTY_SAMPLE_RATE = "dinner_planner.timing.sample-rate";
+	static public final String PROPERTY_SLOW_THRESHOLD = "dinner_planner.timing.slow-threshold";
+	static public final String REQUEST_DURATION = "dinner_planner_request_duration_seconds";
+	static private final String REQUEST_PROPERTY = TimingFilter.class.getName();
+	static private final ThreadLocal<Timing> CURRENT = new ThreadLocal<>();
+	static private final Map<Method,String> PATH_TEMPLATES = new ConcurrentHashMap<>();
+	static private final double SAMPLE_RATE = Double.parseDouble(System.getProperty(PROPERTY_SAMPLE_RATE, "1.0"));
+	static private final long SLOW_THRESHOLD_NANOS = Long.getLong(PROPERTY_SLOW_THRESHOLD, 1000L) * 1_000_000L;
+
+	@Context
+	private ResourceInfo resourceInfo;
+
+
+	/**
+	 * Timing breakdown of a single request.
+	 */
+	static private class Timing {
+		private final long startNanos = System.nanoTime();
+		private long authenticationNanos;
+		private long persistenceNanos;
+		private long serializationNanos;
+		private int statementCount;
+		private String method;
+		private String pathTemplate;
+		private int status;
+		private boolean completed;
+	}
+
+
+	/**
+	 * Adds the given duration to the authentication time of the request being processed
+	 * by the current thread, if said request is being measured.
+	 * @param nanos the duration in nanoseconds
+	 */
+	static public void addAuthentication (final long nanos) {
+		final Timing timing = CURRENT.get();
+		if (timing != null) timing.authenticationNanos += nanos;
+	}
+
+
+	/**
+	 * Adds the given duration to the JPA time of the request being processed
+	 * by the current thread, if said request is being measured.
+	 * @param nanos the duration in nanoseconds
+	 */
+	static public void addPersistence (final long nanos) {
+		final Timing timing = CURRENT.get();
+		if (timing != null) timing.persistenceNanos += nanos;
+	}
+
+
+	/**
+	 * Increments the SQL statement count of the request being processed
+	 * by the current thread, if said request is being measured.
+	 */
+	static public void addStatement () {
+		final Timing timing = CURRENT.get();
+		if (timing != null) timing.statementCount += 1;
+	}
+
+
+	/**
+	 * Returns whether or not the current thread is processing a request being measured.
+	 * @return {@code true} if the current thread's request is sampled, {@code false} otherwise
+	 */
+	static public boolean isSampled () {
+		return CURRENT.get() != null;
+	}
+
+
+	/**
+	 * Starts measuring the given request, unless it is not sampled.
+	 * @param requestContext the request context
+	 */
+	public void filter (final ContainerRequestContext requestContext) {
+		CURRENT.remove();
+		if (SAMPLE_RATE < 1.0 && ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE) return;
+
+		final Timing timing = new Timing();
+		CURRENT.set(timing);
+		requestContext.setProperty(REQUEST_PROPERTY, timing);
+	}
+
+
+	/**
+	 * Completes the measurement of the given request, unless a response entity has yet to be written.
+	 * @param requestContext the request context
+	 * @param responseContext the response context
+	 */
+	public void filter (final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+		final Timing timing = (Timing) requestContext.getProperty(REQUEST_PROPERTY);
+		if (timing == null) return;
+
+		CURRENT.set(timing);
+		timing.method = requestContext.getMethod();
+		timing.pathTemplate = this.pathTemplate();
+		timing.status = responseContext.getStatus();
+		if (!responseContext.hasEntity() || MediaType.SERVER_SENT_EVENTS_TYPE.isCompatible(responseContext.getMediaType())) this.complete(timing);
+	}
+
+
+	/**
+	 * Measures the serialization of the response entity, and completes the measurement of the associated request
+	 * unless it has already been completed.
+	 * @param context the writer interceptor context
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public void aroundWriteTo (final WriterInterceptorContext context) throws IOException {
+		final Timing timing = (Timing) context.getProperty(REQUEST_PROPERTY);
+		if (timing == null || timing.completed) {
+			context.proceed();
+			return;
+		}
+
+		CURRENT.set(timing);
+		final long startNanos = System.nanoTime();
+		try {
+			context.proceed();
+		} finally {
+			timing.serializationNanos += System.nanoTime() - startNanos;
+			this.complete(timing);
+		}
+	}
+
+
+	/**
+	 * Records the given timing, and logs it if it exceeds the slow request threshold.
+	 * @param timing the timing
+	 */
+	private void complete (final Timing timing) {
+		if (CURRENT.get() == timing) CURRENT.remove();
+		timing.completed = true;
+
+		final long durationNanos = System.nanoTime() - timing.startNanos;
+		Metrics.histogram(REQUEST_DURATION, "method", timing.method, "path", timing.pathTemplate).record(durationNanos);
+
+		if (durationNanos >= SLOW_THRESHOLD_NANOS && LOGGER.isLoggable(Level.WARNING))
+			LOGGER.log(Level.WARNING, "slow request {0} {1} ({2}): total={3}ms, authentication={4}ms, persistence={5}ms, serialization={6}ms, statements={7}", new Object[] {
+				timing.method,
+				timing.pathTemplate,
+				timing.status,
+				durationNanos / 1_000_000L,
+				timing.authenticationNanos / 1_000_000L,
+				timing.persistenceNanos / 1_000_000L,
+				timing.serializationNanos / 1_000_000L,
+				timing.statementCount
+			});
+	}
+
+
+	/**
+	 * Returns the path template of the resource method matched for the current request,
+	 * i.e. the concatenation of it's class and method level {@code @Path} values.
+	 * @return the path template, or {@code "unmatched"} if no resource method has been matched
+	 */
+	private String pathTemplate () {
+		final Method method = this.resourceInfo == null ? null : this.resourceInfo.getResourceMethod();
+		if (method == null) return "unmatched";
+
+		return PATH_TEMPLATES.computeIfAbsent(method, key -> {
+			final Path classPath = this.resourceInfo.getResourceClass().getAnnotation(Path.class);
+			final Path methodPath = key.getAnnotation(Path.class);
+			final String template = (classPath == null ? "" : classPath.value()) + (methodPath == null ? "" : "/" + methodPath.value());
+			return template.replaceAll("/+", "/").replaceAll("^/|/$", "");
+		});
+	}
+}
@@ -1,15 +1,17 @@
 package edu.sb.dinner_planner.service;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import edu.sb.dinner_planner.persistence.Document;
+import edu.sb.dinner_planner.persistence.Ingredient;
 import edu.sb.dinner_planner.persistence.Person;
 import edu.sb.dinner_planner.persistence.Recipe;
 import edu.sb.dinner_planner.persistence.Victual;
-import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -26,6 +28,7 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.RedirectionException;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response.Status;
 
@@ -37,8 +40,7 @@ import jakarta.ws.rs.core.Response.Status;
 public class VictualService {
 	static private final String HEADER_REQUESTER_IDENTITY = "X-Requester-Identity";
 
-	static private final String QUERY_VICTUALS = "select v.identity from Victual as v where "
-		+ "(:minCreated is null or v.created >= :minCreated) and "
+	static public final String VICTUAL_CRITERIA = "(:minCreated is null or v.created >= :minCreated) and "
 		+ "(:maxCreated is null or v.created <= :maxCreated) and "
 		+ "(:minModified is null or v.modified >= :minModified) and "
 		+ "(:maxModified is null or v.modified <= :maxModified) and "
@@ -46,10 +48,30 @@ public class VictualService {
 		+ "(:descriptionFragment is null or v.description like concat('%', :descriptionFragment, '%')) and "
 		+ "(:authored is null or v.author is not null = :authored) and "
 		+ "(:ignoreDiets = true or v.diet in :diets)";
+	static public final String VICTUAL_ORDERING = "v.alias, v.identity";
+	static private final String QUERY_VICTUALS = "select v.identity from Victual as v where " + VICTUAL_CRITERIA + " order by " + VICTUAL_ORDERING;
+	static private final String QUERY_VICTUAL_VALIDATORS = "select max(v.modified), count(v) from Victual as v where " + VICTUAL_CRITERIA;
+	static private final String QUERY_VICTUAL_EXPORT = "select v from Victual as v where " + VICTUAL_CRITERIA + " order by v.identity";
+	static public final FieldProjection VICTUAL_FIELDS = new FieldProjection("Victual", "v")
+		.property("diet", "diet")
+		.property("alias", "alias")
+		.property("description", "description")
+		.attribute("avatar-reference", "coalesce(avatar.identity, 1)", "left join v.avatar as avatar")
+		.attribute("author-reference", "author.identity", "left join v.author as author");
+	static private final String UPDATE_VICTUAL_RECIPE_DIETS = "UPDATE dinner_planner.Recipe AS r JOIN dinner_planner.AbstractEntity AS e ON e.identity = r.recipeIdentity "
+		+ "SET r.diet = coalesce(("
+		+ "SELECT v.diet FROM dinner_planner.Ingredient AS i JOIN dinner_planner.Victual AS v ON v.victualIdentity = i.victualReference "
+		+ "WHERE i.recipeReference = r.recipeIdentity "
+		+ "ORDER BY field(v.diet, 'CARNIVORIAN', 'PESCATARIAN', 'LACTO_OVO_VEGETARIAN', 'LACTO_VEGETARIAN', 'VEGAN') LIMIT 1"
+		+ "), 'VEGAN'), e.version = e.version + 1, e.modified = ?2 "
+		+ "WHERE r.recipeIdentity IN (SELECT i.recipeReference FROM dinner_planner.Ingredient AS i WHERE i.victualReference = ?1)";
 
 	@PersistenceContext(unitName="local_database")
 	private EntityManager entityManager;
 
+	@PersistenceContext(unitName=ReadWriteRouter.REPLICA_UNIT)
+	private EntityManager replicaEntityManager;
+
 
 	/**
 	 * HTTP Signature: GET victuals IN: - OUT: application/json
@@ -63,12 +85,14 @@ public class VictualService {
 	 * @param descriptionFragment the description fragment, or {@code null} for undefined
 	 * @param authored whether or not victuals have an author, or {@code null} for undefined
 	 * @param diets the diets, or empty for undefined
-	 * @return the matching victuals, sorted by alias
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching victuals, or their requested fields, sorted by alias
+	 * @throws RedirectionException (HTTP 304) if the client's representation is still current
 	 */
 	@GET
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Victual[] queryVictuals (
+	public Object[] queryVictuals (
 		@QueryParam("paging-offset") @PositiveOrZero final Integer pagingOffset,
 		@QueryParam("paging-limit") @Positive final Integer pagingLimit,
 		@QueryParam("min-created") final Long minCreated,
@@ -78,45 +102,99 @@ public class VictualService {
 		@QueryParam("alias") @Size(min=1) final String alias,
 		@QueryParam("description-fragment") @Size(min=1) final String descriptionFragment,
 		@QueryParam("authored") final Boolean authored,
-		@QueryParam("diet") @NotNull final Set<Victual.Diet> diets
+		@QueryParam("diet") @NotNull final Set<Victual.Diet> diets,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
-		final TypedQuery<Long> query = this.entityManager.createQuery(QUERY_VICTUALS, Long.class);
+		final String[] fieldNames = VICTUAL_FIELDS.parse(fields);
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		final Object[] validators = Metrics.timed("QUERY_VICTUAL_VALIDATORS", bindVictualCriteria(entityManager.createQuery(QUERY_VICTUAL_VALIDATORS, Object[].class), minCreated, maxCreated, minModified, maxModified, alias, descriptionFragment, authored, diets)::getSingleResult);
+		ConditionalRequestFilter.evaluate((Long) validators[0], (Long) validators[1]);
+
+		if (fieldNames != null) {
+			final TypedQuery<Tuple> query = entityManager.createQuery(VICTUAL_FIELDS.query(fieldNames, VICTUAL_CRITERIA, VICTUAL_ORDERING), Tuple.class);
+			if (pagingOffset != null) query.setFirstResult(pagingOffset);
+			if (pagingLimit != null) query.setMaxResults(pagingLimit);
+
+			bindVictualCriteria(query, minCreated, maxCreated, minModified, maxModified, alias, descriptionFragment, authored, diets);
+			return Metrics.timed("QUERY_VICTUAL_FIELDS", query::getResultStream)
+				.map(row -> VICTUAL_FIELDS.map(fieldNames, row))
+				.toArray();
+		}
+
+		final TypedQuery<Long> query = entityManager.createQuery(QUERY_VICTUALS, Long.class);
 		if (pagingOffset != null) query.setFirstResult(pagingOffset);
 		if (pagingLimit != null) query.setMaxResults(pagingLimit);
 
-		final Victual[] victuals = query
-			.setParameter("minCreated", minCreated)
-			.setParameter("maxCreated", maxCreated)
-			.setParameter("minModified", minModified)
-			.setParameter("maxModified", maxModified)
-			.setParameter("alias", alias)
-			.setParameter("descriptionFragment", descriptionFragment)
-			.setParameter("authored", authored)
-			.setParameter("ignoreDiets", diets.isEmpty())
-			.setParameter("diets", diets.isEmpty() ? Collections.singleton(null) : diets)
-			.getResultStream()
-			.map(identity -> this.entityManager.find(Victual.class, identity))
+		bindVictualCriteria(query, minCreated, maxCreated, minModified, maxModified, alias, descriptionFragment, authored, diets);
+		final Victual[] victuals = Metrics.timed("QUERY_VICTUALS", query::getResultStream)
+			.map(identity -> entityManager.find(Victual.class, identity))
 			.filter(Objects::nonNull)
-			.sorted(Victual.ALIAS_COMPARATOR)
 			.toArray(Victual[]::new);
 
 		return victuals;
 	}
 
 
+	/**
+	 * HTTP Signature: GET victuals IN: - OUT: application/x-ndjson. Streams all matching
+	 * victuals as newline delimited JSON, see {@link EntityExport}.
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param alias the alias, or {@code null} for undefined
+	 * @param descriptionFragment the description fragment, or {@code null} for undefined
+	 * @param authored whether or not victuals have an author, or {@code null} for undefined
+	 * @param diets the diets, or empty for undefined
+	 * @return the matching victuals, sorted by identity
+	 */
+	@GET
+	@Consumes
+	@Produces(EntityExport.APPLICATION_NDJSON_EXPORT)
+	public EntityExport<Victual> exportVictuals (
+		@QueryParam("min-created") final Long minCreated,
+		@QueryParam("max-created") final Long maxCreated,
+		@QueryParam("min-modified") final Long minModified,
+		@QueryParam("max-modified") final Long maxModified,
+		@QueryParam("alias") @Size(min=1) final String alias,
+		@QueryParam("description-fragment") @Size(min=1) final String descriptionFragment,
+		@QueryParam("authored") final Boolean authored,
+		@QueryParam("diet") @NotNull final Set<Victual.Diet> diets
+	) {
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		return new EntityExport<>(entityManager.getEntityManagerFactory(), "QUERY_VICTUAL_EXPORT", exportEntityManager -> bindVictualCriteria(
+			exportEntityManager.createQuery(QUERY_VICTUAL_EXPORT, Victual.class),
+			minCreated, maxCreated, minModified, maxModified, alias, descriptionFragment, authored, diets
+		));
+	}
+
+
 	/**
 	 * HTTP Signature: GET victuals/{id} IN: - OUT: application/json
 	 * @param victualIdentity the victual identity
-	 * @return the matching victual
+	 * @param fields the JSON properties and attributes to be returned, or empty for all, see {@link FieldProjection}
+	 * @return the matching victual, or it's requested fields
 	 */
 	@GET
 	@Path("{id}")
 	@Consumes
 	@Produces(MediaType.APPLICATION_JSON)
-	public Victual findVictual (
-		@PathParam("id") @Positive final long victualIdentity
+	public Object findVictual (
+		@PathParam("id") @Positive final long victualIdentity,
+		@QueryParam("fields") @NotNull final List<String> fields
 	) {
-		final Victual victual = this.entityManager.find(Victual.class, victualIdentity);
+		final String[] fieldNames = VICTUAL_FIELDS.parse(fields);
+		final EntityManager entityManager = ReadWriteRouter.select(this.entityManager, this.replicaEntityManager);
+		if (fieldNames != null) {
+			final String queryText = VICTUAL_FIELDS.query(fieldNames, "v.identity = :victualIdentity", null);
+			List<Tuple> rows = Metrics.timed("QUERY_VICTUAL_FIELDS", entityManager.createQuery(queryText, Tuple.class).setParameter("victualIdentity", victualIdentity)::getResultList);
+			if (rows.isEmpty() & entityManager != this.entityManager) rows = Metrics.timed("QUERY_VICTUAL_FIELDS", this.entityManager.createQuery(queryText, Tuple.class).setParameter("victualIdentity", victualIdentity)::getResultList);
+			if (rows.isEmpty()) throw new ClientErrorException(Status.NOT_FOUND);
+			return VICTUAL_FIELDS.map(fieldNames, rows.get(0));
+		}
+
+		Victual victual = entityManager.find(Victual.class, victualIdentity);
+		if (victual == null & entityManager != this.entityManager) victual = this.entityManager.find(Victual.class, victualIdentity);
 		if (victual == null) throw new ClientErrorException(Status.NOT_FOUND);
 
 		return victual;
@@ -152,6 +230,9 @@ public class VictualService {
 				victual.setVersion(victualTemplate.getVersion());
 			}
 
+			final boolean dietChanged = victual.getDiet() != victualTemplate.getDiet();
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager);
+			if (insertMode) cacheInvalidator.add(Person.class, requester.getIdentity());
 			victual.setModified(System.currentTimeMillis());
 			victual.setDiet(victualTemplate.getDiet());
 			victual.setAlias(victualTemplate.getAlias());
@@ -171,14 +252,25 @@ public class VictualService {
 				else
 					this.entityManager.flush();
 
+				// maintain the derived diets of recipes using this victual, using a single statement
+				if (!insertMode & dietChanged) {
+					cacheInvalidator.addVictualReferrers(victual.getIdentity());
+					if (!cacheInvalidator.identities(Recipe.class).isEmpty())
+						this.entityManager
+							.createNativeQuery(UPDATE_VICTUAL_RECIPE_DIETS)
+							.setParameter(1, victual.getIdentity())
+							.setParameter(2, victual.getModified())
+							.executeUpdate();
+				}
+
 				this.entityManager.getTransaction().commit();
 			} catch (final RuntimeException e) {
 				throw new ClientErrorException(Status.CONFLICT, e);
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			if (insertMode) secondLevelCache.evict(Person.class, requester.getIdentity());
+			cacheInvalidator.evict();
+			RecipeIndex.get(this.entityManager).putVictual(victual.getIdentity(), victual.getDiet());
 
 			return victual.getIdentity();
 		} finally {
@@ -212,9 +304,18 @@ public class VictualService {
 
 			final Person author = victual.getAuthor();
 			if (requester != author & requester.getGroup() != Person.Group.ADMIN) throw new ClientErrorException(Status.FORBIDDEN);
+			final CacheInvalidator cacheInvalidator = new CacheInvalidator(this.entityManager).addVictualReferrers(victual.getIdentity()).addVictualIngredients(victual.getIdentity());
+			if (author != null) cacheInvalidator.add(Person.class, author.getIdentity());
+			ChangeLogListener.appendCascaded(this.entityManager, Ingredient.class, cacheInvalidator.identities(Ingredient.class), true);
 
 			try {
 				this.entityManager.remove(victual);	// send SQL DELETE statements to the database
+				this.entityManager.flush();
+
+				// maintain the derived attributes of recipes whose ingredients have been cascade deleted
+				RecipeService.recountRecipes(this.entityManager, cacheInvalidator.identities(Recipe.class));
+				RecipeService.rederiveRecipeDiets(this.entityManager, cacheInvalidator.identities(Recipe.class));
+				this.entityManager.flush();
 
 				this.entityManager.getTransaction().commit();
 			} catch (final RuntimeException e) {
@@ -222,9 +323,8 @@ public class VictualService {
 			}
 
 			// evict second level cache entities for changes in mirror and transitive ?:* relationship sets
-			final Cache secondLevelCache = this.entityManager.getEntityManagerFactory().getCache();
-			if (author != null) secondLevelCache.evict(Person.class, author.getIdentity());
-			secondLevelCache.evict(Recipe.class);
+			cacheInvalidator.evict();
+			RecipeIndex.get(this.entityManager).removeVictual(victual.getIdentity());
 
 			return victual.getIdentity();
 		} finally {
@@ -253,4 +353,32 @@ public class VictualService {
 
 		return victual.getAuthor();
 	}
+
+
+	/**
+	 * Sets the parameters of the given victual criteria query.
+	 * @param <T> the query result type
+	 * @param query the query
+	 * @param minCreated the minimum creation timestamp, or {@code null} for undefined
+	 * @param maxCreated the maximum creation timestamp, or {@code null} for undefined
+	 * @param minModified the minimum modification timestamp, or {@code null} for undefined
+	 * @param maxModified the maximum modification timestamp, or {@code null} for undefined
+	 * @param alias the alias, or {@code null} for undefined
+	 * @param descriptionFragment the description fragment, or {@code null} for undefined
+	 * @param authored whether or not victuals have an author, or {@code null} for undefined
+	 * @param diets the diets, or empty for undefined
+	 * @return the given query
+	 */
+	static private <T> TypedQuery<T> bindVictualCriteria (final TypedQuery<T> query, final Long minCreated, final Long maxCreated, final Long minModified, final Long maxModified, final String alias, final String descriptionFragment, final Boolean authored, final Set<Victual.Diet> diets) {
+		return query
+			.setParameter("minCreated", minCreated)
+			.setParameter("maxCreated", maxCreated)
+			.setParameter("minModified", minModified)
+			.setParameter("maxModified", maxModified)
+			.setParameter("alias", alias)
+			.setParameter("descriptionFragment", descriptionFragment)
+			.setParameter("authored", authored)
+			.setParameter("ignoreDiets", diets.isEmpty())
+			.setParameter("diets", diets.isEmpty() ? Collections.singleton(null) : diets);
+	}
 }
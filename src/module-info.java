@@ -2,8 +2,10 @@ open module edu.sb.dinner_planner.model {
 	// declares dependencies
 	requires transitive java.sql;
 	requires transitive java.logging;
+	requires jdk.management;
 	requires transitive jakarta.annotation;
 	requires transitive jakarta.validation;
+	requires transitive jakarta.json;
 	requires transitive jakarta.json.bind;
 	requires transitive jakarta.xml.bind;
 	requires transitive jakarta.persistence;